@@ -0,0 +1,151 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH CSV result (-rf csv) against a saved baseline.
+ * <p>
+ * Benchmarks are matched by name and parameters. A change larger than the threshold
+ * in the slower direction (higher for time per operation, lower for throughput) is
+ * reported as a regression when the two scores' 99.9% confidence intervals
+ * (score &plusmn; JMH's score error) do not overlap; a larger change within the error
+ * bars is marked as noise. The process exits with status 1 if any regressions were found.
+ * Benchmarks in the baseline that are missing from the result are listed, so a renamed
+ * benchmark or parameter does not silently drop out of the comparison.
+ * <pre>
+ * java com.fitnesstracker.BenchmarkComparison &lt;baseline.csv&gt; &lt;result.csv&gt; [threshold, default 0.10]
+ * </pre>
+ */
+public final class BenchmarkComparison {
+
+    private BenchmarkComparison() {
+    }
+
+    /**
+     * One row of a JMH CSV result.
+     */
+    record Score(String mode, double score, double error, String unit) {
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+
+        /**
+         * Returns whether this score is worse than another beyond both error bars.
+         */
+        boolean worseBeyondError(Score other) {
+            return higherIsBetter()
+                    ? score + error < other.score - other.error
+                    : score - error > other.score + other.error;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Error: Usage: BenchmarkComparison <baseline.csv> <result.csv> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> current = read(Path.of(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        int missing = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", now.score(), "new");
+                continue;
+            }
+            double change = (now.score() - before.score()) / before.score();
+            boolean slower = now.higherIsBetter() ? change < -threshold : change > threshold;
+            boolean regressed = slower && now.worseBeyondError(before);
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before.score(), now.score(),
+                    change * 100, regressed ? "  REGRESSION" : slower ? "  (within error)" : "");
+        }
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                missing++;
+                System.out.printf("%-90s %14.3f %14s %9s%n", entry.getKey(), entry.getValue().score(), "-", "missing");
+            }
+        }
+        System.out.printf("%d regression(s) beyond %.0f%%.%n", regressions, threshold * 100);
+        if (missing > 0) {
+            System.out.printf("%d baseline benchmark(s) missing from the result.%n", missing);
+        }
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH CSV result, keyed by benchmark name plus its parameter values.
+     */
+    static Map<String, Score> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        if (lines.isEmpty()) {
+            throw new IOException("Empty benchmark result: " + file);
+        }
+        List<String> header = parseCsvLine(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        int error = header.indexOf("Score Error (99.9%)");
+        int unit = header.indexOf("Unit");
+        if (benchmark < 0 || mode < 0 || score < 0 || unit < 0) {
+            throw new IOException("Not a JMH CSV result: " + file);
+        }
+
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> columns = parseCsvLine(line);
+            StringBuilder key = new StringBuilder(columns.get(benchmark));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && !columns.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring("Param: ".length())).append('=').append(columns.get(i));
+                }
+            }
+            // A single-sample run has no error bar ("NaN"); its intervals are just the scores.
+            double scoreError = error < 0 ? 0 : parseNumber(columns.get(error));
+            scores.put(key.toString(), new Score(columns.get(mode), parseNumber(columns.get(score)),
+                    Double.isNaN(scoreError) ? 0 : scoreError, columns.get(unit)));
+        }
+        return scores;
+    }
+
+    private static double parseNumber(String column) {
+        return Double.parseDouble(column.replace(',', '.'));
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+}
@@ -0,0 +1,44 @@
+package com.fitnesstracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cost of timing one command, which is paid on every executeCommand call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandStatsBenchmark {
+    private final String[] commands = {"log", "track", "view-workouts", "report"};
+    private final CommandStats stats = new CommandStats(Set.of(commands));
+    private int next;
+
+    @Benchmark
+    public void record() {
+        int i = next++;
+        stats.record(commands[i & 3], 1_000 + (i & 0xFFFF) * 97L, false);
+    }
+
+    /**
+     * Includes the two clock reads that surround every command.
+     */
+    @Benchmark
+    public void timeAndRecord() {
+        long start = System.nanoTime();
+        stats.record(commands[next++ & 3], System.nanoTime() - start, false);
+    }
+}
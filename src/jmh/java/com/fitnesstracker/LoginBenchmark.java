@@ -0,0 +1,52 @@
+package com.fitnesstracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the user lookup behind the login command with 1k, 100k, and 1M registered users.
+ * IDs are probed in a scattered order so the lookups are not served from a warm cache line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private UserRegistry registry;
+    private String[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registry = new UserRegistry();
+        for (int i = 0; i < users; i++) {
+            registry.create("User " + i, "user-" + i);
+        }
+        probes = new String[4096];
+        for (int i = 0; i < probes.length; i++) {
+            // Half of the probes hit, half miss, as with mistyped IDs.
+            probes[i] = "user-" + (int) ((i * 2_654_435_761L) % (users * 2L));
+        }
+    }
+
+    @Benchmark
+    public User login() {
+        return registry.find(probes[next++ & (probes.length - 1)]);
+    }
+}
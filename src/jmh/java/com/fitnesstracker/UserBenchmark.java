@@ -0,0 +1,88 @@
+package com.fitnesstracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the per-user aggregate queries behind the track and view-goals commands,
+ * for users with 1k, 100k, and 10M workouts kept on or off the heap.
+ * Each user also has one goal per 100 workouts (at most 10,000), of which about 1% are still active.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UserBenchmark {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    @Param({"1000", "100000", "10000000"})
+    public int workouts;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public WorkoutStorage storage;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Clock clock = Clock.fixed(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+        user = new User("Benchmark", "B1", clock, storage);
+        ActivityType[] values = ActivityType.values();
+        int batch = 8192;
+        ActivityType[] activityTypes = new ActivityType[batch];
+        int[] epochDays = new int[batch];
+        int[] minutes = new int[batch];
+        int firstDay = (int) TODAY.minusYears(5).toEpochDay();
+        for (int logged = 0; logged < workouts; ) {
+            int count = Math.min(batch, workouts - logged);
+            for (int i = 0; i < count; i++) {
+                int row = logged + i;
+                activityTypes[i] = values[row % values.length];
+                epochDays[i] = firstDay + (int) ((long) row * 1826 / workouts);
+                minutes[i] = 20 + row % 60;
+            }
+            user.addWorkouts(activityTypes, epochDays, minutes, count);
+            logged += count;
+        }
+
+        int goals = Math.min(10_000, Math.max(1, workouts / 100));
+        for (int i = 0; i < goals; i++) {
+            // Every hundredth goal ends after today; the rest have expired.
+            LocalDate end = i % 100 == 0 ? TODAY.plusDays(1 + i % 30) : TODAY.minusDays(1 + i % 1000);
+            user.addGoal(new Goal("Goal " + i, 100, end.minusDays(30), end));
+        }
+    }
+
+    @Benchmark
+    public long totalWorkoutMinutes() {
+        return user.getTotalWorkoutMinutes(ActivityType.RUNNING);
+    }
+
+    @Benchmark
+    public double totalCaloriesBurned() {
+        return user.getTotalCaloriesBurned(ActivityType.CYCLING);
+    }
+
+    @Benchmark
+    public List<Goal> activeGoals() {
+        return user.getActiveGoals();
+    }
+}
@@ -0,0 +1,54 @@
+package com.fitnesstracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for creating workouts and resolving activity names,
+ * which run on every log, track, and update-activity command.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkoutBenchmark {
+    // Mixed case, as typed by users.
+    private final String[] names = {"Running", "cycling", "WEIGHTLIFTING", "Cycling"};
+    private final Duration duration = Duration.ofMinutes(45);
+    private final LocalDate date = LocalDate.of(2024, 6, 1);
+    private final Duration[] durations = {Duration.ofMinutes(30), Duration.ofMinutes(45), Duration.ofMinutes(60), Duration.ofMinutes(90)};
+    private final Workout workout = new Workout(ActivityType.RUNNING, duration, date);
+    private int next;
+
+    @Benchmark
+    public Workout newWorkout() {
+        return new Workout(ActivityType.CYCLING, duration, date);
+    }
+
+    /**
+     * Changing the duration of a detached workout recalculates its calories.
+     */
+    @Benchmark
+    public double calculateCaloriesBurned() {
+        workout.setDuration(durations[next++ & 3]);
+        return workout.getCaloriesBurned();
+    }
+
+    @Benchmark
+    public ActivityType activityFromName() {
+        return ActivityType.fromName(names[next++ & 3]);
+    }
+}
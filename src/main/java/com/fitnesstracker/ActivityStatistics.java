@@ -0,0 +1,23 @@
+package com.fitnesstracker;
+
+/**
+ * Organisation-wide totals of one activity type, and how they are spread over users.
+ * Per-user figures only count users who logged at least one workout of the activity.
+ *
+ * @param activityType The activity type.
+ * @param users The number of users who logged the activity.
+ * @param workouts The number of workouts.
+ * @param minutes The total minutes.
+ * @param calories The total calories burned.
+ * @param minUserMinutes The fewest minutes logged by one user.
+ * @param maxUserMinutes The most minutes logged by one user.
+ * @param averageUserMinutes The mean minutes per user.
+ * @param stdDevUserMinutes The standard deviation of minutes per user.
+ * @param averageUserCalories The mean calories burned per user.
+ * @param minutesHistogram Users per power-of-two band of minutes: index 0 counts users with
+ *                         0 or 1 minutes, and index b counts users with 2^b to 2^(b+1)-1 minutes.
+ */
+public record ActivityStatistics(ActivityType activityType, int users, long workouts, long minutes, double calories,
+                                 long minUserMinutes, long maxUserMinutes, double averageUserMinutes,
+                                 double stdDevUserMinutes, double averageUserCalories, long[] minutesHistogram) {
+}
@@ -0,0 +1,67 @@
+package com.fitnesstracker;
+
+import java.util.Arrays;
+
+/**
+ * Running per-activity totals of minutes, calories, and workout counts.
+ * Totals are indexed by activity id and kept up to date as workouts
+ * are added or changed, so reading a total never touches the workouts.
+ */
+final class ActivityTotals implements WorkoutListener {
+    private long[] minutes = new long[ActivityType.count()];
+    private double[] calories = new double[minutes.length];
+    private int[] counts = new int[minutes.length];
+
+    @Override
+    public void workoutAdded(int epochDay, int activity, int minutesValue, double caloriesValue) {
+        ensureCapacity(activity);
+        minutes[activity] += minutesValue;
+        calories[activity] += caloriesValue;
+        counts[activity]++;
+    }
+
+    @Override
+    public void workoutRemoved(int epochDay, int activity, int minutesValue, double caloriesValue) {
+        ensureCapacity(activity);
+        minutes[activity] -= minutesValue;
+        calories[activity] -= caloriesValue;
+        counts[activity]--;
+        if (counts[activity] == 0) {
+            // Drop any floating-point residue once an activity has no workouts left.
+            calories[activity] = 0.0;
+        }
+    }
+
+    @Override
+    public void caloriesChanged(CalorieBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            int activity = batch.activity(i);
+            ensureCapacity(activity);
+            calories[activity] += batch.newCalories(i) - batch.oldCalories(i);
+        }
+    }
+
+    long minutes(ActivityType activityType) {
+        int activity = activityType.getId();
+        return activity < minutes.length ? minutes[activity] : 0;
+    }
+
+    double calories(ActivityType activityType) {
+        int activity = activityType.getId();
+        return activity < calories.length ? calories[activity] : 0.0;
+    }
+
+    int count(ActivityType activityType) {
+        int activity = activityType.getId();
+        return activity < counts.length ? counts[activity] : 0;
+    }
+
+    private void ensureCapacity(int activity) {
+        if (activity >= minutes.length) {
+            int length = activity + 1;
+            minutes = Arrays.copyOf(minutes, length);
+            calories = Arrays.copyOf(calories, length);
+            counts = Arrays.copyOf(counts, length);
+        }
+    }
+}
@@ -1,22 +1,55 @@
 package com.fitnesstracker;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.StringJoiner;
+
 /**
  * Represents different types of fitness activities with their associated
  * calorie burn rates per minute.
+ * <p>
+ * Activity types live in a catalog. RUNNING, WEIGHTLIFTING and CYCLING are
+ * built in; more can be registered at startup, usually from a config file
+ * (see {@link #loadCatalog(Path)}). Every type has a dense id, assigned in
+ * registration order starting at 0, so aggregation code can use it as an
+ * array index. There is exactly one instance per type, so types compare by identity.
+ * <p>
+ * Name lookup is case-insensitive and O(1): the catalog keeps an
+ * open-addressing table keyed by a case-folded hash of the name, so
+ * {@link #fromName(String)} neither scans the catalog nor allocates.
  */
-public enum ActivityType {
-    RUNNING("Running", .10),
-    WEIGHTLIFTING("Weightlifting", 7.0),
-    CYCLING("Cycling", 8.0);
+public final class ActivityType {
+    private static final Object REGISTRATION_LOCK = new Object();
+    // Immutable; replaced as a whole when a type is registered.
+    private static volatile Catalog catalog = new Catalog(new ActivityType[0]);
+
+    public static final ActivityType RUNNING = register("Running", .10);
+    public static final ActivityType WEIGHTLIFTING = register("Weightlifting", 7.0);
+    public static final ActivityType CYCLING = register("Cycling", 8.0);
 
+    private final int id;
     private final String name;
     private final double caloriesPerMinute;
 
-    ActivityType(String name, double caloriesPerMinute) {
+    private ActivityType(int id, String name, double caloriesPerMinute) {
+        this.id = id;
         this.name = name;
         this.caloriesPerMinute = caloriesPerMinute;
     }
 
+    /**
+     * Returns the dense id of this type, usable as an array index.
+     */
+    public int getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
@@ -25,6 +58,40 @@ public enum ActivityType {
         return caloriesPerMinute;
     }
 
+    @Override
+    public String toString() {
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns all registered activity types, ordered by id.
+     */
+    public static ActivityType[] values() {
+        return catalog.types.clone();
+    }
+
+    /**
+     * Returns the number of registered activity types, which is one more than the largest id.
+     */
+    public static int count() {
+        return catalog.types.length;
+    }
+
+    /**
+     * Returns the activity type with the given id.
+     *
+     * @param id The id of the activity type.
+     * @return The matching ActivityType.
+     * @throws IllegalArgumentException if no type has that id.
+     */
+    public static ActivityType byId(int id) {
+        ActivityType[] types = catalog.types;
+        if (id < 0 || id >= types.length) {
+            throw new IllegalArgumentException("Invalid activity type id: " + id + ".");
+        }
+        return types[id];
+    }
+
     /**
      * Finds an ActivityType by name (case-insensitive).
      *
@@ -32,12 +99,158 @@ public enum ActivityType {
      * @return The matching ActivityType, or throws an exception if invalid.
      */
     public static ActivityType fromName(String name) {
-        for (ActivityType type : ActivityType.values()) {
-            if (type.name.equalsIgnoreCase(name)) {
-                return type;
-            }
+        ActivityType type = lookup(name);
+        if (type != null) {
+            return type;
         }
         throw new IllegalArgumentException("Invalid activity type: " + name +
-                ". Choose from RUNNING, WEIGHTLIFTING, CYCLING.");
+                ". Choose from " + catalog.choices + ".");
+    }
+
+    /**
+     * Finds an ActivityType by name (case-insensitive) without throwing.
+     *
+     * @param name The name of the activity.
+     * @return The matching ActivityType, or null if there is none.
+     */
+    static ActivityType lookup(String name) {
+        return name == null ? null : catalog.find(name);
+    }
+
+    /**
+     * Adds an activity type to the catalog.
+     *
+     * @param name The name of the activity, unique ignoring case.
+     * @param caloriesPerMinute The calories burned per minute.
+     * @return The new activity type.
+     * @throws IllegalArgumentException if the name is blank or taken, or the rate is not positive.
+     */
+    public static ActivityType register(String name, double caloriesPerMinute) {
+        Objects.requireNonNull(name, "Activity name cannot be null.");
+        String trimmed = name.strip();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Activity name cannot be empty.");
+        }
+        if (!(caloriesPerMinute > 0) || Double.isInfinite(caloriesPerMinute)) {
+            throw new IllegalArgumentException("Calories per minute must be a positive number.");
+        }
+        synchronized (REGISTRATION_LOCK) {
+            Catalog current = catalog;
+            if (current.find(trimmed) != null) {
+                throw new IllegalArgumentException("Activity type already exists: " + trimmed + ".");
+            }
+            if (current.types.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many activity types.");
+            }
+            ActivityType type = new ActivityType(current.types.length, trimmed, caloriesPerMinute);
+            ActivityType[] types = Arrays.copyOf(current.types, current.types.length + 1);
+            types[type.id] = type;
+            catalog = new Catalog(types);
+            return type;
+        }
+    }
+
+    /**
+     * Registers the activity types listed in a config file.
+     * Each non-blank line not starting with '#' is {@code name,caloriesPerMinute}.
+     * Types that are already registered with the same rate are skipped, so
+     * loading the same file twice is harmless.
+     *
+     * @param file The config file.
+     * @return The number of newly registered types.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a line is malformed or redefines an existing type.
+     */
+    public static int loadCatalog(Path file) throws IOException {
+        int registered = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int comma = line.lastIndexOf(',');
+                if (comma < 0) {
+                    throw new IllegalArgumentException("Invalid activity on line " + lineNumber
+                            + " of " + file + ": expected name,caloriesPerMinute.");
+                }
+                String name = line.substring(0, comma).strip();
+                double rate;
+                try {
+                    rate = Double.parseDouble(line.substring(comma + 1).strip());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid calories per minute on line " + lineNumber
+                            + " of " + file + ".");
+                }
+                ActivityType existing = lookup(name);
+                if (existing != null) {
+                    if (existing.caloriesPerMinute != rate) {
+                        throw new IllegalArgumentException("Activity type already exists: " + name + ".");
+                    }
+                    continue;
+                }
+                register(name, rate);
+                registered++;
+            }
+        }
+        return registered;
+    }
+
+    /**
+     * Case-insensitive hash, consistent with {@link String#equalsIgnoreCase(String)}.
+     */
+    private static int foldedHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Snapshot of the registered types with a name table for lookups.
+     */
+    private static final class Catalog {
+        private final ActivityType[] types;
+        // Open addressing with linear probing; slots hold id + 1, 0 means empty.
+        private final int[] slots;
+        private final int[] hashes;
+        private final String choices;
+
+        Catalog(ActivityType[] types) {
+            this.types = types;
+            int capacity = Integer.highestOneBit(Math.max(4, types.length * 2) - 1) << 1;
+            this.slots = new int[capacity];
+            this.hashes = new int[capacity];
+            StringJoiner joiner = new StringJoiner(", ");
+            for (ActivityType type : types) {
+                int hash = foldedHash(type.name);
+                int slot = hash & (capacity - 1);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                slots[slot] = type.id + 1;
+                hashes[slot] = hash;
+                joiner.add(type.toString());
+            }
+            this.choices = joiner.toString();
+        }
+
+        ActivityType find(String name) {
+            int hash = foldedHash(name);
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash) {
+                    ActivityType type = types[slots[slot] - 1];
+                    if (type.name.equalsIgnoreCase(name)) {
+                        return type;
+                    }
+                }
+            }
+            return null;
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.fitnesstracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one aggregate read of a user's workouts.
+ * Disabled by default because every total and range query emits one.
+ */
+@Name("com.fitnesstracker.Aggregation")
+@Label("Aggregation")
+@Category({"Fitness Tracker", "Aggregation"})
+@Description("A total or date-range aggregate over one user's workouts")
+@Enabled(false)
+@StackTrace(false)
+final class AggregationEvent extends Event {
+    @Label("User ID")
+    String userId;
+
+    @Label("Metric")
+    @Description("minutes, calories, count, or workouts")
+    String metric;
+
+    @Label("Activity")
+    @Description("The activity type aggregated, or All")
+    String activity;
+
+    @Label("Workouts Scanned")
+    @Description("Workouts visited to compute the result; 0 for running totals")
+    int workoutsScanned;
+}
@@ -0,0 +1,18 @@
+package com.fitnesstracker;
+
+import java.util.List;
+
+/**
+ * Result of a {@link UserAnalytics} run over all users.
+ *
+ * @param users The number of users analysed.
+ * @param activeUsers The number of users with at least one workout.
+ * @param workouts The number of workouts of all activities.
+ * @param minutes The total minutes of all activities.
+ * @param calories The total calories burned by all activities.
+ * @param activities Statistics per activity type that has workouts, ordered by activity id.
+ * @param elapsedNanos How long the analysis took.
+ */
+public record AnalyticsReport(int users, int activeUsers, long workouts, long minutes, double calories,
+                              List<ActivityStatistics> activities, long elapsedNanos) {
+}
@@ -0,0 +1,433 @@
+package com.fitnesstracker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP API over the same user, workout, and goal model as the CLI.
+ * <p>
+ * Parameters are read from the query string and from
+ * {@code application/x-www-form-urlencoded} request bodies; responses are JSON.
+ * Instead of the CLI's single logged-in user, each client holds a session
+ * token (from {@code POST /users} or {@code POST /sessions}) and sends it as
+ * {@code Authorization: Bearer <token>}.
+ * <pre>
+ * POST /users      name, userId                   create a user and start a session
+ * POST /sessions   userId                         start a session
+ * DELETE /sessions                                end the session
+ * POST /workouts   activity, minutes, [date]      log a workout
+ * GET  /workouts   [from, to]                     list workouts
+ * GET  /track      activity                       totals for an activity
+ * POST /goals      title, target, start, end,     set a goal, optionally tracked
+ *                  [metric, activity]             automatically from workouts
+ * GET  /goals                                     list active goals
+ * </pre>
+ * Sessions end after {@value #SESSION_IDLE_MINUTES} minutes without a request,
+ * and at most {@value #MAX_SESSIONS} are open at once; beyond that, new sessions
+ * are refused with 503 until some expire or end. Request bodies over
+ * {@value #MAX_BODY_BYTES} bytes are refused with 413 without being read.
+ * <p>
+ * Requests run one per virtual thread when the JVM supports them (Java 21+),
+ * otherwise on a fixed pool of platform threads. Requests for different
+ * users only share the registry, which is concurrent; each user has its own lock.
+ */
+public class ApiServer {
+    private static final HexFormat HEX = HexFormat.of();
+    static final int SESSION_IDLE_MINUTES = 30;
+    static final int MAX_SESSIONS = 100_000;
+    static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final UserRegistry users;
+    private final Journal journal;
+    private final long sessionIdleNanos;
+    private final int maxSessions;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param users The registry to serve.
+     * @param journal The journal to record changes in, or null to run without persistence.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public ApiServer(UserRegistry users, Journal journal, int port) throws IOException {
+        this(users, journal, port, Duration.ofMinutes(SESSION_IDLE_MINUTES), MAX_SESSIONS);
+    }
+
+    /**
+     * @param sessionIdle How long a session lasts without a request.
+     * @param maxSessions The most sessions open at once.
+     */
+    ApiServer(UserRegistry users, Journal journal, int port, Duration sessionIdle, int maxSessions) throws IOException {
+        this.users = users;
+        this.journal = journal;
+        this.sessionIdleNanos = sessionIdle.toNanos();
+        this.maxSessions = maxSessions;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/users", exchange -> handle(exchange, "POST", this::createUser));
+        server.createContext("/sessions", exchange -> handle(exchange, null, this::sessions));
+        server.createContext("/workouts", exchange -> handle(exchange, null, this::workouts));
+        server.createContext("/track", exchange -> handle(exchange, "GET", this::track));
+        server.createContext("/goals", exchange -> handle(exchange, null, this::goals));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates a virtual-thread-per-request executor when available, falling back to a fixed
+     * pool of platform threads, so that a burst of requests queues instead of starting a
+     * thread per request.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(task, "api-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            int threads = Math.max(32, Runtime.getRuntime().availableProcessors() * 8);
+            return Executors.newFixedThreadPool(threads, factory);
+        }
+    }
+
+    /**
+     * Response produced by an endpoint.
+     */
+    private record Response(int status, String json) {
+    }
+
+    /**
+     * A session's user and the {@link System#nanoTime()} after which it has expired.
+     */
+    private record Session(String userId, long expiresAt) {
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(String method, Map<String, String> params, HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, String allowedMethod, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params;
+            if (allowedMethod != null && !allowedMethod.equals(method)) {
+                response = error(405, "Method not allowed.");
+            } else if ((params = readParams(exchange)) == null) {
+                response = error(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes.");
+            } else {
+                response = endpoint.handle(method, params, exchange);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            response = error(500, "Unexpected error: " + e.getMessage());
+        }
+
+        byte[] body = response.json().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Response createUser(String method, Map<String, String> params, HttpExchange exchange) {
+        String name = required(params, "name");
+        String userId = required(params, "userId");
+        if (users.find(userId) != null) {
+            return error(409, "User ID already exists.");
+        }
+        // Journaled before the user becomes visible; replaying a create for a taken ID is a no-op.
+        if (journal != null) {
+            journal.recordCreateUser(name, userId);
+        }
+        if (users.create(name, userId) == null) {
+            return error(409, "User ID already exists.");
+        }
+        String token = newSession(userId);
+        // The user exists either way; without a session the client logs in once sessions free up.
+        return new Response(201, "{\"userId\":" + quote(userId) + ",\"token\":"
+                + (token == null ? "null" : quote(token)) + "}");
+    }
+
+    private Response sessions(String method, Map<String, String> params, HttpExchange exchange) {
+        if (method.equals("DELETE")) {
+            String token = sessionToken(exchange);
+            if (token == null || sessions.remove(token) == null) {
+                return error(401, "Missing or unknown session token.");
+            }
+            return new Response(200, "{\"loggedOut\":true}");
+        }
+        if (!method.equals("POST")) {
+            return error(405, "Method not allowed.");
+        }
+
+        String userId = required(params, "userId");
+        if (users.find(userId) == null) {
+            return error(404, "User ID not found.");
+        }
+        String token = newSession(userId);
+        if (token == null) {
+            return error(503, "Too many open sessions.");
+        }
+        return new Response(200, "{\"userId\":" + quote(userId) + ",\"token\":" + quote(token) + "}");
+    }
+
+    private Response workouts(String method, Map<String, String> params, HttpExchange exchange) {
+        User user = sessionUser(exchange);
+        if (user == null) {
+            return error(401, "Missing or unknown session token.");
+        }
+
+        if (method.equals("POST")) {
+            ActivityType activityType = ActivityType.fromName(required(params, "activity"));
+            int minutes = Integer.parseInt(required(params, "minutes"));
+            String dateParam = params.get("date");
+            LocalDate date = dateParam == null ? LocalDate.now() : LocalDate.parse(dateParam);
+            Workout workout = new Workout(activityType, Duration.ofMinutes(minutes), date);
+            user.write(() -> {
+                // Journal and apply under one lock so the journal order matches the in-memory order.
+                if (journal != null) {
+                    journal.recordLogWorkout(user.getUserId(), workout);
+                }
+                user.addWorkout(workout);
+                return null;
+            });
+            return new Response(201, workoutJson(workout));
+        }
+        if (!method.equals("GET")) {
+            return error(405, "Method not allowed.");
+        }
+
+        String from = params.get("from");
+        String to = params.get("to");
+        List<Workout> workouts = (from != null && to != null)
+                ? user.getWorkoutsBetween(LocalDate.parse(from), LocalDate.parse(to))
+                : user.read(() -> List.copyOf(user.getWorkouts()));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < workouts.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(workoutJson(workouts.get(i)));
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private Response track(String method, Map<String, String> params, HttpExchange exchange) {
+        User user = sessionUser(exchange);
+        if (user == null) {
+            return error(401, "Missing or unknown session token.");
+        }
+
+        ActivityType activityType = ActivityType.fromName(required(params, "activity"));
+        long minutes = user.getTotalWorkoutMinutes(activityType);
+        double calories = user.getTotalCaloriesBurned(activityType);
+        return new Response(200, "{\"activity\":" + quote(activityType.getName())
+                + ",\"totalMinutes\":" + minutes + ",\"totalCalories\":" + calories + "}");
+    }
+
+    private Response goals(String method, Map<String, String> params, HttpExchange exchange) {
+        User user = sessionUser(exchange);
+        if (user == null) {
+            return error(401, "Missing or unknown session token.");
+        }
+
+        if (method.equals("POST")) {
+            String metric = params.get("metric");
+            String activity = params.get("activity");
+            Goal goal = new Goal(required(params, "title"), Double.parseDouble(required(params, "target")),
+                    LocalDate.parse(required(params, "start")), LocalDate.parse(required(params, "end")),
+                    metric == null || metric.isBlank() ? GoalMetric.MANUAL : GoalMetric.fromName(metric.trim()),
+                    activity == null || activity.isBlank() ? null : ActivityType.fromName(activity.trim()));
+            user.write(() -> {
+                if (journal != null) {
+                    journal.recordSetGoal(user.getUserId(), goal);
+                }
+                user.addGoal(goal);
+                return null;
+            });
+            return new Response(201, goalJson(goal));
+        }
+        if (!method.equals("GET")) {
+            return error(405, "Method not allowed.");
+        }
+
+        List<Goal> goals = user.getActiveGoals();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < goals.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(goalJson(goals.get(i)));
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    /**
+     * Starts a session, first dropping expired ones if the session limit is reached.
+     *
+     * @return The session token, or null if the limit is still reached.
+     */
+    private String newSession(String userId) {
+        long now = System.nanoTime();
+        if (sessions.size() >= maxSessions) {
+            sessions.values().removeIf(session -> now - session.expiresAt() > 0);
+            if (sessions.size() >= maxSessions) {
+                return null;
+            }
+        }
+        byte[] token = new byte[16];
+        random.nextBytes(token);
+        String value = HEX.formatHex(token);
+        sessions.put(value, new Session(userId, now + sessionIdleNanos));
+        return value;
+    }
+
+    /**
+     * Returns the user of the request's session and extends the session, or null if
+     * the request has no session or it expired.
+     */
+    private User sessionUser(HttpExchange exchange) {
+        String token = sessionToken(exchange);
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - session.expiresAt() > 0) {
+            sessions.remove(token, session);
+            return null;
+        }
+        sessions.replace(token, session, new Session(session.userId(), now + sessionIdleNanos));
+        return users.find(session.userId());
+    }
+
+    private static String sessionToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        return header.substring("Bearer ".length()).trim();
+    }
+
+    /**
+     * Reads the query string and body parameters.
+     *
+     * @return The parameters, or null if the body is larger than {@value #MAX_BODY_BYTES} bytes.
+     */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        try (InputStream body = exchange.getRequestBody()) {
+            if (length != null && Long.parseLong(length.trim()) > MAX_BODY_BYTES) {
+                return null;
+            }
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                return null;
+            }
+            parseForm(new String(bytes, StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + quote(message == null ? "" : message) + "}");
+    }
+
+    private static String workoutJson(Workout workout) {
+        return "{\"activity\":" + quote(workout.getActivityType().getName())
+                + ",\"minutes\":" + workout.getDuration().toMinutes()
+                + ",\"date\":\"" + workout.getDate() + "\""
+                + ",\"calories\":" + workout.getCaloriesBurned() + "}";
+    }
+
+    private static String goalJson(Goal goal) {
+        return "{\"title\":" + quote(goal.getGoalTitle())
+                + ",\"target\":" + goal.getTargetValue()
+                + ",\"current\":" + goal.getCurrentValue()
+                + ",\"metric\":" + quote(goal.getMetric().getName())
+                + (goal.getActivityType() == null ? "" : ",\"activity\":" + quote(goal.getActivityType().getName()))
+                + ",\"start\":\"" + goal.getStartDate() + "\""
+                + ",\"end\":\"" + goal.getEndDate() + "\""
+                + ",\"achieved\":" + goal.isAchieved() + "}";
+    }
+
+    static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.fitnesstracker;
+
+/**
+ * Reusable batch of workout rows whose calorie estimates changed, in parallel primitive arrays.
+ * Filled by {@link WorkoutLog#recalculateCalories} one log chunk at a time.
+ */
+final class CalorieBatch {
+    private final int[] epochDays;
+    private final int[] activities;
+    private final int[] minutes;
+    private final double[] oldCalories;
+    private final double[] newCalories;
+    private int size;
+
+    CalorieBatch(int capacity) {
+        epochDays = new int[capacity];
+        activities = new int[capacity];
+        minutes = new int[capacity];
+        oldCalories = new double[capacity];
+        newCalories = new double[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void add(int epochDay, int activity, int minutesValue, double oldValue, double newValue) {
+        epochDays[size] = epochDay;
+        activities[size] = activity;
+        minutes[size] = minutesValue;
+        oldCalories[size] = oldValue;
+        newCalories[size] = newValue;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int epochDay(int index) {
+        return epochDays[index];
+    }
+
+    int activity(int index) {
+        return activities[index];
+    }
+
+    int minutes(int index) {
+        return minutes[index];
+    }
+
+    double oldCalories(int index) {
+        return oldCalories[index];
+    }
+
+    double newCalories(int index) {
+        return newCalories[index];
+    }
+}
@@ -0,0 +1,148 @@
+package com.fitnesstracker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Estimates the calories burned by a workout.
+ * <p>
+ * The model in use is {@link Workout#calorieModel()}; changing it for stored
+ * workouts is done by {@link CalorieRecalculator}. Models must be pure and
+ * thread-safe, since the recalculation pass calls them from many threads.
+ */
+@FunctionalInterface
+public interface CalorieModel {
+
+    /**
+     * Estimates the calories burned by an activity.
+     *
+     * @param activityType The activity type.
+     * @param seconds The duration in seconds.
+     * @return The estimated calories.
+     */
+    double caloriesFor(ActivityType activityType, long seconds);
+
+    /**
+     * Returns the model that uses each type's catalog rate ({@link ActivityType#getCaloriesPerMinute()}).
+     */
+    static CalorieModel catalogRates() {
+        return (activityType, seconds) -> activityType.getCaloriesPerMinute() * (seconds / 60.0);
+    }
+
+    /**
+     * Returns a model with its own calories-per-minute rate for some activity types.
+     * Other types use their catalog rate.
+     *
+     * @param caloriesPerMinute The rate of each overridden activity type.
+     */
+    static CalorieModel rates(Map<ActivityType, Double> caloriesPerMinute) {
+        return perMinute(perActivity(caloriesPerMinute, 1.0));
+    }
+
+    /**
+     * Returns a model based on metabolic equivalents: MET x body weight (kg) x hours.
+     * Activity types without a MET value use their catalog rate.
+     *
+     * @param bodyWeightKg The body weight in kilograms.
+     * @param mets The MET value of each activity type.
+     */
+    static CalorieModel met(double bodyWeightKg, Map<ActivityType, Double> mets) {
+        if (!(bodyWeightKg > 0) || Double.isInfinite(bodyWeightKg)) {
+            throw new IllegalArgumentException("Body weight must be a positive number.");
+        }
+        return perMinute(perActivity(mets, bodyWeightKg / 60.0));
+    }
+
+    /**
+     * Reads a model from a config file. Non-blank lines not starting with '#' are
+     * {@code key=value}: {@code model} is {@code rate} (the default) or {@code met},
+     * {@code bodyWeightKg} is required for {@code met}, and every other key is an
+     * activity type name whose value is its calories per minute or its MET value.
+     *
+     * @param file The config file.
+     * @return The model described by the file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a line is malformed or names an unknown activity type.
+     */
+    static CalorieModel load(Path file) throws IOException {
+        String model = "rate";
+        double bodyWeightKg = 0;
+        Map<ActivityType, Double> values = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int equals = line.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Invalid calorie setting on line " + lineNumber
+                            + " of " + file + ": expected key=value.");
+                }
+                String key = line.substring(0, equals).strip();
+                String value = line.substring(equals + 1).strip();
+                if (key.equalsIgnoreCase("model")) {
+                    model = value.toLowerCase(Locale.ROOT);
+                    continue;
+                }
+                double number;
+                try {
+                    number = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid number on line " + lineNumber + " of " + file + ".");
+                }
+                if (key.equalsIgnoreCase("bodyWeightKg")) {
+                    bodyWeightKg = number;
+                } else {
+                    if (!(number > 0) || Double.isInfinite(number)) {
+                        throw new IllegalArgumentException("Invalid value for " + key + " on line " + lineNumber
+                                + " of " + file + ": must be a positive number.");
+                    }
+                    values.put(ActivityType.fromName(key), number);
+                }
+            }
+        }
+        return switch (model) {
+            case "rate" -> rates(values);
+            case "met" -> met(bodyWeightKg, values);
+            default -> throw new IllegalArgumentException("Invalid calorie model: " + model + ". Choose from RATE, MET.");
+        };
+    }
+
+    /**
+     * Returns a model with a fixed calories-per-minute rate for each activity id that has one.
+     * Seconds are converted to minutes first, so whole minutes give exactly rate x minutes.
+     */
+    private static CalorieModel perMinute(double[] perMinute) {
+        return (activityType, seconds) -> {
+            int id = activityType.getId();
+            double rate = id < perMinute.length && perMinute[id] > 0
+                    ? perMinute[id] : activityType.getCaloriesPerMinute();
+            return rate * (seconds / 60.0);
+        };
+    }
+
+    private static double[] perActivity(Map<ActivityType, Double> values, double scale) {
+        Objects.requireNonNull(values, "Values cannot be null.");
+        double[] perMinute = new double[0];
+        for (Map.Entry<ActivityType, Double> entry : values.entrySet()) {
+            int id = entry.getKey().getId();
+            if (id >= perMinute.length) {
+                perMinute = Arrays.copyOf(perMinute, id + 1);
+            }
+            perMinute[id] = entry.getValue() * scale;
+        }
+        return perMinute;
+    }
+}
@@ -0,0 +1,118 @@
+package com.fitnesstracker;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies a new {@link CalorieModel} to every stored workout of a set of users in parallel.
+ * <p>
+ * The model is installed for new workouts first, then the users are split into
+ * ranges that a {@link ForkJoinPool} works on independently. Each worker walks a
+ * user's workout columns chunk by chunk, collecting the changed rows into one
+ * reused {@link CalorieBatch}, so no Workout objects are created and listeners
+ * see one call per chunk instead of one per workout.
+ * <p>
+ * Each user is recalculated under its own write lock together with its totals,
+ * rollups, and leaderboard entries, so a reader sees a user either entirely
+ * before or entirely after the change. Different users may be seen in either
+ * state while the pass runs.
+ */
+public class CalorieRecalculator {
+    /** Ranges with at most this many users are recalculated without splitting further. */
+    static final int SPLIT_THRESHOLD = 64;
+    /**
+     * Users are taken from the collection this many at a time, so a registry that reads
+     * users from disk on demand only has one chunk of them held by the pass.
+     */
+    static final int CHUNK_USERS = 4096;
+
+    private final ForkJoinPool pool;
+
+    public CalorieRecalculator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool The pool that runs the recalculation.
+     */
+    public CalorieRecalculator(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "Pool cannot be null.");
+    }
+
+    /**
+     * Makes a model the current one and re-estimates all workouts of a set of users with it.
+     *
+     * @param users The users to recalculate, typically {@link UserRegistry#users()}.
+     * @param model The new calorie model.
+     * @return The counts and duration of the pass.
+     */
+    public RecalculationResult recalculate(Collection<User> users, CalorieModel model) {
+        Objects.requireNonNull(users, "Users cannot be null.");
+        Objects.requireNonNull(model, "Calorie model cannot be null.");
+        long start = System.nanoTime();
+        Workout.setCalorieModel(model);
+        User[] chunk = new User[CHUNK_USERS];
+        int count = 0;
+        int total = 0;
+        long[] counts = {0, 0};
+        for (User user : users) {
+            chunk[count++] = user;
+            total++;
+            if (count == chunk.length) {
+                add(counts, pool.invoke(new RecalculateTask(chunk, 0, count, model)));
+                count = 0;
+            }
+        }
+        add(counts, pool.invoke(new RecalculateTask(chunk, 0, count, model)));
+        return new RecalculationResult(total, counts[0], counts[1], System.nanoTime() - start);
+    }
+
+    private static void add(long[] counts, long[] more) {
+        counts[0] += more[0];
+        counts[1] += more[1];
+    }
+
+    /**
+     * Splits a range of users in half until it is small enough to recalculate directly.
+     * Returns the number of workouts visited and the number changed.
+     */
+    private static final class RecalculateTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final User[] users;
+        private final int from;
+        private final int to;
+        private final CalorieModel model;
+
+        RecalculateTask(User[] users, int from, int to, CalorieModel model) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+            this.model = model;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                CalorieBatch batch = new CalorieBatch(WorkoutLog.BATCH_SIZE);
+                long workouts = 0;
+                long changed = 0;
+                for (int i = from; i < to; i++) {
+                    workouts += users[i].workoutCount();
+                    changed += users[i].recalculateCalories(model, batch);
+                }
+                return new long[] {workouts, changed};
+            }
+            int middle = (from + to) >>> 1;
+            RecalculateTask left = new RecalculateTask(users, from, middle, model);
+            left.fork();
+            long[] right = new RecalculateTask(users, middle, to, model).compute();
+            long[] result = left.join();
+            result[0] += right[0];
+            result[1] += right[1];
+            return result;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The sealed, on-disk part of a {@link WorkoutLog}: the oldest rows of the log,
+ * in the order they were logged, split into {@link WorkoutSegment}s.
+ * <p>
+ * Only the segments' footers are kept in memory. Range totals use a segment's
+ * footer when the range covers all of it and skip it when the range misses it;
+ * only segments that straddle a range boundary are inflated. The last inflated
+ * segment is cached, so reading rows in order inflates each segment once.
+ * <p>
+ * Guarded by the log owner's lock, like the log. Reads may run concurrently;
+ * the cache is an immutable pair that readers replace as a whole.
+ */
+final class ColdTier {
+    private final List<WorkoutSegment> segments = new ArrayList<>();
+    // firstRows[i] is the row number of segment i's first row; firstRows[segments.size()] is size().
+    private int[] firstRows = {0};
+    private volatile Inflated cache;
+
+    private record Inflated(WorkoutSegment segment, WorkoutSegment.Columns columns) {
+    }
+
+    int size() {
+        return firstRows[segments.size()];
+    }
+
+    boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    List<WorkoutSegment> segments() {
+        return segments;
+    }
+
+    /**
+     * Adds a segment whose rows follow the rows already sealed.
+     */
+    void append(WorkoutSegment segment) {
+        int count = segments.size();
+        segments.add(segment);
+        firstRows = Arrays.copyOf(firstRows, count + 2);
+        firstRows[count + 1] = firstRows[count] + segment.rows();
+    }
+
+    /**
+     * Returns the number of the first row in a segment.
+     */
+    int firstRow(int segmentIndex) {
+        return firstRows[segmentIndex];
+    }
+
+    int epochDay(int row) {
+        int index = segmentOf(row);
+        return columns(index).epochDays[row - firstRows[index]];
+    }
+
+    int activity(int row) {
+        int index = segmentOf(row);
+        return columns(index).activities[row - firstRows[index]];
+    }
+
+    int seconds(int row) {
+        int index = segmentOf(row);
+        return columns(index).seconds[row - firstRows[index]];
+    }
+
+    double calories(int row) {
+        int index = segmentOf(row);
+        return columns(index).calories[row - firstRows[index]];
+    }
+
+    /**
+     * Returns the bytes held by the cached inflated segment, if any.
+     * Safe to call without the lock.
+     */
+    long cachedBytes() {
+        Inflated inflated = cache;
+        return inflated == null ? 0 : (long) inflated.columns().size() * WorkoutSegment.Columns.ROW_BYTES;
+    }
+
+    /**
+     * Returns the rows of a segment. The result is shared and must not be changed.
+     */
+    WorkoutSegment.Columns columns(int segmentIndex) {
+        WorkoutSegment segment = segments.get(segmentIndex);
+        Inflated inflated = cache;
+        if (inflated == null || inflated.segment() != segment) {
+            try {
+                inflated = new Inflated(segment, segment.read());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read workout segment " + segment.file(), e);
+            }
+            cache = inflated;
+        }
+        return inflated.columns();
+    }
+
+    /**
+     * Rewrites a segment with changed rows, e.g. after a workout in it was edited.
+     */
+    void replace(int segmentIndex, WorkoutSegment.Columns columns) {
+        WorkoutSegment previous = segments.get(segmentIndex);
+        try {
+            WorkoutSegment segment = WorkoutSegment.write(previous.file(), columns);
+            segments.set(segmentIndex, segment);
+            cache = new Inflated(segment, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite workout segment " + previous.file(), e);
+        }
+    }
+
+    /**
+     * Sums minutes between two epoch days (inclusive).
+     *
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    long minutesBetween(int fromDay, int toDay, int activity) {
+        long total = 0;
+        for (int index = 0; index < segments.size(); index++) {
+            WorkoutSegment segment = segments.get(index);
+            if (segment.within(fromDay, toDay)) {
+                total += segment.minutes(activity);
+            } else if (segment.overlaps(fromDay, toDay)) {
+                WorkoutSegment.Columns rows = columns(index);
+                for (int i = 0; i < rows.size(); i++) {
+                    if (matches(rows, i, fromDay, toDay, activity)) {
+                        total += rows.seconds[i] / 60;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums calories between two epoch days (inclusive).
+     *
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    double caloriesBetween(int fromDay, int toDay, int activity) {
+        double total = 0;
+        for (int index = 0; index < segments.size(); index++) {
+            WorkoutSegment segment = segments.get(index);
+            if (segment.within(fromDay, toDay)) {
+                total += segment.calories(activity);
+            } else if (segment.overlaps(fromDay, toDay)) {
+                WorkoutSegment.Columns rows = columns(index);
+                for (int i = 0; i < rows.size(); i++) {
+                    if (matches(rows, i, fromDay, toDay, activity)) {
+                        total += rows.calories[i];
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Counts workouts between two epoch days (inclusive).
+     *
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    int countBetween(int fromDay, int toDay, int activity) {
+        int count = 0;
+        for (int index = 0; index < segments.size(); index++) {
+            WorkoutSegment segment = segments.get(index);
+            if (segment.within(fromDay, toDay)) {
+                count += segment.count(activity);
+            } else if (segment.overlaps(fromDay, toDay)) {
+                WorkoutSegment.Columns rows = columns(index);
+                for (int i = 0; i < rows.size(); i++) {
+                    if (matches(rows, i, fromDay, toDay, activity)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the rows between two epoch days (inclusive) as sorted keys, each
+     * holding the epoch day in its upper and the row in its lower 32 bits.
+     */
+    long[] rowsBetween(int fromDay, int toDay) {
+        long[] keys = new long[0];
+        int count = 0;
+        for (int index = 0; index < segments.size(); index++) {
+            if (!segments.get(index).overlaps(fromDay, toDay)) {
+                continue;
+            }
+            WorkoutSegment.Columns rows = columns(index);
+            for (int i = 0; i < rows.size(); i++) {
+                int day = rows.epochDays[i];
+                if (day >= fromDay && day <= toDay) {
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, Math.max(16, count * 2));
+                    }
+                    // Rows are never negative, so these keys sort by day, then row.
+                    keys[count++] = ((long) day << 32) | (firstRows[index] + i);
+                }
+            }
+        }
+        keys = Arrays.copyOf(keys, count);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Deletes every segment file.
+     */
+    void clear() {
+        try {
+            for (WorkoutSegment segment : segments) {
+                segment.delete();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete workout segments.", e);
+        } finally {
+            segments.clear();
+            firstRows = new int[] {0};
+            cache = null;
+        }
+    }
+
+    /**
+     * Returns the file for the next segment in a directory.
+     */
+    Path nextFile(Path directory) {
+        return directory.resolve(size() + ".seg");
+    }
+
+    private int segmentOf(int row) {
+        int index = Arrays.binarySearch(firstRows, 0, segments.size(), row);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static boolean matches(WorkoutSegment.Columns rows, int i, int fromDay, int toDay, int activity) {
+        int day = rows.epochDays[i];
+        return day >= fromDay && day <= toDay && (activity < 0 || rows.activities[i] == activity);
+    }
+}
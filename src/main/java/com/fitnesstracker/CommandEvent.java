@@ -0,0 +1,26 @@
+package com.fitnesstracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one run of a CLI command. Enabled by default.
+ */
+@Name("com.fitnesstracker.Command")
+@Label("Command")
+@Category({"Fitness Tracker", "Commands"})
+@Description("One run of a CLI command")
+final class CommandEvent extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("User ID")
+    @Description("The logged-in user after the command ran, if any")
+    String userId;
+
+    @Label("Failed")
+    boolean failed;
+}
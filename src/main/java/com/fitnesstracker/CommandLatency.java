@@ -0,0 +1,17 @@
+package com.fitnesstracker;
+
+/**
+ * Call count, error count, and latency percentiles of one command.
+ *
+ * @param command The command name.
+ * @param calls The number of times the command ran.
+ * @param errors The number of runs that reported an error.
+ * @param meanNanos The mean latency.
+ * @param p50Nanos The median latency.
+ * @param p99Nanos The 99th percentile latency.
+ * @param p999Nanos The 99.9th percentile latency.
+ * @param maxNanos The highest latency.
+ */
+public record CommandLatency(String command, long calls, long errors, double meanNanos,
+                             long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+}
@@ -0,0 +1,140 @@
+package com.fitnesstracker;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-command call counts, error counts, and latency histograms.
+ * <p>
+ * Recording looks up the command's counters in a concurrent map and updates
+ * a {@link LatencyHistogram} and two adders, so it costs tens of nanoseconds
+ * and can stay enabled. Only known command names get their own counters;
+ * anything else is counted under {@value #OTHER_COMMAND} so that mistyped
+ * commands cannot grow the map.
+ * <p>
+ * The same figures are available over JMX once {@link #registerMBean()} is called.
+ */
+public class CommandStats implements CommandStatsMXBean {
+    static final String OTHER_COMMAND = "other";
+    static final String OBJECT_NAME = "com.fitnesstracker:type=CommandStats";
+
+    private final Set<String> commands;
+    private final ConcurrentMap<String, Metrics> metricsByCommand = new ConcurrentHashMap<>();
+
+    private static final class Metrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * @param commands The command names that are counted separately.
+     */
+    public CommandStats(Set<String> commands) {
+        this.commands = Set.copyOf(commands);
+    }
+
+    /**
+     * Records one run of a command.
+     *
+     * @param command The command name.
+     * @param nanos How long the command took.
+     * @param failed Whether the command reported an error.
+     */
+    public void record(String command, long nanos, boolean failed) {
+        String key = command != null && commands.contains(command) ? command : OTHER_COMMAND;
+        Metrics metrics = metricsByCommand.get(key);
+        if (metrics == null) {
+            metrics = metricsByCommand.computeIfAbsent(key, name -> new Metrics());
+        }
+        metrics.latency.record(nanos);
+        if (failed) {
+            metrics.errors.increment();
+        }
+    }
+
+    /**
+     * Returns the figures of every command that has run, ordered by command name.
+     */
+    public List<CommandLatency> snapshot() {
+        List<CommandLatency> result = new ArrayList<>(metricsByCommand.size());
+        for (Map.Entry<String, Metrics> entry : metricsByCommand.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            result.add(new CommandLatency(entry.getKey(), latency.count(), entry.getValue().errors.sum(),
+                    latency.meanNanos(), latency.valueAtPercentile(50.0), latency.valueAtPercentile(99.0),
+                    latency.valueAtPercentile(99.9), latency.maxNanos()));
+        }
+        result.sort(Comparator.comparing(CommandLatency::command));
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (Metrics metrics : metricsByCommand.values()) {
+            metrics.latency.reset();
+            metrics.errors.reset();
+        }
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server as {@value #OBJECT_NAME}.
+     *
+     * @throws JMException if the MBean cannot be registered, e.g. because the name is taken.
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public Map<String, Long> getCalls() {
+        return collect(CommandLatency::calls);
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        return collect(CommandLatency::errors);
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        return collect(latency -> latency.meanNanos() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getP50Micros() {
+        return collect(latency -> latency.p50Nanos() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        return collect(latency -> latency.p99Nanos() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getP999Micros() {
+        return collect(latency -> latency.p999Nanos() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getMaxMicros() {
+        return collect(latency -> latency.maxNanos() / 1_000.0);
+    }
+
+    private <T> Map<String, T> collect(Function<CommandLatency, T> value) {
+        Map<String, T> values = new LinkedHashMap<>();
+        for (CommandLatency latency : snapshot()) {
+            values.put(latency.command(), value.apply(latency));
+        }
+        return values;
+    }
+}
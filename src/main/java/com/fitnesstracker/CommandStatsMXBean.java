@@ -0,0 +1,29 @@
+package com.fitnesstracker;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link CommandStats}. Every map is keyed by command name;
+ * latencies are in microseconds.
+ */
+public interface CommandStatsMXBean {
+
+    Map<String, Long> getCalls();
+
+    Map<String, Long> getErrors();
+
+    Map<String, Double> getMeanMicros();
+
+    Map<String, Double> getP50Micros();
+
+    Map<String, Double> getP99Micros();
+
+    Map<String, Double> getP999Micros();
+
+    Map<String, Double> getMaxMicros();
+
+    /**
+     * Clears all counters and histograms.
+     */
+    void reset();
+}
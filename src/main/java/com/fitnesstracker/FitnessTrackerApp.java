@@ -1,21 +1,48 @@
 package com.fitnesstracker;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.StringJoiner;
+import javax.management.JMException;
 
 /**
  * Main class for the CLI-based Fitness Tracker application.
  * Now supports multiple users with login and account creation.
  */
 public class FitnessTrackerApp {
-    private static final List<User> users = new ArrayList<>();
+    private static UserRegistry users = new UserRegistry(Clock.systemDefaultZone(), storageSetting());
     private static User currentUser;
+    private static Journal journal; // Null when running without persistence (e.g. in tests)
+    private static Path snapshotFile;
+    private static Path calorieFile; // Calorie model read at startup; null when running without persistence
+    private static TieredStorage tieredStorage; // Null unless old workouts are moved to disk
+    private static final ListingRenderer renderer = new ListingRenderer(); // Reused by view-workouts and view-goals
+    private static final int DEFAULT_LEADERBOARD_SIZE = 10;
+    private static final UserAnalytics analytics = new UserAnalytics();
+    private static final CalorieRecalculator recalculator = new CalorieRecalculator();
+    private static final CommandStats commandStats = new CommandStats(Set.of("exit", "login", "create-user",
+            "checkpoint", "analytics", "stats", "recalculate", "export", "log", "track", "import", "set-goal", "view-user",
+            "update-goal-title", "update-activity", "view-goals", "view-workouts", "report", "leaderboard"));
+    private static boolean commandFailed; // Set by printError while a command runs
 
     public static boolean testMode = false; // Flag for unit testing
+    private static boolean batchMode = false; // Set while running a script; commands carry all their arguments
 
     public static void main(String[] args) {
         if (testMode) {
@@ -23,6 +50,40 @@ public class FitnessTrackerApp {
             return;
         }
 
+        openStorage(Path.of(System.getProperty("fitnesstracker.dataDir", "fitness-data")));
+        try {
+            commandStats.registerMBean();
+            users.registerCacheMBean();
+        } catch (JMException e) {
+            System.err.println("Statistics are not available over JMX: " + e.getMessage());
+        }
+
+        if (args.length >= 2 && args[0].equals("--script")) {
+            try (BufferedReader script = args[1].equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+                runScript(script);
+            } catch (IOException e) {
+                System.err.println("Error reading script: " + e.getMessage());
+            } finally {
+                closeStorage();
+            }
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("--server")) {
+            try {
+                ApiServer server = new ApiServer(users, journal, Integer.parseInt(args[1]));
+                Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+                server.start();
+                System.out.println("Fitness Tracker API listening on port " + server.getPort() + ".");
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Error starting server: " + e.getMessage());
+                closeStorage();
+            }
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Welcome to Fitness Tracker!");
@@ -55,16 +116,228 @@ public class FitnessTrackerApp {
             };
 
             executeCommand(new String[]{command}, scanner);
+            if (command.equals("exit")) {
+                closeStorage();
+                return;
+            }
         }
     }
 
     /**
-     * Executes commands separately for normal and test mode.
+     * Runs a script of fully specified commands, one per line, without prompts or menus.
+     * Arguments are separated by whitespace; double quotes group an argument containing spaces.
+     * Blank lines and lines starting with '#' are skipped, and 'exit' ends the script.
+     * Output is buffered and flushed once at the end, and journal records are synced
+     * together at the end instead of once per command.
+     *
+     * @param script The script to run.
+     * @return The number of commands executed.
+     * @throws IOException if the script cannot be read.
+     */
+    static int runScript(BufferedReader script) throws IOException {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        PrintStream bufferedOut = new PrintStream(new BufferedOutputStream(originalOut, 1 << 16), false);
+        PrintStream bufferedErr = new PrintStream(new BufferedOutputStream(originalErr, 1 << 16), false);
+        System.setOut(bufferedOut);
+        System.setErr(bufferedErr);
+        batchMode = true;
+        if (journal != null) {
+            journal.setWaitForDurability(false);
+        }
+
+        int executed = 0;
+        int lineNumber = 0;
+        long start = System.nanoTime();
+        try {
+            String line;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] commandArgs = tokenize(trimmed);
+                try {
+                    executeCommand(commandArgs, new Scanner(""));
+                } catch (RuntimeException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error on line " + lineNumber + ": " + cause.getMessage());
+                }
+                executed++;
+                if (commandArgs[0].equals("exit")) {
+                    break;
+                }
+            }
+        } finally {
+            if (journal != null) {
+                journal.sync();
+                journal.setWaitForDurability(true);
+            }
+            batchMode = false;
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Executed " + executed + " commands in " + elapsedMillis + " ms.");
+            bufferedOut.flush();
+            bufferedErr.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        return executed;
+    }
+
+    /**
+     * Splits a command line on whitespace, keeping double-quoted text together.
+     */
+    static String[] tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        boolean hasToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                hasToken = true;
+            } else if (Character.isWhitespace(c) && !inQuotes) {
+                if (hasToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                current.append(c);
+                hasToken = true;
+            }
+        }
+        if (hasToken) {
+            tokens.add(current.toString());
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static boolean argumentMode() {
+        return testMode || batchMode;
+    }
+
+    /**
+     * Prints an input prompt unless arguments are supplied up front.
+     */
+    private static void prompt(String text) {
+        if (!argumentMode()) {
+            System.out.print(text);
+        }
+    }
+
+    /**
+     * Loads the latest snapshot, replays the journal written since, and opens it for new records.
+     */
+    private static void openStorage(Path dataDir) {
+        Path journalFile = dataDir.resolve("journal.bin");
+        snapshotFile = dataDir.resolve("snapshot.bin");
+        try {
+            // Activity types must be registered before saved workouts refer to them by name.
+            String catalogProperty = System.getProperty("fitnesstracker.activities");
+            Path catalogFile = catalogProperty != null ? Path.of(catalogProperty) : dataDir.resolve("activities.txt");
+            if (catalogProperty != null || Files.exists(catalogFile)) {
+                int loaded = ActivityType.loadCatalog(catalogFile);
+                if (loaded > 0) {
+                    System.out.println("Loaded " + loaded + " activity types.");
+                }
+            }
+            // Saved workouts get their calories from the model when loaded, so it must be set first.
+            String calorieProperty = System.getProperty("fitnesstracker.calories");
+            calorieFile = calorieProperty != null ? Path.of(calorieProperty) : dataDir.resolve("calories.txt");
+            if (calorieProperty != null || Files.exists(calorieFile)) {
+                Workout.setCalorieModel(CalorieModel.load(calorieFile));
+                System.out.println("Loaded calorie model from " + calorieFile + ".");
+            }
+            // The registry must be bounded before the snapshot fills it.
+            String cacheMb = System.getProperty("fitnesstracker.userCacheMb");
+            if (cacheMb != null) {
+                users = new UserRegistry(Clock.systemDefaultZone(), storageSetting(), dataDir.resolve("users"),
+                        Long.parseLong(cacheMb) * 1024 * 1024);
+            }
+            String hotDays = System.getProperty("fitnesstracker.hotDays");
+            if (hotDays != null) {
+                tieredStorage = new TieredStorage(dataDir.resolve("segments"), Integer.parseInt(hotDays));
+                tieredStorage.reset();
+            }
+            long epoch = Snapshot.load(snapshotFile, users);
+            if (!users.isEmpty()) {
+                System.out.println("Loaded snapshot with " + users.size() + " users.");
+            }
+            int replayed = Journal.replay(journalFile, users, epoch);
+            if (replayed > 0) {
+                System.out.println("Restored " + replayed + " saved changes.");
+            }
+            journal = Journal.open(journalFile, epoch);
+            sealOldWorkouts();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open data directory " + dataDir, e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(FitnessTrackerApp::closeStorage));
+    }
+
+    private static WorkoutStorage storageSetting() {
+        return WorkoutStorage.fromName(System.getProperty("fitnesstracker.storage", "heap"));
+    }
+
+    private static synchronized void closeStorage() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    /**
+     * Executes commands separately for normal and argument (test or batch) mode.
+     * Each run is timed and counted in {@link #commandStats()}, and emitted as a
+     * {@code com.fitnesstracker.Command} Flight Recorder event.
      */
     public static void executeCommand(String[] args, Scanner scanner) {
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        commandFailed = false;
+        try {
+            dispatch(args, scanner);
+        } catch (RuntimeException e) {
+            commandFailed = true;
+            throw e;
+        } finally {
+            String command = args.length == 0 ? null : args[0];
+            commandStats.record(command, System.nanoTime() - start, commandFailed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = command;
+                event.userId = currentUser == null ? null : currentUser.getUserId();
+                event.failed = commandFailed;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Prints an error message for the running command and counts the command as failed.
+     */
+    private static void printError(String message) {
+        commandFailed = true;
+        System.err.println(message);
+    }
+
+    public static CommandStats commandStats() {
+        return commandStats;
+    }
+
+    private static void dispatch(String[] args, Scanner scanner) {
         if (args.length == 0) {
             System.out.println("Welcome to Fitness Tracker!"); // Ensure expected output for tests
-            System.err.println("Error: No command provided.");
+            printError("Error: No command provided.");
             return;
         }
 
@@ -78,12 +351,54 @@ public class FitnessTrackerApp {
                     return;
 
                 case "login":
+                    if (batchMode) {
+                        if (args.length < 2) {
+                            printError("Error: Usage: login <userId>");
+                            return;
+                        }
+                        scanner = new Scanner(args[1] + "\n");
+                    }
                     handleLogin(scanner);
                     return;
 
                 case "create-user":
+                    if (batchMode) {
+                        if (args.length < 3) {
+                            printError("Error: Usage: create-user <name> <userId>");
+                            return;
+                        }
+                        scanner = new Scanner(args[1] + "\n" + args[2] + "\n");
+                    }
                     handleCreateUser(scanner);
                     return;
+
+                case "checkpoint":
+                    handleCheckpoint();
+                    return;
+
+                case "analytics":
+                    renderer.renderAnalytics(analytics.analyze(users.users()), System.out);
+                    return;
+
+                case "recalculate":
+                    handleRecalculate(args);
+                    return;
+
+                case "export":
+                    handleExport(argumentMode() ? args : promptExport(scanner));
+                    return;
+
+                case "stats":
+                    renderer.renderCommandStats(commandStats.snapshot(), System.out);
+                    UserCacheStats cacheStats = users.cacheStats();
+                    if (cacheStats != null) {
+                        renderer.renderCacheStats(cacheStats, System.out);
+                    }
+                    if (args.length > 1 && args[1].equals("--reset")) {
+                        commandStats.reset();
+                        System.out.println("Command statistics reset.");
+                    }
+                    return;
             }
             // Prevent execution if no user is logged in
             if (currentUser == null) {
@@ -97,23 +412,23 @@ public class FitnessTrackerApp {
                     String activityTypeInput, dateInput;
                     int durationMinutes;
 
-                    if (testMode) {
+                    if (argumentMode()) {
                         if (args.length < 4) {
-                            System.err.println("Error: Usage: log <activityType> <durationMinutes> <date>");
+                            printError("Error: Usage: log <activityType> <durationMinutes> <date>");
                             return;
                         }
                         activityTypeInput = args[1];
                         durationMinutes = Integer.parseInt(args[2]);
                         dateInput = args[3];
                     } else {
-                        System.out.print("Enter activity type (Running, Weightlifting, Cycling): ");
+                        System.out.print("Enter activity type (" + activityTypeNames() + "): ");
                         activityTypeInput = scanner.nextLine().trim().toLowerCase();
 
                         System.out.print("Enter duration in minutes: ");
                         try {
                             durationMinutes = Integer.parseInt(scanner.nextLine().trim());
                         } catch (NumberFormatException e) {
-                            System.err.println("Invalid duration. Please enter a valid number.");
+                            printError("Invalid duration. Please enter a valid number.");
                             return;
                         }
 
@@ -133,32 +448,52 @@ public class FitnessTrackerApp {
 
                 // Step-by-step input for tracking progress
                 case "track" -> {
-                    if (testMode && args.length < 2) {
-                        System.err.println("Error: Usage: track <activityType>");
+                    if (argumentMode() && args.length < 2) {
+                        printError("Error: Usage: track <activityType>");
                         return;
                     }
 
-                    String activityTypeInput = testMode ? args[1] : scanner.nextLine().trim().toLowerCase();
+                    String activityTypeInput = argumentMode() ? args[1] : scanner.nextLine().trim().toLowerCase();
                     ActivityType activityType = ActivityType.fromName(activityTypeInput);
 
                     String[] newArgs = {"track", activityType.getName()};
                     handleTrackProgress(newArgs);
                 }
 
+                // Bulk import of workouts from a file
+                case "import" -> {
+                    String fileInput;
+                    if (argumentMode()) {
+                        if (args.length < 2) {
+                            printError("Error: Usage: import <file>");
+                            return;
+                        }
+                        fileInput = args[1];
+                    } else {
+                        System.out.print("Enter path of CSV or JSON-lines file: ");
+                        fileInput = scanner.nextLine().trim();
+                    }
+
+                    handleImport(new String[]{"import", fileInput});
+                }
+
                 // Step-by-step input for setting a fitness goal
                 case "set-goal" -> {
                     String goalTitle, dateInputStart, dateInputEnd;
+                    String metricInput = "", activityInput = "";
                     double targetValue;
 
-                    if (testMode) {
+                    if (argumentMode()) {
                         if (args.length < 5) {
-                            System.err.println("Error: Usage: set-goal <goalTitle> <targetValue> <startDate> <endDate>");
+                            printError("Error: Usage: set-goal <goalTitle> <targetValue> <startDate> <endDate> [metric] [activity]");
                             return;
                         }
                         goalTitle = args[1];
                         targetValue = Double.parseDouble(args[2]);
                         dateInputStart = args[3];
                         dateInputEnd = args[4];
+                        metricInput = args.length > 5 ? args[5] : "";
+                        activityInput = args.length > 6 ? args[6] : "";
                     } else {
                         System.out.print("Enter goal title: ");
                         goalTitle = scanner.nextLine().trim();
@@ -167,7 +502,7 @@ public class FitnessTrackerApp {
                         try {
                             targetValue = Double.parseDouble(scanner.nextLine().trim());
                         } catch (NumberFormatException e) {
-                            System.err.println("Invalid target value. Please enter a valid number.");
+                            printError("Invalid target value. Please enter a valid number.");
                             return;
                         }
 
@@ -175,6 +510,13 @@ public class FitnessTrackerApp {
                         dateInputStart = scanner.nextLine().trim();
                         System.out.print("Enter end date (YYYY-MM-DD): ");
                         dateInputEnd = scanner.nextLine().trim();
+
+                        System.out.print("Track automatically by (Minutes, Calories, Sessions) or leave blank to update manually: ");
+                        metricInput = scanner.nextLine().trim();
+                        if (!metricInput.isEmpty()) {
+                            System.out.print("Count only one activity type (" + activityTypeNames() + ") or leave blank for all: ");
+                            activityInput = scanner.nextLine().trim();
+                        }
                     }
 
                     LocalDate startDate, endDate;
@@ -182,16 +524,17 @@ public class FitnessTrackerApp {
                         startDate = LocalDate.parse(dateInputStart);
                         endDate = LocalDate.parse(dateInputEnd);
                     } catch (DateTimeParseException e) {
-                        System.err.println("Invalid date format. Please enter YYYY-MM-DD.");
+                        printError("Invalid date format. Please enter YYYY-MM-DD.");
                         return;
                     }
 
                     if (startDate.isAfter(endDate)) {
-                        System.err.println("Error: Start date cannot be after end date.");
+                        printError("Error: Start date cannot be after end date.");
                         return;
                     }
 
-                    String[] newArgs = {"set-goal", goalTitle, String.valueOf(targetValue), startDate.toString(), endDate.toString()};
+                    String[] newArgs = {"set-goal", goalTitle, String.valueOf(targetValue), startDate.toString(), endDate.toString(),
+                            metricInput, activityInput};
                     handleSetGoal(newArgs);
                 }
             }
@@ -200,6 +543,8 @@ public class FitnessTrackerApp {
             // Execute remaining commands
             try {
                 switch (command) {
+                    case "log", "track", "set-goal", "import":
+                        break;
                     case "view-user":
                         handleViewUserInfo();
                         break;
@@ -210,19 +555,25 @@ public class FitnessTrackerApp {
                         handleUpdateActivityType(args);
                         break;
                     case "view-goals":
-                        handleViewActiveGoals();
+                        handleViewActiveGoals(args);
                         break;
                     case "view-workouts":
-                        handleViewWorkouts();
+                        handleViewWorkouts(args);
+                        break;
+                    case "report":
+                        handleReport(args);
+                        break;
+                    case "leaderboard":
+                        handleLeaderboard(args);
                         break;
                     default:
                         System.out.println("Unknown command: " + command);
                         System.out.println("Please use a valid command.");
                 }
             } catch (IllegalArgumentException | DateTimeParseException e) {
-                System.err.println("Error: " + e.getMessage());
+                printError("Error: " + e.getMessage());
             } catch (Exception e) {
-                System.err.println("Unexpected error: " + e.getMessage());
+                printError("Unexpected error: " + e.getMessage());
             }} catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -239,13 +590,21 @@ public class FitnessTrackerApp {
         System.out.println("2. create-user - Create a new user profile.");
         System.out.println("3. log - Record a completed workout (activity type, duration, and date).");
         System.out.println("4. track - View total progress for a specific activity (time spent & calories burned).");
-        System.out.println("5. set-goal - Set a fitness goal with a target value and a time period.");
+        System.out.println("5. set-goal - Set a fitness goal with a target value and a time period, optionally tracked by minutes, calories, or sessions.");
         System.out.println("6. update-goal-title - Change the name of an existing fitness goal.");
         System.out.println("7. update-activity - Update the activity type for a past workout.");
-        System.out.println("8. view-goals - Show all fitness goals set by the user.");
-        System.out.println("9. view-workouts - List all workouts recorded.");
+        System.out.println("8. view-goals - Show all fitness goals set by the user (view-goals [--page <n>] [--limit <n>] [--newest]).");
+        System.out.println("9. view-workouts - List all workouts recorded, or those between two dates (view-workouts [<from> <to>] [--page <n>] [--limit <n>] [--newest]).");
         System.out.println("10. view-user - Show user profile details (name and ID).");
         System.out.println("11. exit - Quit the program.");
+        System.out.println("import - Bulk-load workouts from a CSV (activity,minutes,date) or JSON-lines file.");
+        System.out.println("report - Show daily, weekly, or monthly totals per activity (report <day|week|month> <from> <to> [activity]).");
+        System.out.println("leaderboard - Rank all users by calories burned this week or all time (leaderboard <week|all> [activity] [--limit <n>] [--page <n>]).");
+        System.out.println("analytics - Show totals per activity and how they are spread over all users.");
+        System.out.println("stats - Show call counts, errors, and latency percentiles per command (stats [--reset]).");
+        System.out.println("recalculate - Re-estimate the calories of all saved workouts with the calorie model file (recalculate [file]).");
+        System.out.println("export - Write your workouts and goals, or everyone's, to a file (export <csv|jsonl|binary> <file> [--all]).");
+        System.out.println("checkpoint - Save a snapshot of all data so startup does not replay old changes.");
         System.out.println("===========================");
     }
 
@@ -271,41 +630,134 @@ public class FitnessTrackerApp {
             return;
         }
 
-        System.out.print("Enter your user ID: ");
+        prompt("Enter your user ID: ");
         String userId = scanner.nextLine().trim();
 
-        for (User user : users) {
-            if (user.getUserId().equals(userId)) {
-                currentUser = user;
-                System.out.println("Login successful. Welcome, " + currentUser.getName() + "!");
-                return;
-            }
+        User user = users.find(userId);
+        if (user == null) {
+            System.out.println("User ID not found. Please try again or create a new user.");
+            return;
         }
-        System.out.println("User ID not found. Please try again or create a new user.");
+        currentUser = user;
+        System.out.println("Login successful. Welcome, " + currentUser.getName() + "!");
     }
 
     private static void handleCreateUser(Scanner scanner) {
-        System.out.print("Enter your name: ");
+        prompt("Enter your name: ");
         String name = scanner.nextLine().trim();
 
-        System.out.print("Enter a unique user ID: ");
+        prompt("Enter a unique user ID: ");
         String userId = scanner.nextLine().trim();
 
-        for (User user : users) {
-            if (user.getUserId().equals(userId)) {
-                System.out.println("User ID already exists. Try a different one.");
-                return;
-            }
+        if (users.find(userId) != null) {
+            System.out.println("User ID already exists. Try a different one.");
+            return;
+        }
+        // Journaled before the user becomes visible; replaying a create for a taken ID is a no-op.
+        if (journal != null) {
+            journal.recordCreateUser(name, userId);
+        }
+        User newUser = users.create(name, userId);
+        if (newUser == null) {
+            System.out.println("User ID already exists. Try a different one.");
+            return;
         }
-
-        User newUser = new User(name, userId);
-        users.add(newUser);
         currentUser = newUser;
         System.out.println("User created successfully! Logged in as " + name + ".");
     }
 
 
 
+    /**
+     * Writes a snapshot of all users and empties the journal, whose changes the snapshot now holds.
+     */
+    private static void handleCheckpoint() {
+        if (journal == null) {
+            System.out.println("Persistence is not enabled.");
+            return;
+        }
+
+        try {
+            long epoch = journal.epoch() + 1;
+            Snapshot.write(snapshotFile, users.users(), epoch);
+            journal.restart(epoch);
+            System.out.println("Checkpoint saved: " + users.size() + " users.");
+            sealOldWorkouts();
+        } catch (IOException e) {
+            printError("Error writing checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Moves workouts older than the hot window to disk, if tiered storage is enabled.
+     */
+    private static void sealOldWorkouts() throws IOException {
+        if (tieredStorage == null) {
+            return;
+        }
+        // Users that are not in memory have no workouts in memory to move.
+        long sealed = tieredStorage.seal(users.residentUsers(), LocalDate.now());
+        if (sealed > 0) {
+            System.out.println("Moved " + sealed + " older workouts to disk.");
+        }
+    }
+
+    /**
+     * Reads a calorie model and applies it to every user's workouts. Without a file,
+     * the model file read at startup is read again, or the catalog rates are used if there is none.
+     * A model read from another file replaces the startup model file first, since saved
+     * workouts are re-estimated with that file when they are loaded on the next start.
+     */
+    private static void handleRecalculate(String[] args) {
+        Path file = args.length > 1 ? Path.of(args[1]) : calorieFile;
+        CalorieModel model;
+        try {
+            model = file != null && (args.length > 1 || Files.exists(file))
+                    ? CalorieModel.load(file) : CalorieModel.catalogRates();
+        } catch (IOException e) {
+            printError("Error reading calorie model: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            printError("Error: " + e.getMessage());
+            return;
+        }
+        if (args.length > 1 && calorieFile != null) {
+            try {
+                saveCalorieFile(file);
+            } catch (IOException e) {
+                printError("Error saving calorie model: " + e.getMessage());
+                return;
+            }
+        }
+        RecalculationResult result = recalculator.recalculate(users.users(), model);
+        System.out.println("Recalculated " + result.workouts() + " workouts of " + result.users() + " users: "
+                + result.changed() + " changed, in " + result.elapsedNanos() / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Copies a calorie model file over the startup model file, replacing it in one step.
+     */
+    private static void saveCalorieFile(Path file) throws IOException {
+        if (file.toAbsolutePath().normalize().equals(calorieFile.toAbsolutePath().normalize())) {
+            return;
+        }
+        Path temp = calorieFile.resolveSibling(calorieFile.getFileName() + ".tmp");
+        Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp, calorieFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Saved the calorie model to " + calorieFile + ".");
+    }
+
+    /**
+     * Returns the names of all activity types in the catalog, for prompts.
+     */
+    private static String activityTypeNames() {
+        StringJoiner names = new StringJoiner(", ");
+        for (ActivityType activityType : ActivityType.values()) {
+            names.add(activityType.getName());
+        }
+        return names.toString();
+    }
+
     private static void handleViewUserInfo() {
         System.out.println("User Name: " + currentUser.getName());
         System.out.println("User ID: " + currentUser.getUserId());
@@ -313,7 +765,7 @@ public class FitnessTrackerApp {
 
     private static void handleLogWorkout(String[] args) {
         if (args.length < 3) {
-            System.err.println("Error: Usage: log <activityType> <durationMinutes>");
+            printError("Error: Usage: log <activityType> <durationMinutes>");
             return;
         }
 
@@ -323,16 +775,94 @@ public class FitnessTrackerApp {
             LocalDate workoutDate = (args.length > 3) ? LocalDate.parse(args[3]) : LocalDate.now();
 
             Workout workout = new Workout(activityType, Duration.ofMinutes(durationMinutes), workoutDate);
-            currentUser.addWorkout(workout);
+            User user = currentUser;
+            user.write(() -> {
+                if (journal != null) {
+                    journal.recordLogWorkout(user.getUserId(), workout);
+                }
+                user.addWorkout(workout);
+                return null;
+            });
             System.out.println("Workout logged successfully: " + workout);
         } catch (Exception e) {
-            System.err.println("Error logging workout: " + e.getMessage());
+            printError("Error logging workout: " + e.getMessage());
+        }
+    }
+
+    private static void handleImport(String[] args) {
+        if (args.length < 2) {
+            printError("Error: Usage: import <file>");
+            return;
+        }
+
+        try {
+            WorkoutImporter.Result result = new WorkoutImporter(currentUser, journal).importFile(Path.of(args[1]));
+            System.out.printf("Imported %d workouts in %d ms (%d workouts/s).%n",
+                    result.imported(), result.elapsedNanos() / 1_000_000, result.workoutsPerSecond());
+            if (result.rejected() > 0) {
+                System.out.println("Rejected " + result.rejected() + " lines:");
+                result.rejectionSamples().forEach(sample -> System.out.println("  " + sample));
+            }
+        } catch (IOException e) {
+            printError("Error importing workouts: " + e.getMessage());
+        }
+    }
+
+    private static String[] promptExport(Scanner scanner) {
+        System.out.print("Enter export format (csv, jsonl, binary): ");
+        String format = scanner.nextLine().trim();
+        System.out.print("Enter path of export file: ");
+        String file = scanner.nextLine().trim();
+        System.out.print("Export all users? (y/n): ");
+        boolean all = scanner.nextLine().trim().equalsIgnoreCase("y");
+        return all ? new String[]{"export", format, file, "--all"} : new String[]{"export", format, file};
+    }
+
+    /**
+     * Streams the logged-in user, or with --all every user, to a file. A binary export of
+     * all users is a copy of the snapshot when nothing has changed since the last checkpoint.
+     */
+    private static void handleExport(String[] args) {
+        if (args.length < 3) {
+            printError("Error: Usage: export <csv|jsonl|binary> <file> [--all]");
+            return;
+        }
+        boolean all = args.length > 3 && args[3].equals("--all");
+        if (!all && currentUser == null) {
+            System.out.println("Please log in or create a user before using the tracker.");
+            return;
+        }
+
+        try {
+            WorkoutExporter.Format format = WorkoutExporter.Format.fromName(args[1]);
+            WorkoutExporter exporter = new WorkoutExporter(format);
+            Path file = Path.of(args[2]);
+            if (snapshotFile != null && file.toAbsolutePath().normalize().equals(snapshotFile.toAbsolutePath().normalize())) {
+                printError("Error: Cannot export over the snapshot file.");
+                return;
+            }
+            WorkoutExporter.Result result = all
+                    ? exporter.exportAll(users.users(), file, snapshotFile, journal)
+                    : exporter.exportUser(currentUser, file);
+            if (result.snapshotCopied()) {
+                System.out.println("Copied the snapshot of " + result.users() + " users to " + file
+                        + " (" + result.bytes() + " bytes).");
+            } else if (format == WorkoutExporter.Format.BINARY) {
+                System.out.println("Exported " + result.users() + " users to " + file + " (" + result.bytes() + " bytes).");
+            } else {
+                System.out.println("Exported " + result.users() + " users, " + result.workouts() + " workouts and "
+                        + result.goals() + " goals to " + file + " (" + result.bytes() + " bytes).");
+            }
+        } catch (IllegalArgumentException e) {
+            printError("Error: " + e.getMessage());
+        } catch (IOException e) {
+            printError("Error exporting: " + e.getMessage());
         }
     }
 
     private static void handleTrackProgress(String[] args) {
         if (args.length < 2) {
-            System.err.println("Error: Usage: track <activityType>");
+            printError("Error: Usage: track <activityType>");
             return;
         }
 
@@ -345,13 +875,13 @@ public class FitnessTrackerApp {
             System.out.printf("  Total Duration: %d minutes%n", totalMinutes);
             System.out.printf("  Total Calories Burned: %.2f%n", totalCalories);
         } catch (Exception e) {
-            System.err.println("Error tracking progress: " + e.getMessage());
+            printError("Error tracking progress: " + e.getMessage());
         }
     }
 
     private static void handleSetGoal(String[] args) {
         if (args.length < 5) {
-            System.err.println("Error: Usage: set-goal <goalTitle> <targetValue> <startDate (YYYY-MM-DD)> <endDate (YYYY-MM-DD)>");
+            printError("Error: Usage: set-goal <goalTitle> <targetValue> <startDate (YYYY-MM-DD)> <endDate (YYYY-MM-DD)> [metric] [activity]");
             return;
         }
 
@@ -365,17 +895,26 @@ public class FitnessTrackerApp {
                 throw new IllegalArgumentException("Start date cannot be after end date.");
             }
 
-            Goal goal = new Goal(goalTitle, targetValue, startDate, endDate);
-            currentUser.addGoal(goal);
+            GoalMetric metric = args.length > 5 && !args[5].isBlank() ? GoalMetric.fromName(args[5]) : GoalMetric.MANUAL;
+            ActivityType activityType = args.length > 6 && !args[6].isBlank() ? ActivityType.fromName(args[6]) : null;
+            Goal goal = new Goal(goalTitle, targetValue, startDate, endDate, metric, activityType);
+            User user = currentUser;
+            user.write(() -> {
+                if (journal != null) {
+                    journal.recordSetGoal(user.getUserId(), goal);
+                }
+                user.addGoal(goal);
+                return null;
+            });
             System.out.println("Goal set successfully: " + goal);
         } catch (Exception e) {
-            System.err.println("Error setting goal: " + e.getMessage());
+            printError("Error setting goal: " + e.getMessage());
         }
     }
 
     private static void handleUpdateGoalTitle(String[] args) {
         if (args.length < 3) {
-            System.err.println("Error: Usage: update-goal-title <goalIndex> <newGoalTitle>");
+            printError("Error: Usage: update-goal-title <goalIndex> <newGoalTitle>");
             return;
         }
 
@@ -383,40 +922,36 @@ public class FitnessTrackerApp {
             int index = Integer.parseInt(args[1]);
             String newGoalTitle = args[2];
 
-            List<Goal> goals = currentUser.getGoals();
-            if (index < 0 || index >= goals.size()) {
-                System.err.println("Invalid goal index.");
+            User user = currentUser;
+            boolean updated = user.write(() -> {
+                List<Goal> goals = user.getGoals();
+                if (index < 0 || index >= goals.size()) {
+                    return false;
+                }
+                if (journal != null) {
+                    journal.recordUpdateGoalTitle(user.getUserId(), index, newGoalTitle);
+                }
+                goals.get(index).setGoalTitle(newGoalTitle);
+                return true;
+            });
+            if (!updated) {
+                printError("Invalid goal index.");
                 return;
             }
-
-            goals.get(index).setGoalTitle(newGoalTitle);
             System.out.println("Updated goal title successfully.");
         } catch (Exception e) {
-            System.err.println("Error updating goal title: " + e.getMessage());
+            printError("Error updating goal title: " + e.getMessage());
         }
     }
 
-    private static void handleViewActiveGoals() {
-        List<Goal> activeGoals = currentUser.getActiveGoals();
-        if (activeGoals.isEmpty()) {
-            System.out.println("No active goals.");
-            return;
-        }
-
-        System.out.println("Your Active Goals:");
-        for (Goal goal : activeGoals) {
-            System.out.println("Title: " + goal.getGoalTitle());
-            System.out.println("Target: " + goal.getTargetValue());
-            System.out.println("Start: " + goal.getStartDate());
-            System.out.println("End: " + goal.getEndDate());
-            System.out.println("Achieved: " + goal.isAchieved());
-            System.out.println("----------------------------");
-        }
+    private static void handleViewActiveGoals(String[] args) {
+        ListingRenderer.PageRequest page = ListingRenderer.PageRequest.parse(args, new ArrayList<>());
+        renderer.renderGoals(currentUser.getActiveGoals(), page, System.out);
     }
 
     private static void handleUpdateActivityType(String[] args) {
         if (args.length < 3) {
-            System.err.println("Usage: update-activity <workoutIndex> <newActivityType>");
+            printError("Usage: update-activity <workoutIndex> <newActivityType>");
             return;
         }
 
@@ -424,27 +959,81 @@ public class FitnessTrackerApp {
             int index = Integer.parseInt(args[1]);
             ActivityType newActivityType = ActivityType.fromName(args[2]);
 
-            List<Workout> workouts = currentUser.getWorkouts();
-            if (index < 0 || index >= workouts.size()) {
-                System.err.println("Invalid workout index.");
+            User user = currentUser;
+            boolean updated = user.write(() -> {
+                List<Workout> workouts = user.getWorkouts();
+                if (index < 0 || index >= workouts.size()) {
+                    return false;
+                }
+                if (journal != null) {
+                    journal.recordUpdateActivity(user.getUserId(), index, newActivityType);
+                }
+                workouts.get(index).setActivityType(newActivityType);
+                return true;
+            });
+            if (!updated) {
+                printError("Invalid workout index.");
                 return;
             }
-
-            workouts.get(index).setActivityType(newActivityType);
             System.out.println("Updated workout activity type successfully.");
         } catch (Exception e) {
-            System.err.println("Error updating workout activity type: " + e.getMessage());
+            printError("Error updating workout activity type: " + e.getMessage());
+        }
+    }
+
+    private static void handleViewWorkouts(String[] args) {
+        List<String> positional = new ArrayList<>();
+        ListingRenderer.PageRequest page = ListingRenderer.PageRequest.parse(args, positional);
+        if (positional.size() == 2) {
+            printError("Error: Usage: view-workouts [<fromDate (YYYY-MM-DD)> <toDate (YYYY-MM-DD)>] [--page <n>] [--limit <n>] [--newest]");
+            return;
         }
+
+        LocalDate from = positional.size() >= 3 ? LocalDate.parse(positional.get(1)) : null;
+        LocalDate to = positional.size() >= 3 ? LocalDate.parse(positional.get(2)) : null;
+        renderer.renderWorkouts(currentUser, from, to, page, System.out);
+    }
+
+    private static void handleReport(String[] args) {
+        if (args.length < 4) {
+            printError("Error: Usage: report <day|week|month> <fromDate (YYYY-MM-DD)> <toDate (YYYY-MM-DD)> [activityType]");
+            return;
+        }
+
+        Granularity granularity = Granularity.fromName(args[1]);
+        LocalDate from = LocalDate.parse(args[2]);
+        LocalDate to = LocalDate.parse(args[3]);
+        List<RollupRow> rows = args.length > 4
+                ? currentUser.getReport(granularity, ActivityType.fromName(args[4]), from, to)
+                : currentUser.getReport(granularity, from, to);
+        renderer.renderReport(rows, granularity, from, to, System.out);
     }
 
-    private static void handleViewWorkouts() {
-        List<Workout> workouts = currentUser.getWorkouts();
-        if (workouts.isEmpty()) {
-            System.out.println("No workouts logged yet.");
+    private static void handleLeaderboard(String[] args) {
+        List<String> positional = new ArrayList<>();
+        ListingRenderer.PageRequest page = ListingRenderer.PageRequest.parse(args, positional);
+        if (positional.size() < 2) {
+            printError("Error: Usage: leaderboard <week|all> [activityType] [--limit <n>] [--page <n>]");
             return;
         }
 
-        System.out.println("Your Logged Workouts:");
-        workouts.forEach(System.out::println);
+        Leaderboards leaderboards = users.leaderboards();
+        LocalDate weekOf = switch (positional.get(1).toLowerCase()) {
+            case "week" -> leaderboards.currentWeek();
+            case "all" -> null;
+            default -> throw new IllegalArgumentException("Invalid leaderboard period: " + positional.get(1) +
+                    ". Choose from WEEK, ALL.");
+        };
+        ActivityType activityType = positional.size() > 2 ? ActivityType.fromName(positional.get(2)) : null;
+        int limit = page.paged() ? page.limit() : DEFAULT_LEADERBOARD_SIZE;
+        int first = (page.page() - 1) * limit;
+
+        // Only the ranks up to the end of the requested page are walked.
+        List<LeaderboardEntry> top = leaderboards.top(weekOf, activityType, first + limit);
+        List<LeaderboardEntry> entries = top.subList(Math.min(first, top.size()), top.size());
+        String title = (weekOf == null ? "all time" : "the week of " + weekOf) + ", "
+                + (activityType == null ? "all activities" : activityType.getName());
+        renderer.renderLeaderboard(title, entries, leaderboards.rankOf(currentUser, weekOf, activityType),
+                leaderboards.size(weekOf, activityType), System.out);
     }
 }
@@ -6,15 +6,56 @@ import java.util.Objects;
 /**
  * Represents a fitness goal set by a user.
  * Tracks the goal title, target value, current progress, and achievement status.
+ * A goal with a {@link GoalMetric} other than MANUAL measures minutes, calories,
+ * or sessions (optionally of one activity type) and advances automatically as
+ * workouts within its date range are logged.
+ * Fields are volatile and progress updates are atomic, so a goal can be read
+ * and updated from several threads.
  */
 public class Goal {
-    private String goalTitle;
-    private double targetValue;
-    private double currentValue;
-    private LocalDate startDate;
-    private LocalDate endDate;
+    private volatile String goalTitle;
+    private volatile double targetValue;
+    private volatile double currentValue;
+    private volatile LocalDate startDate;
+    private volatile LocalDate endDate;
+    private final GoalMetric metric;
+    private final ActivityType activityType; // Null when every activity counts
+
+    // Notified when the goal changes, so the owning user can re-index the goal and note the change.
+    private volatile ChangeListener changeListener;
+
+    /**
+     * Receives changes of a goal that belongs to a user.
+     */
+    interface ChangeListener {
+        /**
+         * Called after the title, target, or progress changed.
+         */
+        void goalChanged(Goal goal);
+
+        /**
+         * Called after the date range changed.
+         */
+        void goalDatesChanged(Goal goal, LocalDate previousEndDate);
+    }
 
+    /**
+     * Creates a goal whose progress is only updated manually.
+     */
     public Goal(String goalTitle, double targetValue, LocalDate startDate, LocalDate endDate) {
+        this(goalTitle, targetValue, startDate, endDate, GoalMetric.MANUAL, null);
+    }
+
+    /**
+     * Creates a goal that measures workouts within its date range.
+     *
+     * @param metric What the goal measures.
+     * @param activityType The activity that counts towards the goal, or null for all activities.
+     */
+    public Goal(String goalTitle, double targetValue, LocalDate startDate, LocalDate endDate,
+                GoalMetric metric, ActivityType activityType) {
+        this.metric = Objects.requireNonNull(metric, "Goal metric cannot be null.");
+        this.activityType = activityType;
         this.goalTitle = Objects.requireNonNull(goalTitle, "Goal title cannot be null.");
         setTargetValue(targetValue);
         this.currentValue = 0.0; // Goals start with 0 progress
@@ -32,6 +73,7 @@ public class Goal {
 
     public void setGoalTitle(String goalTitle) {
         this.goalTitle = Objects.requireNonNull(goalTitle, "Goal title cannot be null.");
+        notifyChanged();
     }
 
     public double getTargetValue() {
@@ -43,6 +85,7 @@ public class Goal {
             throw new IllegalArgumentException("Target value must be positive.");
         }
         this.targetValue = targetValue;
+        notifyChanged();
     }
 
     public LocalDate getStartDate() {
@@ -51,6 +94,7 @@ public class Goal {
 
     public void setStartDate(LocalDate startDate) {
         this.startDate = Objects.requireNonNull(startDate, "Start date cannot be null.");
+        notifyDatesChanged(endDate);
     }
 
     public LocalDate getEndDate() {
@@ -58,7 +102,55 @@ public class Goal {
     }
 
     public void setEndDate(LocalDate endDate) {
+        LocalDate previousEndDate = this.endDate;
         this.endDate = Objects.requireNonNull(endDate, "End date cannot be null.");
+        notifyDatesChanged(previousEndDate);
+    }
+
+    public GoalMetric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Returns the activity that counts towards this goal, or null if every activity counts.
+     */
+    public ActivityType getActivityType() {
+        return activityType;
+    }
+
+    /**
+     * Returns whether this goal advances automatically from logged workouts.
+     */
+    public boolean isTracked() {
+        return metric != GoalMetric.MANUAL;
+    }
+
+    /**
+     * Returns how much a workout contributes to this goal, ignoring dates.
+     */
+    double contribution(int activity, int minutes, double calories) {
+        if (activityType != null && activityType.getId() != activity) {
+            return 0.0;
+        }
+        return metric.contribution(minutes, calories);
+    }
+
+    void setChangeListener(ChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+    private void notifyChanged() {
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.goalChanged(this);
+        }
+    }
+
+    private void notifyDatesChanged(LocalDate previousEndDate) {
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.goalDatesChanged(this, previousEndDate);
+        }
     }
 
     public double getCurrentValue() {
@@ -66,7 +158,17 @@ public class Goal {
     }
 
     public void updateProgress(double value) {
-        this.currentValue += value;
+        synchronized (this) {
+            this.currentValue += value;
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Replaces the progress with a recomputed value.
+     */
+    synchronized void resetProgress(double value) {
+        this.currentValue = value;
     }
 
     public boolean isAchieved() {
@@ -75,7 +177,12 @@ public class Goal {
 
     @Override
     public String toString() {
-        return String.format("Goal Title: %s, Target: %.2f, Current: %.2f, Achieved: %b, Period: %s to %s",
+        String description = String.format("Goal Title: %s, Target: %.2f, Current: %.2f, Achieved: %b, Period: %s to %s",
                 goalTitle, targetValue, currentValue, isAchieved(), startDate, endDate);
+        if (!isTracked()) {
+            return description;
+        }
+        return description + ", Metric: " + metric.getName()
+                + (activityType == null ? "" : " (" + activityType.getName() + ")");
     }
 }
\ No newline at end of file
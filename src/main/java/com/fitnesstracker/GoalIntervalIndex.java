@@ -0,0 +1,115 @@
+package com.fitnesstracker;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * Interval tree over the date ranges of a user's tracked goals.
+ * <p>
+ * Goals are kept in an array sorted by start day, read as an implicit
+ * balanced binary search tree (the middle element of a range is its root).
+ * Every node also stores the latest end day in its subtree, so a stabbing
+ * query skips any subtree that ends before the day and visits only
+ * O(log g) nodes plus the goals that contain the day.
+ * Goals change rarely compared to workouts, so the tree is rebuilt on each change.
+ * <p>
+ * As a {@link WorkoutListener} it applies each workout change to exactly
+ * the goals whose range contains the workout's date.
+ */
+final class GoalIntervalIndex implements WorkoutListener {
+    private static final Comparator<Goal> BY_START = Comparator.comparing(Goal::getStartDate);
+
+    private Goal[] goals = new Goal[0];
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int[] maxEnds = new int[0];
+
+    int size() {
+        return goals.length;
+    }
+
+    void add(Goal goal) {
+        Goal[] updated = Arrays.copyOf(goals, goals.length + 1);
+        updated[goals.length] = goal;
+        rebuild(updated);
+    }
+
+    void clear() {
+        rebuild(new Goal[0]);
+    }
+
+    /**
+     * Rebuilds the tree, e.g. after a goal's date range changed.
+     */
+    void rebuild() {
+        rebuild(goals);
+    }
+
+    private void rebuild(Goal[] updated) {
+        Goal[] sorted = updated.clone();
+        Arrays.sort(sorted, BY_START);
+        int[] newStarts = new int[sorted.length];
+        int[] newEnds = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            newStarts[i] = (int) sorted[i].getStartDate().toEpochDay();
+            newEnds[i] = (int) sorted[i].getEndDate().toEpochDay();
+        }
+        int[] newMaxEnds = new int[sorted.length];
+        computeMaxEnds(newEnds, newMaxEnds, 0, sorted.length - 1);
+        goals = sorted;
+        starts = newStarts;
+        ends = newEnds;
+        maxEnds = newMaxEnds;
+    }
+
+    private static int computeMaxEnds(int[] ends, int[] maxEnds, int low, int high) {
+        if (low > high) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (low + high) >>> 1;
+        int max = Math.max(ends[mid], Math.max(
+                computeMaxEnds(ends, maxEnds, low, mid - 1),
+                computeMaxEnds(ends, maxEnds, mid + 1, high)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    /**
+     * Visits every goal whose date range contains the given day.
+     */
+    void forEachContaining(int epochDay, Consumer<Goal> action) {
+        stab(epochDay, 0, goals.length - 1, action);
+    }
+
+    private void stab(int epochDay, int low, int high, Consumer<Goal> action) {
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (maxEnds[mid] < epochDay) {
+                return; // Every goal in this subtree ends before the day.
+            }
+            stab(epochDay, low, mid - 1, action);
+            if (starts[mid] > epochDay) {
+                return; // This goal and every goal to its right start after the day.
+            }
+            if (ends[mid] >= epochDay) {
+                action.accept(goals[mid]);
+            }
+            low = mid + 1;
+        }
+    }
+
+    @Override
+    public void workoutAdded(int epochDay, int activity, int minutes, double calories) {
+        if (goals.length > 0) {
+            forEachContaining(epochDay, goal -> goal.updateProgress(goal.contribution(activity, minutes, calories)));
+        }
+    }
+
+    @Override
+    public void workoutRemoved(int epochDay, int activity, int minutes, double calories) {
+        if (goals.length > 0) {
+            forEachContaining(epochDay, goal -> goal.updateProgress(-goal.contribution(activity, minutes, calories)));
+        }
+    }
+}
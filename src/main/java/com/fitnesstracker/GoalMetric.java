@@ -0,0 +1,50 @@
+package com.fitnesstracker;
+
+/**
+ * What a goal measures. Goals with a metric other than {@link #MANUAL}
+ * advance automatically as workouts inside their date range are logged.
+ */
+public enum GoalMetric {
+    MANUAL("Manual"),
+    MINUTES("Minutes"),
+    CALORIES("Calories"),
+    SESSIONS("Sessions");
+
+    private final String name;
+
+    GoalMetric(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns how much a workout contributes to a goal with this metric.
+     */
+    double contribution(int minutes, double calories) {
+        return switch (this) {
+            case MANUAL -> 0.0;
+            case MINUTES -> minutes;
+            case CALORIES -> calories;
+            case SESSIONS -> 1.0;
+        };
+    }
+
+    /**
+     * Finds a GoalMetric by name (case-insensitive).
+     *
+     * @param name The name of the metric.
+     * @return The matching GoalMetric, or throws an exception if invalid.
+     */
+    public static GoalMetric fromName(String name) {
+        for (GoalMetric metric : GoalMetric.values()) {
+            if (metric.name.equalsIgnoreCase(name)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Invalid goal metric: " + name +
+                ". Choose from MANUAL, MINUTES, CALORIES, SESSIONS.");
+    }
+}
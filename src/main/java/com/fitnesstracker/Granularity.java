@@ -0,0 +1,49 @@
+package com.fitnesstracker;
+
+import java.time.LocalDate;
+
+/**
+ * Time bucket size of a report. Weeks start on Monday.
+ */
+public enum Granularity {
+    DAY("Day"),
+    WEEK("Week"),
+    MONTH("Month");
+
+    private final String name;
+
+    Granularity(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the first epoch day of the bucket that contains the given day.
+     */
+    int bucketStart(int epochDay) {
+        return switch (this) {
+            case DAY -> epochDay;
+            case WEEK -> epochDay - Math.floorMod(epochDay + 3, 7); // 1970-01-01 was a Thursday
+            case MONTH -> (int) LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+        };
+    }
+
+    /**
+     * Finds a Granularity by name (case-insensitive).
+     *
+     * @param name The name of the granularity.
+     * @return The matching Granularity, or throws an exception if invalid.
+     */
+    public static Granularity fromName(String name) {
+        for (Granularity granularity : Granularity.values()) {
+            if (granularity.name.equalsIgnoreCase(name)) {
+                return granularity;
+            }
+        }
+        throw new IllegalArgumentException("Invalid report granularity: " + name +
+                ". Choose from DAY, WEEK, MONTH.");
+    }
+}
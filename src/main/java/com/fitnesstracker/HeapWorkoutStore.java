@@ -0,0 +1,120 @@
+package com.fitnesstracker;
+
+import java.util.Arrays;
+
+/**
+ * Workout rows in parallel primitive arrays on the Java heap, one array per column and chunk.
+ * The first chunk grows by doubling, so a user with few workouts only holds a few rows.
+ * Primitive arrays are never traced by the garbage collector, but they are still
+ * copied by it and count towards the heap size.
+ */
+final class HeapWorkoutStore implements WorkoutStore {
+    // Epoch day (int), activity id (short), seconds (int), and calories (double).
+    private static final int ROW_BYTES = 18;
+
+    private int[][] epochDays = new int[0][];
+    private short[][] activities = new short[0][];
+    private int[][] seconds = new int[0][];
+    private double[][] calories = new double[0][];
+
+    @Override
+    public void ensureCapacity(int rows) {
+        if (rows <= 0) {
+            return;
+        }
+        if (epochDays.length == 0 || (epochDays.length == 1 && epochDays[0].length < Math.min(rows, CHUNK_SIZE))) {
+            growFirstChunk(rows);
+        }
+        while (epochDays.length << CHUNK_SHIFT < rows) {
+            int chunks = epochDays.length;
+            epochDays = Arrays.copyOf(epochDays, chunks + 1);
+            activities = Arrays.copyOf(activities, chunks + 1);
+            seconds = Arrays.copyOf(seconds, chunks + 1);
+            calories = Arrays.copyOf(calories, chunks + 1);
+            epochDays[chunks] = new int[CHUNK_SIZE];
+            activities[chunks] = new short[CHUNK_SIZE];
+            seconds[chunks] = new int[CHUNK_SIZE];
+            calories[chunks] = new double[CHUNK_SIZE];
+        }
+    }
+
+    private void growFirstChunk(int rows) {
+        if (epochDays.length == 0) {
+            epochDays = new int[1][0];
+            activities = new short[1][0];
+            seconds = new int[1][0];
+            calories = new double[1][0];
+        }
+        int length = WorkoutStore.grownFirstChunk(epochDays[0].length, rows);
+        epochDays[0] = Arrays.copyOf(epochDays[0], length);
+        activities[0] = Arrays.copyOf(activities[0], length);
+        seconds[0] = Arrays.copyOf(seconds[0], length);
+        calories[0] = Arrays.copyOf(calories[0], length);
+    }
+
+    @Override
+    public long allocatedBytes() {
+        long rows = 0;
+        for (int[] chunk : epochDays) {
+            // A chunk being added by another thread may not be visible yet.
+            if (chunk != null) {
+                rows += chunk.length;
+            }
+        }
+        return rows * ROW_BYTES;
+    }
+
+    @Override
+    public void shrink(int rows) {
+        int chunks = (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (chunks < epochDays.length) {
+            epochDays = Arrays.copyOf(epochDays, chunks);
+            activities = Arrays.copyOf(activities, chunks);
+            seconds = Arrays.copyOf(seconds, chunks);
+            calories = Arrays.copyOf(calories, chunks);
+        }
+    }
+
+    @Override
+    public int epochDay(int row) {
+        return epochDays[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    @Override
+    public int activity(int row) {
+        return activities[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    @Override
+    public int seconds(int row) {
+        return seconds[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    @Override
+    public double calories(int row) {
+        return calories[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    @Override
+    public void set(int row, int epochDay, int activity, int secondsValue, double caloriesValue) {
+        int chunk = row >>> CHUNK_SHIFT;
+        int offset = row & CHUNK_MASK;
+        epochDays[chunk][offset] = epochDay;
+        activities[chunk][offset] = (short) activity;
+        seconds[chunk][offset] = secondsValue;
+        calories[chunk][offset] = caloriesValue;
+    }
+
+    @Override
+    public void setCalories(int row, double caloriesValue) {
+        calories[row >>> CHUNK_SHIFT][row & CHUNK_MASK] = caloriesValue;
+    }
+
+    @Override
+    public void clear() {
+        epochDays = new int[0][];
+        activities = new short[0][];
+        seconds = new int[0][];
+        calories = new double[0][];
+    }
+}
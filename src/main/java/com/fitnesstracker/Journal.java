@@ -0,0 +1,573 @@
+package com.fitnesstracker;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of every state-changing command.
+ * <p>
+ * Each mutation is written as a compact binary record
+ * ({@code length, type, payload, crc32}) before it is applied in memory.
+ * A single flusher thread writes and fsyncs whatever has accumulated since
+ * the previous fsync (group commit), so concurrent writers share one fsync
+ * instead of paying for one each. {@link #replay(Path, UserRegistry, long)}
+ * rebuilds the in-memory state at startup and stops at the first torn or
+ * corrupt record.
+ * <p>
+ * The header carries the epoch of the snapshot the journal continues from,
+ * so a journal left behind by a crash during a checkpoint is recognised as
+ * already contained in the newer snapshot.
+ */
+final class Journal implements Closeable {
+    private static final int MAGIC = 0x46544A32; // "FTJ2"
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    static final byte CREATE_USER = 1;
+    static final byte LOG_WORKOUT = 2;
+    static final byte SET_GOAL = 3;
+    static final byte UPDATE_GOAL_TITLE = 4;
+    static final byte UPDATE_ACTIVITY = 5;
+    static final byte LOG_WORKOUT_BATCH = 6;
+    static final byte SET_TRACKED_GOAL = 7;
+    // Replaces LOG_WORKOUT, which recorded whole minutes; those records are still replayed.
+    static final byte LOG_WORKOUT_SECONDS = 8;
+
+    private final FileChannel channel;
+    private final Path file;
+    private final Object lock = new Object();
+    private final Thread flusher;
+
+    // Records appended since the last flush; swapped with spare by the flusher.
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    private long epoch;
+    private volatile boolean waitForDurability = true;
+
+    private Journal(FileChannel channel, Path file, long epoch) {
+        this.channel = channel;
+        this.file = file;
+        this.epoch = epoch;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens a journal for appending, creating it if needed.
+     * Any torn tail left by a crash is cut off so new records follow valid data.
+     * A journal older than the given epoch only holds changes that are already
+     * part of a snapshot, so it is emptied and restarted at that epoch.
+     *
+     * @param file The journal file.
+     * @param epoch The epoch of the snapshot the journal continues from.
+     * @return The open journal.
+     * @throws IOException if the file cannot be opened or is not a journal.
+     */
+    static Journal open(Path file, long epoch) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long journalEpoch = epoch;
+        try {
+            // A file shorter than the header was cut off while being restarted.
+            if (channel.size() < HEADER_SIZE || readEpoch(file) < epoch) {
+                writeHeader(channel, epoch);
+            } else {
+                journalEpoch = readEpoch(file);
+                channel.truncate(validLength(file));
+            }
+            channel.position(channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new Journal(channel, file, journalEpoch);
+    }
+
+    private static void writeHeader(FileChannel channel, long epoch) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(epoch).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Returns the snapshot epoch this journal continues from.
+     */
+    long epoch() {
+        synchronized (lock) {
+            return epoch;
+        }
+    }
+
+    /**
+     * Returns true if the journal continues from a snapshot and holds no records,
+     * so that snapshot alone is the saved state.
+     *
+     * @param snapshotEpoch The epoch recorded in the snapshot.
+     * @throws IOException if the journal's size cannot be read.
+     */
+    boolean isEmptySince(long snapshotEpoch) throws IOException {
+        synchronized (lock) {
+            return epoch == snapshotEpoch && pending.position() == 0 && durableSequence == appendedSequence
+                    && channel.size() <= HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Empties the journal once a snapshot containing all of its records has been written.
+     * Appends wait while the journal is being restarted.
+     *
+     * @param newEpoch The epoch of the snapshot that now holds the journal's changes.
+     * @throws IOException if the journal cannot be rewritten.
+     */
+    void restart(long newEpoch) throws IOException {
+        synchronized (lock) {
+            checkUsable();
+            boolean interrupted = false;
+            while ((pending.position() > 0 || durableSequence < appendedSequence) && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            checkUsable();
+            writeHeader(channel, newEpoch);
+            epoch = newEpoch;
+        }
+    }
+
+    void recordCreateUser(String name, String userId) {
+        append(CREATE_USER, out -> {
+            out.writeUTF(name);
+            out.writeUTF(userId);
+        });
+    }
+
+    void recordLogWorkout(String userId, Workout workout) {
+        append(LOG_WORKOUT_SECONDS, out -> {
+            out.writeUTF(userId);
+            out.writeUTF(workout.getActivityType().getName());
+            out.writeInt((int) workout.getDate().toEpochDay());
+            out.writeInt(Math.toIntExact(workout.getDuration().getSeconds()));
+        });
+    }
+
+    /**
+     * Records a batch of workouts as one record, written and synced together.
+     */
+    void recordLogWorkouts(String userId, ActivityType[] activityTypes, int[] epochDays, int[] minutes, int count) {
+        append(LOG_WORKOUT_BATCH, out -> {
+            ActivityType[] allTypes = ActivityType.values();
+            out.writeUTF(userId);
+            out.writeShort(allTypes.length);
+            for (ActivityType type : allTypes) {
+                out.writeUTF(type.getName());
+            }
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeShort(activityTypes[i].getId());
+                out.writeInt(epochDays[i]);
+                out.writeInt(minutes[i]);
+            }
+        });
+    }
+
+    void recordSetGoal(String userId, Goal goal) {
+        append(goal.isTracked() ? SET_TRACKED_GOAL : SET_GOAL, out -> {
+            out.writeUTF(userId);
+            out.writeUTF(goal.getGoalTitle());
+            out.writeDouble(goal.getTargetValue());
+            out.writeInt((int) goal.getStartDate().toEpochDay());
+            out.writeInt((int) goal.getEndDate().toEpochDay());
+            if (goal.isTracked()) {
+                out.writeUTF(goal.getMetric().name());
+                out.writeUTF(goal.getActivityType() == null ? "" : goal.getActivityType().getName());
+            }
+        });
+    }
+
+    void recordUpdateGoalTitle(String userId, int goalIndex, String newTitle) {
+        append(UPDATE_GOAL_TITLE, out -> {
+            out.writeUTF(userId);
+            out.writeInt(goalIndex);
+            out.writeUTF(newTitle);
+        });
+    }
+
+    void recordUpdateActivity(String userId, int workoutIndex, ActivityType activityType) {
+        append(UPDATE_ACTIVITY, out -> {
+            out.writeUTF(userId);
+            out.writeInt(workoutIndex);
+            out.writeUTF(activityType.getName());
+        });
+    }
+
+    @FunctionalInterface
+    private interface Payload {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Sets whether appends wait for their record to be fsynced.
+     * Batch runs turn this off and call {@link #sync()} once at the end.
+     */
+    void setWaitForDurability(boolean waitForDurability) {
+        this.waitForDurability = waitForDurability;
+    }
+
+    /**
+     * Waits until every record appended so far is durable.
+     */
+    void sync() {
+        long sequence;
+        synchronized (lock) {
+            sequence = appendedSequence;
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Encodes a record, queues it for the flusher, and waits until it is durable
+     * unless waiting has been turned off.
+     */
+    private void append(byte type, Payload payload) {
+        byte[] body;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            payload.writeTo(out);
+            out.flush();
+            body = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        long sequence;
+        synchronized (lock) {
+            checkUsable();
+            int recordSize = Integer.BYTES + body.length + Integer.BYTES;
+            if (pending.remaining() < recordSize) {
+                pending = grow(pending, recordSize);
+            }
+            pending.putInt(body.length).put(body).putInt((int) crc.getValue());
+            sequence = ++appendedSequence;
+            lock.notifyAll();
+        }
+        if (waitForDurability) {
+            awaitDurable(sequence);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableSequence < sequence) {
+                throw new UncheckedIOException("Journal write failed.", failure);
+            }
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal is unusable after a write failure.", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + needed);
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    /**
+     * Writes and fsyncs everything appended since the previous round.
+     * Records appended while an fsync is running are picked up together in the next round.
+     */
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            long previousSequence;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Keep flushing until close() says otherwise.
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSequence = appendedSequence;
+                previousSequence = durableSequence;
+            }
+
+            PersistenceEvent event = new PersistenceEvent();
+            event.begin();
+            try {
+                batch.flip();
+                int bytes = batch.remaining();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                batch.clear();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = "journal-flush";
+                    event.file = file.toString();
+                    event.bytes = bytes;
+                    event.records = batchSequence - previousSequence;
+                    event.commit();
+                }
+                synchronized (lock) {
+                    durableSequence = batchSequence;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Flushes outstanding records and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Replays a journal into the registry.
+     * Replay stops at the first incomplete or corrupt record, which can only
+     * be the tail of a write interrupted by a crash.
+     *
+     * @param file The journal file. A missing file replays nothing.
+     * @param users The registry to rebuild.
+     * @param snapshotEpoch The epoch of the snapshot already loaded; older journals are skipped.
+     * @return The number of records applied.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    static int replay(Path file, UserRegistry users, long snapshotEpoch) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_SIZE || readEpoch(file) < snapshotEpoch) {
+            return 0;
+        }
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        int applied = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(in, file);
+            byte[] body;
+            while ((body = readRecord(in)) != null) {
+                apply(new DataInputStream(new ByteArrayInputStream(body)), users);
+                applied++;
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "journal-replay";
+            event.file = file.toString();
+            event.bytes = Files.size(file);
+            event.records = applied;
+            event.commit();
+        }
+        return applied;
+    }
+
+    /**
+     * Returns the length of the journal up to the end of its last complete record.
+     */
+    private static long validLength(Path file) throws IOException {
+        long length = HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(in, file);
+            byte[] body;
+            while ((body = readRecord(in)) != null) {
+                length += Integer.BYTES + body.length + Integer.BYTES;
+            }
+        }
+        return length;
+    }
+
+    private static long readEpoch(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return readHeader(in, file);
+        }
+    }
+
+    private static long readHeader(DataInputStream in, Path file) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a fitness tracker journal: " + file);
+            }
+            return in.readLong();
+        } catch (EOFException e) {
+            throw new IOException("Journal header is truncated: " + file, e);
+        }
+    }
+
+    /**
+     * Reads one record body, or returns null at the end of the valid data.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            int expected = in.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return (int) crc.getValue() == expected ? body : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void apply(DataInputStream in, UserRegistry users) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case CREATE_USER -> {
+                String name = in.readUTF();
+                users.create(name, in.readUTF());
+            }
+            case LOG_WORKOUT, LOG_WORKOUT_SECONDS -> {
+                User user = requireUser(users, in.readUTF());
+                ActivityType activityType = ActivityType.fromName(in.readUTF());
+                LocalDate date = LocalDate.ofEpochDay(in.readInt());
+                int duration = in.readInt();
+                user.addWorkout(new Workout(activityType,
+                        type == LOG_WORKOUT ? Duration.ofMinutes(duration) : Duration.ofSeconds(duration), date));
+            }
+            case LOG_WORKOUT_BATCH -> {
+                User user = requireUser(users, in.readUTF());
+                ActivityType[] typesByIndex = new ActivityType[in.readShort()];
+                for (int i = 0; i < typesByIndex.length; i++) {
+                    typesByIndex[i] = ActivityType.fromName(in.readUTF());
+                }
+                int count = in.readInt();
+                ActivityType[] activityTypes = new ActivityType[count];
+                int[] epochDays = new int[count];
+                int[] minutes = new int[count];
+                for (int i = 0; i < count; i++) {
+                    activityTypes[i] = typesByIndex[in.readShort()];
+                    epochDays[i] = in.readInt();
+                    minutes[i] = in.readInt();
+                }
+                user.addWorkouts(activityTypes, epochDays, minutes, count);
+            }
+            case SET_GOAL -> {
+                User user = requireUser(users, in.readUTF());
+                String title = in.readUTF();
+                double target = in.readDouble();
+                LocalDate start = LocalDate.ofEpochDay(in.readInt());
+                LocalDate end = LocalDate.ofEpochDay(in.readInt());
+                user.addGoal(new Goal(title, target, start, end));
+            }
+            case SET_TRACKED_GOAL -> {
+                User user = requireUser(users, in.readUTF());
+                String title = in.readUTF();
+                double target = in.readDouble();
+                LocalDate start = LocalDate.ofEpochDay(in.readInt());
+                LocalDate end = LocalDate.ofEpochDay(in.readInt());
+                GoalMetric metric = GoalMetric.fromName(in.readUTF());
+                String activity = in.readUTF();
+                ActivityType activityType = activity.isEmpty() ? null : ActivityType.fromName(activity);
+                // Progress is seeded from the workouts replayed so far, as it was when the goal was set.
+                user.addGoal(new Goal(title, target, start, end, metric, activityType));
+            }
+            case UPDATE_GOAL_TITLE -> {
+                User user = requireUser(users, in.readUTF());
+                int index = in.readInt();
+                user.getGoals().get(index).setGoalTitle(in.readUTF());
+            }
+            case UPDATE_ACTIVITY -> {
+                User user = requireUser(users, in.readUTF());
+                int index = in.readInt();
+                user.getWorkouts().get(index).setActivityType(ActivityType.fromName(in.readUTF()));
+            }
+            default -> throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static User requireUser(UserRegistry users, String userId) throws IOException {
+        User user = users.find(userId);
+        if (user == null) {
+            throw new IOException("Journal refers to unknown user: " + userId);
+        }
+        return user;
+    }
+}
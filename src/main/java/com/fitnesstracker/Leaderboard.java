@@ -0,0 +1,194 @@
+package com.fitnesstracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Users ranked by calories burned, highest first, with ties broken by user ID.
+ * <p>
+ * Entries live in a skip list whose links also record how many entries they
+ * skip, so both the top entries and the rank of any one user are found in
+ * O(log n) without walking the users ahead of it. A user's entry is replaced
+ * whenever one of their workouts is counted or uncounted, and dropped once
+ * no workouts are left.
+ * <p>
+ * Every method is synchronized; workouts of different users may be counted
+ * from different threads.
+ */
+final class Leaderboard {
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(null, null, 0, 0.0, MAX_LEVEL);
+    private final Map<String, Node> nodesByUser = new HashMap<>();
+    private int level = 1;
+    private int size;
+
+    /**
+     * One user's position. Nodes are immutable while linked; a changed score
+     * is a new node. Nodes keep the user's ID and name rather than the user,
+     * so a user evicted from a bounded registry is not held in memory here.
+     */
+    private static final class Node {
+        final String userId;
+        final String name;
+        final int workouts;
+        final double calories;
+        final Node[] next;
+        // span[i] is the number of entries from this node to next[i], counting next[i].
+        final int[] span;
+
+        Node(String userId, String name, int workouts, double calories, int height) {
+            this.userId = userId;
+            this.name = name;
+            this.workouts = workouts;
+            this.calories = calories;
+            this.next = new Node[height];
+            this.span = new int[height];
+        }
+
+        /**
+         * Returns true if this node ranks ahead of the given score and user ID.
+         */
+        boolean before(double otherCalories, String otherUserId) {
+            int order = Double.compare(otherCalories, calories);
+            return order < 0 || (order == 0 && userId.compareTo(otherUserId) < 0);
+        }
+    }
+
+    /**
+     * Changes a user's counted workouts and calories, e.g. by one workout and its calories.
+     *
+     * @param user The user whose workouts changed.
+     * @param workoutsDelta The change in the number of workouts.
+     * @param caloriesDelta The change in calories burned.
+     */
+    synchronized void update(User user, int workoutsDelta, double caloriesDelta) {
+        Node current = nodesByUser.get(user.getUserId());
+        int workouts = workoutsDelta;
+        double total = caloriesDelta;
+        if (current != null) {
+            unlink(current);
+            workouts += current.workouts;
+            total += current.calories;
+        }
+        if (workouts <= 0) {
+            nodesByUser.remove(user.getUserId());
+            return;
+        }
+        nodesByUser.put(user.getUserId(), link(user, workouts, total));
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the highest ranked entries, best first.
+     *
+     * @param limit The maximum number of entries to return.
+     */
+    synchronized List<LeaderboardEntry> top(int limit) {
+        List<LeaderboardEntry> entries = new ArrayList<>(Math.min(limit, size));
+        Node node = head.next[0];
+        for (int rank = 1; node != null && rank <= limit; rank++, node = node.next[0]) {
+            entries.add(entryOf(node, rank));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns a user's entry, or null if the user has no workouts on this board.
+     */
+    synchronized LeaderboardEntry rankOf(String userId) {
+        Node target = nodesByUser.get(userId);
+        if (target == null) {
+            return null;
+        }
+        int rank = 0;
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && !target.before(node.next[i].calories, node.next[i].userId)) {
+                rank += node.span[i];
+                node = node.next[i];
+            }
+            if (node == target) {
+                return entryOf(node, rank);
+            }
+        }
+        throw new IllegalStateException("Leaderboard entry of " + userId + " is not linked.");
+    }
+
+    private static LeaderboardEntry entryOf(Node node, int rank) {
+        return new LeaderboardEntry(rank, node.userId, node.name, node.workouts, node.calories);
+    }
+
+    private Node link(User user, int workouts, double calories) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (node.next[i] != null && node.next[i].before(calories, user.getUserId())) {
+                rank[i] += node.span[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        int height = randomHeight();
+        if (height > level) {
+            for (int i = level; i < height; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = height;
+        }
+
+        Node created = new Node(user.getUserId(), user.getName(), workouts, calories, height);
+        for (int i = 0; i < height; i++) {
+            created.next[i] = update[i].next[i];
+            update[i].next[i] = created;
+            created.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = height; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+        return created;
+    }
+
+    private void unlink(Node target) {
+        String userId = target.userId;
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && node.next[i].before(target.calories, userId)) {
+                node = node.next[i];
+            }
+            if (node.next[i] == target) {
+                node.span[i] += target.span[i] - 1;
+                node.next[i] = target.next[i];
+            } else {
+                node.span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+    }
+
+    private static int randomHeight() {
+        // Each level holds about a quarter of the entries of the level below.
+        int height = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (height < MAX_LEVEL && (random.nextInt() & 3) == 0) {
+            height++;
+        }
+        return height;
+    }
+}
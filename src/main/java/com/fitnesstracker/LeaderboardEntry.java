@@ -0,0 +1,13 @@
+package com.fitnesstracker;
+
+/**
+ * One user's place on a leaderboard.
+ *
+ * @param rank The 1-based rank; 1 is the user who burned the most calories.
+ * @param userId The user ID.
+ * @param name The user's name.
+ * @param workouts The number of workouts counted.
+ * @param calories The total calories burned.
+ */
+public record LeaderboardEntry(int rank, String userId, String name, int workouts, double calories) {
+}
@@ -0,0 +1,174 @@
+package com.fitnesstracker;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Calorie leaderboards across all users of a {@link UserRegistry}.
+ * <p>
+ * There is an all-time board and one board per week (weeks start on Monday),
+ * each for all activities and for every single activity type. Every workout
+ * logged, changed, or removed updates the four boards it counts towards, so
+ * top-N and rank queries never visit other users or their workouts.
+ */
+public class Leaderboards {
+    private static final int ALL_TIME = Integer.MIN_VALUE;
+    private static final int ALL_ACTIVITIES = -1;
+
+    private final ConcurrentMap<BoardKey, Leaderboard> boards = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    private record BoardKey(int weekStart, int activity) {
+    }
+
+    /**
+     * @param clock The clock that decides which week is the current week.
+     */
+    public Leaderboards(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null.");
+    }
+
+    /**
+     * Returns the first day (Monday) of the current week.
+     */
+    public LocalDate currentWeek() {
+        return LocalDate.ofEpochDay(Granularity.WEEK.bucketStart((int) LocalDate.now(clock).toEpochDay()));
+    }
+
+    /**
+     * Returns the users who burned the most calories, best first.
+     *
+     * @param weekOf Any day of the week to rank, or null to rank all time.
+     * @param activityType The activity type to rank, or null for all activities.
+     * @param limit The maximum number of users to return.
+     * @return Up to {@code limit} entries, empty if nobody has matching workouts.
+     */
+    public List<LeaderboardEntry> top(LocalDate weekOf, ActivityType activityType, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Leaderboard size must be positive.");
+        }
+        Leaderboard board = boards.get(keyOf(weekOf, activityType));
+        return board == null ? List.of() : board.top(limit);
+    }
+
+    /**
+     * Returns a user's place on a leaderboard.
+     *
+     * @param user The user.
+     * @param weekOf Any day of the week to rank, or null to rank all time.
+     * @param activityType The activity type to rank, or null for all activities.
+     * @return The user's entry, or null if the user has no matching workouts.
+     */
+    public LeaderboardEntry rankOf(User user, LocalDate weekOf, ActivityType activityType) {
+        Objects.requireNonNull(user, "User cannot be null.");
+        Leaderboard board = boards.get(keyOf(weekOf, activityType));
+        return board == null ? null : board.rankOf(user.getUserId());
+    }
+
+    /**
+     * Returns the number of users on a leaderboard.
+     *
+     * @param weekOf Any day of the week, or null for all time.
+     * @param activityType The activity type, or null for all activities.
+     */
+    public int size(LocalDate weekOf, ActivityType activityType) {
+        Leaderboard board = boards.get(keyOf(weekOf, activityType));
+        return board == null ? 0 : board.size();
+    }
+
+    private static BoardKey keyOf(LocalDate weekOf, ActivityType activityType) {
+        int weekStart = weekOf == null ? ALL_TIME : Granularity.WEEK.bucketStart((int) weekOf.toEpochDay());
+        return new BoardKey(weekStart, activityType == null ? ALL_ACTIVITIES : activityType.getId());
+    }
+
+    /**
+     * Returns a listener that counts one user's workouts on the leaderboards.
+     */
+    WorkoutListener listenerFor(User user) {
+        Objects.requireNonNull(user, "User cannot be null.");
+        return new WorkoutListener() {
+            @Override
+            public void workoutAdded(int epochDay, int activity, int minutes, double calories) {
+                record(user, epochDay, activity, 1, calories);
+            }
+
+            @Override
+            public void workoutRemoved(int epochDay, int activity, int minutes, double calories) {
+                record(user, epochDay, activity, -1, calories);
+            }
+
+            @Override
+            public void caloriesChanged(CalorieBatch batch) {
+                recordCalorieChanges(user, batch);
+            }
+        };
+    }
+
+    private void record(User user, int epochDay, int activity, int sign, double calories) {
+        int weekStart = Granularity.WEEK.bucketStart(epochDay);
+        double delta = sign * calories;
+        board(ALL_TIME, ALL_ACTIVITIES).update(user, sign, delta);
+        board(ALL_TIME, activity).update(user, sign, delta);
+        board(weekStart, ALL_ACTIVITIES).update(user, sign, delta);
+        board(weekStart, activity).update(user, sign, delta);
+    }
+
+    /**
+     * Sums the changes of a batch per week and activity before touching any board,
+     * so each board the user is on is updated about once per batch instead of once per row.
+     */
+    private void recordCalorieChanges(User user, CalorieBatch batch) {
+        double[] allTime = new double[ActivityType.count()];
+        double[] week = new double[allTime.length];
+        int weekStart = Integer.MIN_VALUE;
+        for (int i = 0; i < batch.size(); i++) {
+            int start = Granularity.WEEK.bucketStart(batch.epochDay(i));
+            if (start != weekStart) {
+                flushWeek(user, weekStart, week);
+                weekStart = start;
+            }
+            double delta = batch.newCalories(i) - batch.oldCalories(i);
+            int activity = batch.activity(i);
+            if (activity >= allTime.length) {
+                allTime = Arrays.copyOf(allTime, activity + 1);
+                week = Arrays.copyOf(week, activity + 1);
+            }
+            allTime[activity] += delta;
+            week[activity] += delta;
+        }
+        flushWeek(user, weekStart, week);
+        flush(user, ALL_TIME, allTime);
+    }
+
+    private void flushWeek(User user, int weekStart, double[] deltas) {
+        if (weekStart != Integer.MIN_VALUE) {
+            flush(user, weekStart, deltas);
+        }
+    }
+
+    /**
+     * Applies per-activity calorie changes to one period's boards and clears them.
+     */
+    private void flush(User user, int weekStart, double[] deltas) {
+        double total = 0;
+        for (int activity = 0; activity < deltas.length; activity++) {
+            if (deltas[activity] != 0) {
+                board(weekStart, activity).update(user, 0, deltas[activity]);
+                total += deltas[activity];
+                deltas[activity] = 0;
+            }
+        }
+        if (total != 0) {
+            board(weekStart, ALL_ACTIVITIES).update(user, 0, total);
+        }
+    }
+
+    private Leaderboard board(int weekStart, int activity) {
+        return boards.computeIfAbsent(new BoardKey(weekStart, activity), key -> new Leaderboard());
+    }
+}
@@ -0,0 +1,416 @@
+package com.fitnesstracker;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders workout and goal listings a page at a time, rollup reports, leaderboards,
+ * organisation-wide analytics, and command statistics.
+ * <p>
+ * Lines are built in one reusable buffer straight from the columnar workout
+ * log, with hand-rolled date and number formatting, so no Workout objects,
+ * format strings, or per-line Strings are created. The buffer is written to
+ * the output once per page (and at most every {@link #FLUSH_THRESHOLD}
+ * characters for unpaged listings). Paging seeks directly to the first row
+ * of the page, so a page costs O(page size) however long the history is.
+ * <p>
+ * Not thread-safe; the CLI uses one renderer from its command thread.
+ */
+final class ListingRenderer {
+    static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+
+    /**
+     * Which part of a listing to show.
+     *
+     * @param page The 1-based page number.
+     * @param limit The page size, or 0 to show everything.
+     * @param newestFirst Whether to reverse the listing order.
+     */
+    record PageRequest(int page, int limit, boolean newestFirst) {
+        PageRequest {
+            if (page < 1) {
+                throw new IllegalArgumentException("Page must be at least 1.");
+            }
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit cannot be negative.");
+            }
+        }
+
+        boolean paged() {
+            return limit > 0;
+        }
+
+        /**
+         * Splits {@code --page N}, {@code --limit N} and {@code --newest} off a command's arguments.
+         * {@code --page} without {@code --limit} uses pages of {@link #DEFAULT_PAGE_SIZE}.
+         *
+         * @param args The command arguments, including the command name.
+         * @param positional Receives the remaining arguments, in order.
+         * @return The requested page.
+         */
+        static PageRequest parse(String[] args, List<String> positional) {
+            int page = 1;
+            int limit = 0;
+            boolean pageGiven = false;
+            boolean newestFirst = false;
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--page" -> {
+                        page = parseOption(args, ++i, "--page");
+                        pageGiven = true;
+                    }
+                    case "--limit" -> limit = parseOption(args, ++i, "--limit");
+                    case "--newest" -> newestFirst = true;
+                    default -> positional.add(args[i]);
+                }
+            }
+            if (pageGiven && limit == 0) {
+                limit = DEFAULT_PAGE_SIZE;
+            }
+            return new PageRequest(page, limit, newestFirst);
+        }
+
+        private static int parseOption(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option + ".");
+            }
+            try {
+                return Integer.parseInt(args[index]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + args[index] + ".");
+            }
+        }
+    }
+
+    /**
+     * Prints one page of a user's workouts, either all of them in logged order or
+     * those between two dates (inclusive) in date order.
+     *
+     * @param user The user whose workouts to list.
+     * @param from The first date, or null to list all workouts.
+     * @param to The last date, or null to list all workouts.
+     * @param request The page to show.
+     * @param out The stream to print to.
+     */
+    void renderWorkouts(User user, LocalDate from, LocalDate to, PageRequest request, PrintStream out) {
+        boolean ranged = from != null;
+        if (ranged && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+        user.read(() -> {
+            WorkoutLog log = user.workoutLog();
+            WorkoutLog.DateRange range = ranged ? log.rowsBetween((int) from.toEpochDay(), (int) to.toEpochDay()) : null;
+            int total = ranged ? range.size() : log.size();
+            if (total == 0) {
+                out.println(ranged ? "No workouts logged between " + from + " and " + to + "." : "No workouts logged yet.");
+                return null;
+            }
+
+            int first = firstOnPage(request, total);
+            int last = request.paged() ? Math.min(total, first + request.limit()) : total;
+            buffer.setLength(0);
+            buffer.append(ranged ? "Your Logged Workouts from " : "Your Logged Workouts");
+            if (ranged) {
+                appendDate(buffer, (int) from.toEpochDay()).append(" to ");
+                appendDate(buffer, (int) to.toEpochDay());
+            }
+            buffer.append(":\n");
+            for (int i = first; i < last; i++) {
+                int position = request.newestFirst() ? total - 1 - i : i;
+                int row = ranged ? range.rowAt(position) : position;
+                appendWorkout(log, row);
+                if (buffer.length() >= FLUSH_THRESHOLD) {
+                    flush(out);
+                }
+            }
+            appendFooter(request, total, "workouts");
+            flush(out);
+            return null;
+        });
+    }
+
+    /**
+     * Prints one page of goals in the given order.
+     *
+     * @param goals The goals to list.
+     * @param request The page to show.
+     * @param out The stream to print to.
+     */
+    void renderGoals(List<Goal> goals, PageRequest request, PrintStream out) {
+        int total = goals.size();
+        if (total == 0) {
+            out.println("No active goals.");
+            return;
+        }
+
+        int first = firstOnPage(request, total);
+        int last = request.paged() ? Math.min(total, first + request.limit()) : total;
+        buffer.setLength(0);
+        buffer.append("Your Active Goals:\n");
+        for (int i = first; i < last; i++) {
+            appendGoal(goals.get(request.newestFirst() ? total - 1 - i : i));
+            if (buffer.length() >= FLUSH_THRESHOLD) {
+                flush(out);
+            }
+        }
+        appendFooter(request, total, "goals");
+        flush(out);
+    }
+
+    /**
+     * Prints a report, one line per bucket and activity.
+     *
+     * @param rows The report rows, ordered by bucket.
+     * @param granularity The bucket size.
+     * @param from The first date of the report.
+     * @param to The last date of the report.
+     * @param out The stream to print to.
+     */
+    void renderReport(List<RollupRow> rows, Granularity granularity, LocalDate from, LocalDate to, PrintStream out) {
+        buffer.setLength(0);
+        buffer.append("Report by ").append(granularity.getName().toLowerCase(Locale.ROOT)).append(" from ");
+        appendDate(buffer, (int) from.toEpochDay()).append(" to ");
+        appendDate(buffer, (int) to.toEpochDay()).append(":\n");
+        if (rows.isEmpty()) {
+            buffer.append("No workouts logged in this period.\n");
+        }
+        for (RollupRow row : rows) {
+            buffer.append(granularity.getName()).append(" of ");
+            appendDate(buffer, (int) row.bucketStart().toEpochDay())
+                    .append(": ").append(row.activityType().getName())
+                    .append(", Workouts: ").append(row.count())
+                    .append(", Duration: ").append(row.minutes())
+                    .append(" minutes, Calories Burned: ");
+            appendFixed2(buffer, row.calories()).append('\n');
+            if (buffer.length() >= FLUSH_THRESHOLD) {
+                flush(out);
+            }
+        }
+        flush(out);
+    }
+
+    /**
+     * Prints a leaderboard followed by the current user's place on it.
+     *
+     * @param title What is ranked, e.g. "the week of 2024-06-03, all activities".
+     * @param entries The entries to list, best first.
+     * @param own The current user's entry, or null if the user is not ranked.
+     * @param ranked The number of users on the leaderboard.
+     * @param out The stream to print to.
+     */
+    void renderLeaderboard(String title, List<LeaderboardEntry> entries, LeaderboardEntry own, int ranked,
+                           PrintStream out) {
+        buffer.setLength(0);
+        buffer.append("Leaderboard for ").append(title).append(":\n");
+        if (ranked == 0) {
+            buffer.append("No workouts logged for this leaderboard.\n");
+        }
+        for (LeaderboardEntry entry : entries) {
+            buffer.append(entry.rank()).append(". ").append(entry.name())
+                    .append(" (").append(entry.userId()).append("): ");
+            appendFixed2(buffer, entry.calories()).append(" calories, ")
+                    .append(entry.workouts()).append(" workouts\n");
+        }
+        if (own != null) {
+            buffer.append("Your rank: ").append(own.rank()).append(" of ").append(ranked).append(" (");
+            appendFixed2(buffer, own.calories()).append(" calories).\n");
+        } else if (ranked > 0) {
+            buffer.append("You have no workouts on this leaderboard.\n");
+        }
+        flush(out);
+    }
+
+    /**
+     * Prints an analytics report: overall totals, then totals and the spread of
+     * minutes per user for each activity.
+     *
+     * @param report The report to print.
+     * @param out The stream to print to.
+     */
+    void renderAnalytics(AnalyticsReport report, PrintStream out) {
+        buffer.setLength(0);
+        buffer.append("Analytics for ").append(report.users()).append(" users (")
+                .append(report.activeUsers()).append(" with workouts): Workouts: ").append(report.workouts())
+                .append(", Duration: ").append(report.minutes()).append(" minutes, Calories Burned: ");
+        appendFixed2(buffer, report.calories()).append('\n');
+        for (ActivityStatistics activity : report.activities()) {
+            buffer.append(activity.activityType().getName())
+                    .append(": Users: ").append(activity.users())
+                    .append(", Workouts: ").append(activity.workouts())
+                    .append(", Duration: ").append(activity.minutes())
+                    .append(" minutes, Calories Burned: ");
+            appendFixed2(buffer, activity.calories()).append('\n');
+            buffer.append("  Minutes per user: average ");
+            appendFixed2(buffer, activity.averageUserMinutes())
+                    .append(", min ").append(activity.minUserMinutes())
+                    .append(", max ").append(activity.maxUserMinutes())
+                    .append(", std dev ");
+            appendFixed2(buffer, activity.stdDevUserMinutes()).append("; calories per user: average ");
+            appendFixed2(buffer, activity.averageUserCalories()).append('\n');
+            buffer.append("  Users by minutes:");
+            long[] histogram = activity.minutesHistogram();
+            String separator = " ";
+            for (int band = 0; band < histogram.length; band++) {
+                if (histogram[band] > 0) {
+                    long low = band == 0 ? 0 : 1L << band;
+                    long high = (1L << (band + 1)) - 1;
+                    buffer.append(separator).append(low).append('-').append(high).append(": ").append(histogram[band]);
+                    separator = ", ";
+                }
+            }
+            buffer.append('\n');
+        }
+        buffer.append("Computed in ").append(report.elapsedNanos() / 1_000_000).append(" ms.\n");
+        flush(out);
+    }
+
+    /**
+     * Prints one line of counts and latencies (in microseconds) per command.
+     *
+     * @param commands The figures of each command.
+     * @param out The stream to print to.
+     */
+    void renderCommandStats(List<CommandLatency> commands, PrintStream out) {
+        buffer.setLength(0);
+        buffer.append("Command statistics (latencies in microseconds):\n");
+        for (CommandLatency command : commands) {
+            buffer.append(command.command())
+                    .append(": Calls: ").append(command.calls())
+                    .append(", Errors: ").append(command.errors())
+                    .append(", Mean: ");
+            appendFixed2(buffer, command.meanNanos() / 1_000.0).append(", p50: ");
+            appendFixed2(buffer, command.p50Nanos() / 1_000.0).append(", p99: ");
+            appendFixed2(buffer, command.p99Nanos() / 1_000.0).append(", p99.9: ");
+            appendFixed2(buffer, command.p999Nanos() / 1_000.0).append(", Max: ");
+            appendFixed2(buffer, command.maxNanos() / 1_000.0).append('\n');
+        }
+        flush(out);
+    }
+
+    void renderCacheStats(UserCacheStats stats, PrintStream out) {
+        buffer.setLength(0);
+        buffer.append("User cache: Users: ").append(stats.users())
+                .append(", In memory: ").append(stats.residentUsers())
+                .append(" (").append(stats.residentBytes() / 1024).append(" of ")
+                .append(stats.budgetBytes() / 1024).append(" KB)")
+                .append(", Hits: ").append(stats.hits())
+                .append(", Misses: ").append(stats.misses())
+                .append(", Hit ratio: ");
+        appendFixed2(buffer, stats.hitRatio() * 100).append("%, Evictions: ").append(stats.evictions())
+                .append(", Write-backs: ").append(stats.writeBacks()).append('\n');
+        flush(out);
+    }
+
+    private static int firstOnPage(PageRequest request, int total) {
+        if (!request.paged()) {
+            return 0;
+        }
+        int pages = (total + request.limit() - 1) / request.limit();
+        if (request.page() > pages) {
+            throw new IllegalArgumentException("Page " + request.page() + " is past the last page (" + pages + ").");
+        }
+        return (request.page() - 1) * request.limit();
+    }
+
+    private void appendFooter(PageRequest request, int total, String noun) {
+        if (request.paged()) {
+            int pages = (total + request.limit() - 1) / request.limit();
+            buffer.append("Page ").append(request.page()).append(" of ").append(pages)
+                    .append(" (").append(total).append(' ').append(noun).append(").\n");
+        }
+    }
+
+    /**
+     * Appends a workout in the format of {@link Workout#toString()}.
+     */
+    private void appendWorkout(WorkoutLog log, int row) {
+        buffer.append("Activity: ").append(ActivityType.byId(log.activity(row)).getName())
+                .append(", Duration: ").append(log.minutes(row))
+                .append(" minutes, Date: ");
+        appendDate(buffer, log.epochDay(row)).append(", Calories Burned: ");
+        appendFixed2(buffer, log.calories(row)).append('\n');
+    }
+
+    private void appendGoal(Goal goal) {
+        buffer.append("Title: ").append(goal.getGoalTitle()).append('\n');
+        buffer.append("Target: ").append(goal.getTargetValue()).append('\n');
+        buffer.append("Progress: ").append(goal.getCurrentValue());
+        if (goal.isTracked()) {
+            buffer.append(" (").append(goal.getMetric().getName());
+            if (goal.getActivityType() != null) {
+                buffer.append(", ").append(goal.getActivityType().getName());
+            }
+            buffer.append(')');
+        }
+        buffer.append('\n');
+        buffer.append("Start: ");
+        appendDate(buffer, (int) goal.getStartDate().toEpochDay()).append('\n');
+        buffer.append("End: ");
+        appendDate(buffer, (int) goal.getEndDate().toEpochDay()).append('\n');
+        buffer.append("Achieved: ").append(goal.isAchieved()).append('\n');
+        buffer.append("----------------------------\n");
+    }
+
+    private void flush(PrintStream out) {
+        out.append(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+
+    /**
+     * Appends an epoch day as ISO yyyy-MM-dd without creating a LocalDate,
+     * using the days-to-civil conversion over 400-year eras.
+     */
+    static StringBuilder appendDate(StringBuilder out, int epochDay) {
+        long z = epochDay + 719_468L; // Days since 0000-03-01
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153; // March = 0
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return out.append(LocalDate.ofEpochDay(epochDay)); // Signed or expanded years
+        }
+        int y = (int) year;
+        out.append((char) ('0' + y / 1000)).append((char) ('0' + y / 100 % 10))
+                .append((char) ('0' + y / 10 % 10)).append((char) ('0' + y % 10)).append('-');
+        return appendTwoDigits(appendTwoDigits(out, month).append('-'), day);
+    }
+
+    /**
+     * Appends a value rounded to two decimals exactly like {@code %.2f}, which rounds
+     * the value's shortest decimal form (the digits of {@link Double#toString}) half-up.
+     */
+    static StringBuilder appendFixed2(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if (Double.isNaN(value) || magnitude >= 1e15) {
+            return out.append(String.format("%.2f", value));
+        }
+        double scaled = magnitude * 100;
+        long hundredths = Math.round(scaled);
+        // The product is rounded to binary, so near half a hundredth it can land on the
+        // wrong side; round the decimal form instead, as %.2f does.
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) <= 4 * Math.ulp(scaled)) {
+            hundredths = BigDecimal.valueOf(magnitude).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        if (value < 0 && hundredths != 0) {
+            out.append('-');
+        }
+        out.append(hundredths / 100).append('.');
+        return appendTwoDigits(out, (int) (hundredths % 100));
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
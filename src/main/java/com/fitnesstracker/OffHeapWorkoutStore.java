@@ -0,0 +1,119 @@
+package com.fitnesstracker;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Workout rows in direct (off-heap) memory, as fixed-width records in one
+ * {@link ByteBuffer} per chunk of rows.
+ * <p>
+ * A record is {@value #RECORD_BYTES} bytes: epoch day (int), activity id (int),
+ * seconds (int), and calories (double), in native byte order. The heap only
+ * holds one small buffer object per {@value WorkoutStore#CHUNK_SIZE} rows, so
+ * the heap stays the same size however many workouts are stored, and the
+ * collector has nothing to copy. The first chunk's buffer starts small and is
+ * replaced by one twice the size until it is full, so a short history only
+ * takes a few records. Direct memory is limited by
+ * {@code -XX:MaxDirectMemorySize} and released when a chunk's buffer is collected.
+ */
+final class OffHeapWorkoutStore implements WorkoutStore {
+    static final int RECORD_BYTES = 20;
+    private static final int EPOCH_DAY = 0;
+    private static final int ACTIVITY = 4;
+    private static final int SECONDS = 8;
+    private static final int CALORIES = 12;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    @Override
+    public void ensureCapacity(int rows) {
+        if (rows <= 0) {
+            return;
+        }
+        if (chunks.length == 0 || (chunks.length == 1 && chunks[0].capacity() / RECORD_BYTES < Math.min(rows, CHUNK_SIZE))) {
+            growFirstChunk(rows);
+        }
+        while (chunks.length << CHUNK_SHIFT < rows) {
+            int count = chunks.length;
+            chunks = Arrays.copyOf(chunks, count + 1);
+            chunks[count] = ByteBuffer.allocateDirect(CHUNK_SIZE * RECORD_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private void growFirstChunk(int rows) {
+        ByteBuffer previous = chunks.length == 0 ? null : chunks[0];
+        int length = WorkoutStore.grownFirstChunk(previous == null ? 0 : previous.capacity() / RECORD_BYTES, rows);
+        ByteBuffer grown = ByteBuffer.allocateDirect(length * RECORD_BYTES).order(ByteOrder.nativeOrder());
+        if (previous == null) {
+            chunks = new ByteBuffer[] {grown};
+        } else {
+            grown.put(0, previous, 0, previous.capacity());
+            chunks[0] = grown;
+        }
+    }
+
+    @Override
+    public long allocatedBytes() {
+        long bytes = 0;
+        for (ByteBuffer chunk : chunks) {
+            // A chunk being added by another thread may not be visible yet.
+            if (chunk != null) {
+                bytes += chunk.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void shrink(int rows) {
+        int count = (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (count < chunks.length) {
+            chunks = Arrays.copyOf(chunks, count);
+        }
+    }
+
+    @Override
+    public int epochDay(int row) {
+        return chunks[row >>> CHUNK_SHIFT].getInt(offset(row) + EPOCH_DAY);
+    }
+
+    @Override
+    public int activity(int row) {
+        return chunks[row >>> CHUNK_SHIFT].getInt(offset(row) + ACTIVITY);
+    }
+
+    @Override
+    public int seconds(int row) {
+        return chunks[row >>> CHUNK_SHIFT].getInt(offset(row) + SECONDS);
+    }
+
+    @Override
+    public double calories(int row) {
+        return chunks[row >>> CHUNK_SHIFT].getDouble(offset(row) + CALORIES);
+    }
+
+    @Override
+    public void set(int row, int epochDay, int activity, int secondsValue, double caloriesValue) {
+        ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+        int offset = offset(row);
+        chunk.putDouble(offset + CALORIES, caloriesValue);
+        chunk.putInt(offset + EPOCH_DAY, epochDay);
+        chunk.putInt(offset + SECONDS, secondsValue);
+        chunk.putInt(offset + ACTIVITY, activity);
+    }
+
+    @Override
+    public void setCalories(int row, double caloriesValue) {
+        chunks[row >>> CHUNK_SHIFT].putDouble(offset(row) + CALORIES, caloriesValue);
+    }
+
+    @Override
+    public void clear() {
+        chunks = new ByteBuffer[0];
+    }
+
+    private static int offset(int row) {
+        return (row & CHUNK_MASK) * RECORD_BYTES;
+    }
+}
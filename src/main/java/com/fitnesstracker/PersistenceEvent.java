@@ -0,0 +1,36 @@
+package com.fitnesstracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for journal flushes and replays, snapshot writes and loads,
+ * and writes and loads of single-user files: the files a {@link UserCache} spills
+ * evicted users to, and binary exports of one user.
+ * Enabled by default.
+ */
+@Name("com.fitnesstracker.Persistence")
+@Label("Persistence")
+@Category({"Fitness Tracker", "Persistence"})
+@Description("A journal flush or replay, or a snapshot or single-user file write or load")
+final class PersistenceEvent extends Event {
+    @Label("Operation")
+    @Description("journal-flush, journal-replay, snapshot-write, snapshot-load, "
+            + "or user-write and user-load for single-user files (cache spill files and binary exports)")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount(DataAmount.BYTES)
+    long bytes;
+
+    @Label("Records")
+    @Description("Journal records, or users in a snapshot or single-user file")
+    long records;
+}
@@ -0,0 +1,12 @@
+package com.fitnesstracker;
+
+/**
+ * Result of a {@link CalorieRecalculator} pass.
+ *
+ * @param users The number of users recalculated.
+ * @param workouts The number of workouts visited.
+ * @param changed The number of workouts whose calorie estimate changed.
+ * @param elapsedNanos How long the pass took.
+ */
+public record RecalculationResult(int users, long workouts, long changed, long elapsedNanos) {
+}
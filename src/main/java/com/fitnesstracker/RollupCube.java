@@ -0,0 +1,150 @@
+package com.fitnesstracker;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Daily, weekly, and monthly totals per activity type, kept up to date as
+ * workouts are added, changed, or removed.
+ * <p>
+ * Each granularity has a sorted map from bucket start day to that bucket's
+ * per-activity counts, minutes, and calories (indexed by activity id).
+ * A report over a date range walks only the buckets in the range, so its
+ * cost depends on the number of buckets, not the number of workouts.
+ * Buckets without workouts are dropped.
+ */
+final class RollupCube implements WorkoutListener {
+    // Rough sizes for allocatedBytes(): a bucket with its map entry, key, and empty
+    // arrays; one activity slot across the three arrays.
+    private static final long BUCKET_BYTES = 128;
+    private static final long SLOT_BYTES = Integer.BYTES + Long.BYTES + Double.BYTES;
+
+    private final Map<Granularity, TreeMap<Integer, Bucket>> bucketsByGranularity = new EnumMap<>(Granularity.class);
+
+    private long allocatedBytes;
+
+    RollupCube() {
+        for (Granularity granularity : Granularity.values()) {
+            bucketsByGranularity.put(granularity, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Per-activity totals of one bucket. The arrays start empty and grow up to the
+     * highest activity id logged in the bucket, so a bucket with a few activities
+     * stays small however many activity types the catalog holds.
+     */
+    private static final class Bucket {
+        private int[] counts = new int[0];
+        private long[] minutes = new long[0];
+        private double[] calories = new double[0];
+        private int total;
+
+        void add(int activity, int sign, int minutesValue, double caloriesValue) {
+            if (activity >= counts.length) {
+                int length = activity + 1;
+                counts = Arrays.copyOf(counts, length);
+                minutes = Arrays.copyOf(minutes, length);
+                calories = Arrays.copyOf(calories, length);
+            }
+            counts[activity] += sign;
+            minutes[activity] += (long) sign * minutesValue;
+            calories[activity] += sign * caloriesValue;
+            if (counts[activity] == 0) {
+                // Drop any floating-point residue once an activity has no workouts left.
+                calories[activity] = 0.0;
+            }
+            total += sign;
+        }
+    }
+
+    @Override
+    public void workoutAdded(int epochDay, int activity, int minutes, double calories) {
+        apply(epochDay, activity, 1, minutes, calories);
+    }
+
+    @Override
+    public void workoutRemoved(int epochDay, int activity, int minutes, double calories) {
+        apply(epochDay, activity, -1, minutes, calories);
+    }
+
+    @Override
+    public void caloriesChanged(CalorieBatch batch) {
+        for (Map.Entry<Granularity, TreeMap<Integer, Bucket>> entry : bucketsByGranularity.entrySet()) {
+            Granularity granularity = entry.getKey();
+            TreeMap<Integer, Bucket> buckets = entry.getValue();
+            // Rows are mostly in date order, so consecutive rows tend to share a bucket.
+            int lastStart = Integer.MIN_VALUE;
+            Bucket bucket = null;
+            for (int i = 0; i < batch.size(); i++) {
+                int start = granularity.bucketStart(batch.epochDay(i));
+                if (start != lastStart) {
+                    bucket = buckets.get(start);
+                    lastStart = start;
+                }
+                bucket.calories[batch.activity(i)] += batch.newCalories(i) - batch.oldCalories(i);
+            }
+        }
+    }
+
+    private void apply(int epochDay, int activity, int sign, int minutes, double calories) {
+        for (Map.Entry<Granularity, TreeMap<Integer, Bucket>> entry : bucketsByGranularity.entrySet()) {
+            int start = entry.getKey().bucketStart(epochDay);
+            TreeMap<Integer, Bucket> buckets = entry.getValue();
+            Bucket bucket = buckets.get(start);
+            if (bucket == null) {
+                bucket = new Bucket();
+                buckets.put(start, bucket);
+                allocatedBytes += BUCKET_BYTES;
+            }
+            int slots = bucket.counts.length;
+            bucket.add(activity, sign, minutes, calories);
+            allocatedBytes += (bucket.counts.length - slots) * SLOT_BYTES;
+            if (bucket.total == 0) {
+                buckets.remove(start);
+                allocatedBytes -= BUCKET_BYTES + bucket.counts.length * SLOT_BYTES;
+            }
+        }
+    }
+
+    /**
+     * Returns a rough count of the bytes held by the buckets of all granularities.
+     * Kept as a running figure, so it can be read without the lock; it may then
+     * be slightly out of date.
+     */
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the totals of every bucket that overlaps a date range, ordered by
+     * bucket and then activity id. Buckets are reported whole, so the first and
+     * last bucket may include workouts just outside the range.
+     *
+     * @param granularity The bucket size.
+     * @param fromDay The first epoch day of the range.
+     * @param toDay The last epoch day of the range.
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    List<RollupRow> rows(Granularity granularity, int fromDay, int toDay, int activity) {
+        List<RollupRow> rows = new ArrayList<>();
+        TreeMap<Integer, Bucket> buckets = bucketsByGranularity.get(granularity);
+        for (Map.Entry<Integer, Bucket> entry
+                : buckets.subMap(granularity.bucketStart(fromDay), true, toDay, true).entrySet()) {
+            Bucket bucket = entry.getValue();
+            LocalDate start = LocalDate.ofEpochDay(entry.getKey());
+            for (int id = 0; id < bucket.counts.length; id++) {
+                if (bucket.counts[id] > 0 && (activity < 0 || id == activity)) {
+                    rows.add(new RollupRow(start, ActivityType.byId(id), bucket.counts[id],
+                            bucket.minutes[id], bucket.calories[id]));
+                }
+            }
+        }
+        return rows;
+    }
+}
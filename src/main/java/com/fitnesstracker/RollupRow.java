@@ -0,0 +1,15 @@
+package com.fitnesstracker;
+
+import java.time.LocalDate;
+
+/**
+ * Totals of one activity type within one report bucket.
+ *
+ * @param bucketStart The first day of the bucket.
+ * @param activityType The activity type.
+ * @param count The number of workouts.
+ * @param minutes The total minutes.
+ * @param calories The total calories burned.
+ */
+public record RollupRow(LocalDate bucketStart, ActivityType activityType, int count, long minutes, double calories) {
+}
@@ -0,0 +1,372 @@
+package com.fitnesstracker;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Binary snapshot of every user with their workouts and goals.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header:   int magic "FTS3", long epoch, int activityCount, activityCount x string name,
+ *           int userCount
+ * user:     string userId, string name, int workoutCount, int goalCount,
+ *           workoutCount x workout, goalCount x goal
+ * workout:  int epochDay, short activity (index into the header table), int seconds
+ * goal:     string title, double target, double current, int startEpochDay, int endEpochDay,
+ *           byte metric (GoalMetric ordinal), short activity (index into the header table, -1 for all)
+ * string:   int byteLength, UTF-8 bytes
+ * </pre>
+ * Workouts are fixed-width, so loading them is a tight loop over the mapped file.
+ * Version 2 snapshots ("FTS2", with whole minutes instead of seconds) and version 1
+ * snapshots ("FTS1", also without goal metrics) are still read.
+ * Snapshots are read through {@link FileChannel#map} in windows, so files larger
+ * than one mapping can be loaded.
+ */
+final class Snapshot {
+    private static final int MAGIC = 0x46545333; // "FTS3"
+    private static final int MAGIC_V2 = 0x46545332; // "FTS2"
+    private static final int MAGIC_V1 = 0x46545331; // "FTS1"
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    // Workouts are handed to a user this many at a time, so the date index is sorted once per batch.
+    private static final int LOAD_BATCH_SIZE = 8192;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Writes a snapshot of all users. The file is replaced atomically,
+     * so a crash leaves either the old or the new snapshot. Users are written
+     * one at a time as the collection is iterated, so a registry that loads
+     * users on demand does not have to hold all of them at once.
+     *
+     * @param file The snapshot file.
+     * @param users The users to write.
+     * @param epoch The epoch recorded in the snapshot.
+     * @return The number of users written.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    static int write(Path file, Collection<User> users, long epoch) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long bytes;
+        int count = 0;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            writeHeader(out, epoch);
+            int countPosition = out.size();
+            out.writeInt(0); // The user count, filled in once every user is written
+            for (User user : users) {
+                user.read(() -> {
+                    try {
+                        writeUser(out, user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+                count++;
+            }
+            out.flush();
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, count), countPosition);
+            channel.force(true);
+            bytes = channel.size();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        commitEvent(event, "snapshot-write", file, bytes, count);
+        return count;
+    }
+
+    /**
+     * Writes one user to a file of their own, in the snapshot layout with a single
+     * user and epoch 0. The file is forced to disk and then replaced atomically, so
+     * a crash leaves either the old or the new user. The caller must hold the user's lock.
+     *
+     * @param file The user file.
+     * @param user The user to write.
+     * @throws IOException if the file cannot be written.
+     */
+    static void writeUser(Path file, User user) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long bytes;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            writeHeader(out, 0);
+            out.writeInt(1);
+            writeUser(out, user);
+            out.flush();
+            channel.force(true);
+            bytes = channel.size();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        commitEvent(event, "user-write", file, bytes, 1);
+    }
+
+    private static void writeHeader(DataOutputStream out, long epoch) throws IOException {
+        ActivityType[] activityTypes = ActivityType.values();
+        out.writeInt(MAGIC);
+        out.writeLong(epoch);
+        out.writeInt(activityTypes.length);
+        for (ActivityType activityType : activityTypes) {
+            writeString(out, activityType.getName());
+        }
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        WorkoutLog workouts = user.workoutLog();
+        List<Goal> goals = user.getGoals();
+        writeString(out, user.getUserId());
+        writeString(out, user.getName());
+        out.writeInt(workouts.size());
+        out.writeInt(goals.size());
+        for (int row = 0; row < workouts.size(); row++) {
+            out.writeInt(workouts.epochDay(row));
+            out.writeShort(workouts.activity(row));
+            out.writeInt(workouts.seconds(row));
+        }
+        for (Goal goal : goals) {
+            writeString(out, goal.getGoalTitle());
+            out.writeDouble(goal.getTargetValue());
+            out.writeDouble(goal.getCurrentValue());
+            out.writeInt((int) goal.getStartDate().toEpochDay());
+            out.writeInt((int) goal.getEndDate().toEpochDay());
+            out.writeByte(goal.getMetric().ordinal());
+            out.writeShort(goal.getActivityType() == null ? -1 : goal.getActivityType().getId());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Loads a snapshot into the registry.
+     *
+     * @param file The snapshot file.
+     * @param users The registry to fill.
+     * @return The epoch recorded in the snapshot, or 0 if there is no snapshot.
+     * @throws IOException if the snapshot cannot be read or is corrupt.
+     */
+    static long load(Path file, UserRegistry users) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedReader in = new MappedReader(channel);
+            Header header = readHeader(in, file);
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                readUser(in, users::create, header);
+            }
+            commitEvent(event, "snapshot-load", file, channel.size(), userCount);
+            return header.epoch();
+        }
+    }
+
+    /**
+     * Reads a file written by {@link #writeUser(Path, User)}.
+     *
+     * @param file The user file.
+     * @param factory Creates the empty user from their name and ID; the workouts and goals are added to it.
+     * @return The user.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    static User readUser(Path file, BiFunction<String, String, User> factory) throws IOException {
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedReader in = new MappedReader(channel);
+            Header header = readHeader(in, file);
+            if (in.readInt() != 1) {
+                throw new IOException("Not a single user file: " + file);
+            }
+            User user = readUser(in, factory, header);
+            commitEvent(event, "user-load", file, channel.size(), 1);
+            return user;
+        }
+    }
+
+    /**
+     * Reads the epoch recorded in a snapshot, or in a file in the snapshot layout.
+     *
+     * @param channel The open snapshot file; its position is not changed.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    static long readEpoch(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Snapshot is truncated.");
+            }
+        }
+        int magic = header.getInt(0);
+        if (magic != MAGIC && magic != MAGIC_V2 && magic != MAGIC_V1) {
+            throw new IOException("Not a fitness tracker snapshot.");
+        }
+        return header.getLong(Integer.BYTES);
+    }
+
+    private record Header(long epoch, ActivityType[] activityTypes, boolean goalMetrics, boolean seconds) {
+    }
+
+    private static Header readHeader(MappedReader in, Path file) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != MAGIC_V2 && magic != MAGIC_V1) {
+            throw new IOException("Not a fitness tracker snapshot: " + file);
+        }
+        long epoch = in.readLong();
+        ActivityType[] activityTypes = new ActivityType[in.readInt()];
+        for (int i = 0; i < activityTypes.length; i++) {
+            activityTypes[i] = ActivityType.fromName(in.readString());
+        }
+        return new Header(epoch, activityTypes, magic != MAGIC_V1, magic == MAGIC);
+    }
+
+    private static void commitEvent(PersistenceEvent event, String operation, Path file, long bytes, int users) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.file = file.toString();
+            event.bytes = bytes;
+            event.records = users;
+            event.commit();
+        }
+    }
+
+    private static User readUser(MappedReader in, BiFunction<String, String, User> factory, Header header)
+            throws IOException {
+        ActivityType[] activityTypes = header.activityTypes();
+        String userId = in.readString();
+        String name = in.readString();
+        int workoutCount = in.readInt();
+        int goalCount = in.readInt();
+        User user = factory.apply(name, userId);
+        if (user == null) {
+            throw new IOException("Snapshot contains duplicate user ID: " + userId);
+        }
+        int batchSize = Math.min(workoutCount, LOAD_BATCH_SIZE);
+        ActivityType[] batchTypes = new ActivityType[batchSize];
+        int[] batchDays = new int[batchSize];
+        int[] batchSeconds = new int[batchSize];
+        for (int loaded = 0; loaded < workoutCount; loaded += batchSize) {
+            int count = Math.min(batchSize, workoutCount - loaded);
+            for (int i = 0; i < count; i++) {
+                batchDays[i] = in.readInt();
+                batchTypes[i] = activityTypes[in.readShort()];
+                int duration = in.readInt();
+                batchSeconds[i] = header.seconds() ? duration : Math.multiplyExact(duration, 60);
+            }
+            user.addWorkoutsInSeconds(batchTypes, batchDays, batchSeconds, count);
+        }
+        for (int i = 0; i < goalCount; i++) {
+            String title = in.readString();
+            double target = in.readDouble();
+            double current = in.readDouble();
+            LocalDate start = LocalDate.ofEpochDay(in.readInt());
+            LocalDate end = LocalDate.ofEpochDay(in.readInt());
+            GoalMetric metric = GoalMetric.MANUAL;
+            ActivityType activityType = null;
+            if (header.goalMetrics()) {
+                metric = GoalMetric.values()[in.readByte()];
+                short activity = in.readShort();
+                activityType = activity < 0 ? null : activityTypes[activity];
+            }
+            Goal goal = new Goal(title, target, start, end, metric, activityType);
+            goal.updateProgress(current);
+            user.restoreGoal(goal);
+        }
+        return user;
+    }
+
+    /**
+     * Sequential reader over a file mapped in windows of {@link #WINDOW_SIZE} bytes.
+     * A value that would cross the end of a window triggers a remap starting at that value.
+     */
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.fileSize = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+        }
+
+        private ByteBuffer require(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (fileSize - position < bytes) {
+                    throw new IOException("Snapshot is truncated.");
+                }
+                map(position);
+            }
+            return window;
+        }
+
+        int readInt() throws IOException {
+            return require(Integer.BYTES).getInt();
+        }
+
+        byte readByte() throws IOException {
+            return require(Byte.BYTES).get();
+        }
+
+        short readShort() throws IOException {
+            return require(Short.BYTES).getShort();
+        }
+
+        long readLong() throws IOException {
+            return require(Long.BYTES).getLong();
+        }
+
+        double readDouble() throws IOException {
+            return require(Double.BYTES).getDouble();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0 || length > WINDOW_SIZE) {
+                throw new IOException("Snapshot is corrupt: invalid string length " + length + ".");
+            }
+            byte[] bytes = new byte[length];
+            require(length).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Keeps only recent workouts in memory and moves older ones to compressed segment files.
+ * <p>
+ * Sealing moves each user's workouts that are older than the hot window into a new
+ * segment in that user's directory. Segments keep per-activity totals and their
+ * first and last day in a footer, so date-range totals over old workouts are read
+ * from footers and only segments that straddle a range boundary are inflated.
+ * All-time totals, reports, and leaderboards are kept in memory as before, so
+ * they never touch the segments.
+ * <p>
+ * Segments are not a backup: the snapshot and journal still hold every workout, and
+ * the segment directory is emptied with {@link #reset()} before loading them again.
+ */
+public class TieredStorage {
+    /** Users with fewer old workouts than this keep them in memory, to avoid tiny files. */
+    static final int DEFAULT_MIN_SEGMENT_ROWS = 1024;
+
+    private final Path directory;
+    private final int hotDays;
+    private final int minSegmentRows;
+
+    /**
+     * @param directory The directory that holds the segments of all users.
+     * @param hotDays How many days of workouts, up to today, stay in memory.
+     */
+    public TieredStorage(Path directory, int hotDays) {
+        this(directory, hotDays, DEFAULT_MIN_SEGMENT_ROWS);
+    }
+
+    /**
+     * @param directory The directory that holds the segments of all users.
+     * @param hotDays How many days of workouts, up to today, stay in memory.
+     * @param minSegmentRows The fewest workouts worth writing a segment for.
+     */
+    public TieredStorage(Path directory, int hotDays, int minSegmentRows) {
+        if (hotDays < 0) {
+            throw new IllegalArgumentException("Hot days cannot be negative.");
+        }
+        if (minSegmentRows < 1) {
+            throw new IllegalArgumentException("Segments need at least one workout.");
+        }
+        this.directory = Objects.requireNonNull(directory, "Directory cannot be null.");
+        this.hotDays = hotDays;
+        this.minSegmentRows = minSegmentRows;
+    }
+
+    /**
+     * Deletes the segments of an earlier run. Call before loading users from a snapshot.
+     *
+     * @throws IOException if a segment cannot be deleted.
+     */
+    public void reset() throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                if (!file.equals(directory)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every user's workouts from before the hot window into segments.
+     *
+     * @param users The users to seal, typically {@link UserRegistry#users()}.
+     * @param today The last day of the hot window.
+     * @return The number of workouts moved out of memory.
+     * @throws IOException if a segment cannot be written; that user's workouts stay in memory.
+     */
+    public long seal(Collection<User> users, LocalDate today) throws IOException {
+        int cutoffDay = (int) today.minusDays(hotDays).toEpochDay() + 1;
+        long sealed = 0;
+        for (User user : users) {
+            sealed += user.sealWorkouts(cutoffDay, minSegmentRows, directoryOf(user));
+        }
+        return sealed;
+    }
+
+    /**
+     * Returns a user's segment directory, named so any user ID is a valid file name.
+     */
+    Path directoryOf(User user) {
+        byte[] userId = user.getUserId().getBytes(StandardCharsets.UTF_8);
+        return directory.resolve(Base64.getUrlEncoder().withoutPadding().encodeToString(userId));
+    }
+}
@@ -1,23 +1,87 @@
 package com.fitnesstracker;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalDate; // 🔹 Import added!
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * User with workouts and fitness goals.
+ * <p>
+ * Each user is guarded by its own read-write lock, so threads working on
+ * different users never contend, and aggregate reads of one user run in
+ * parallel with each other while writes to that user are exclusive.
+ * Use {@link #write(Supplier)} to make a check-then-act sequence atomic.
+ * <p>
+ * "Today" is read from the user's {@link Clock}, which tests can fix.
+ * <p>
+ * Totals and date-range queries emit a {@code com.fitnesstracker.Aggregation}
+ * Flight Recorder event when that event is enabled.
  */
 public class User {
+    // Rough sizes for estimatedBytes(): the empty user with its lock, totals, and empty rollup
+    // maps; one goal with its index entries. Workout rows and rollup buckets are counted
+    // from what they have allocated.
+    private static final long BASE_BYTES = 4096;
+    private static final long GOAL_BYTES = 256;
+
     private final String name;
     private final String userId;
-    private final List<Workout> workouts;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    private final WorkoutLog workouts;
+    private final ActivityTotals totals;
+    private final RollupCube rollups;
     private final List<Goal> goals;
+    private final GoalIntervalIndex trackedGoals;
+    private final GoalListView goalView = new GoalListView();
+    // Goals keyed by end date; the active goals are the tail after today.
+    private final NavigableMap<LocalDate, List<Goal>> goalsByEndDate = new TreeMap<>();
+    private final Clock clock;
+    private final GoalListener goalListener = new GoalListener();
+    // Run after every change to the workouts or goals; see setChangeListener.
+    private volatile Runnable changeListener;
 
     public User(String name, String userId) {
+        this(name, userId, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock The clock that decides which goals are active.
+     */
+    public User(String name, String userId, Clock clock) {
+        this(name, userId, clock, WorkoutStorage.HEAP);
+    }
+
+    /**
+     * @param clock The clock that decides which goals are active.
+     * @param storage Where the user's workouts are kept.
+     */
+    public User(String name, String userId, Clock clock, WorkoutStorage storage) {
         this.name = name;
         this.userId = userId;
-        this.workouts = new ArrayList<>();
-        this.goals = new ArrayList<>();
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null.");
+        this.workouts = new WorkoutLog(lock, Objects.requireNonNull(storage, "Storage cannot be null.").newStore());
+        this.totals = new ActivityTotals();
+        this.workouts.addListener(totals);
+        this.rollups = new RollupCube();
+        this.workouts.addListener(rollups);
+        this.goals = new CopyOnWriteArrayList<>();
+        this.trackedGoals = new GoalIntervalIndex();
+        this.workouts.addListener(trackedGoals);
+        this.workouts.addListener(new ChangeTracker());
     }
 
     public String getName() {
@@ -28,48 +92,611 @@ public class User {
         return userId;
     }
 
+    /**
+     * Runs an action while holding this user's write lock.
+     * The lock is reentrant, so the action may call other User methods.
+     *
+     * @param action The action to run.
+     * @return The action's result.
+     */
+    public <T> T write(Supplier<T> action) {
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while holding this user's read lock.
+     * The action must not change the user.
+     *
+     * @param action The action to run.
+     * @return The action's result.
+     */
+    public <T> T read(Supplier<T> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public void addWorkout(Workout workout) {
-        workouts.add(workout);
+        writeLock.lock();
+        try {
+            workouts.append(workout);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public List<Workout> getWorkouts() {
+    /**
+     * Logs a workout from its raw values without creating a Workout object.
+     * Used by bulk loaders; values must already be validated.
+     *
+     * @param seconds The duration in seconds.
+     */
+    void addWorkout(ActivityType activityType, int epochDay, int seconds) {
+        writeLock.lock();
+        try {
+            workouts.appendRow(epochDay, activityType.getId(), seconds, Workout.caloriesFor(activityType, seconds));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Logs a batch of workouts from raw values without creating Workout objects.
+     * The batch is appended under one lock acquisition.
+     * Used by bulk loaders; values must already be validated.
+     *
+     * @param minutes The durations in whole minutes.
+     * @throws ArithmeticException if a duration does not fit in an int as seconds.
+     */
+    void addWorkouts(ActivityType[] activityTypes, int[] epochDays, int[] minutes, int count) {
+        int[] seconds = new int[count];
+        for (int i = 0; i < count; i++) {
+            seconds[i] = Math.multiplyExact(minutes[i], 60);
+        }
+        addWorkoutsInSeconds(activityTypes, epochDays, seconds, count);
+    }
+
+    /**
+     * Logs a batch of workouts from raw values without creating Workout objects.
+     * The batch is appended under one lock acquisition, and the date index is sorted
+     * once for the whole batch, so loading workouts out of date order stays fast.
+     * Used by bulk loaders; values must already be validated.
+     *
+     * @param seconds The durations in seconds.
+     */
+    void addWorkoutsInSeconds(ActivityType[] activityTypes, int[] epochDays, int[] seconds, int count) {
+        writeLock.lock();
+        try {
+            workouts.appendRows(activityTypes, epochDays, seconds, count);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every workout logged, changed, or removed
+     * from now on. Listeners run while this user's write lock is held.
+     */
+    void addWorkoutListener(WorkoutListener listener) {
+        writeLock.lock();
+        try {
+            workouts.addListener(listener);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Sets a callback that runs after every change to this user's workouts or goals,
+     * e.g. so a cache knows the user must be written back. The callback may run
+     * while this user's write lock is held, and must not block on other users.
+     */
+    void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    private void changed() {
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Re-estimates the calories of every stored workout with a model, updating the
+     * per-user aggregates in the same write-locked step, so readers see either the
+     * old or the new estimates but never a mix.
+     *
+     * @param model The calorie model to apply.
+     * @param batch A batch of at least {@link WorkoutLog#BATCH_SIZE} rows to reuse.
+     * @return The number of workouts whose estimate changed.
+     */
+    long recalculateCalories(CalorieModel model, CalorieBatch batch) {
+        writeLock.lock();
+        try {
+            return workouts.recalculateCalories(model, batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Moves this user's oldest workouts out of memory into a segment file; see
+     * {@link TieredStorage}. Totals, reports, and leaderboards are not affected.
+     *
+     * @param cutoffDay Workouts before this epoch day may be moved.
+     * @param minRows The fewest workouts worth a segment.
+     * @param directory This user's segment directory.
+     * @return The number of workouts moved.
+     * @throws IOException if the segment cannot be written; the workouts then stay in memory.
+     */
+    int sealWorkouts(int cutoffDay, int minRows, Path directory) throws IOException {
+        writeLock.lock();
+        try {
+            return workouts.seal(cutoffDay, minRows, directory);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of stored workouts.
+     */
+    int workoutCount() {
+        readLock.lock();
+        try {
+            return workouts.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the memory taken by this user's workout rows (on or off the heap), rollups,
+     * goals, and indexes, for fitting users into a cache's memory budget. Reads the sizes
+     * without locking, so the figure may be slightly out of date.
+     */
+    long estimatedBytes() {
+        return BASE_BYTES + workouts.allocatedBytes() + rollups.allocatedBytes() + (long) goals.size() * GOAL_BYTES;
+    }
+
+    /**
+     * Returns the columnar workout log. Callers must hold this user's lock
+     * (see {@link #read(Supplier)}) while reading it.
+     */
+    WorkoutLog workoutLog() {
         return workouts;
     }
 
+    /**
+     * Returns the running per-activity totals. Callers must hold this user's lock
+     * (see {@link #read(Supplier)}) while reading them.
+     */
+    ActivityTotals activityTotals() {
+        return totals;
+    }
+
+    /**
+     * Returns a live view of the logged workouts.
+     * Workout objects are created on access from the columnar log.
+     * Each access is thread-safe, but a sequence of accesses is only
+     * consistent when run inside {@link #read(Supplier)} or {@link #write(Supplier)}.
+     */
+    public List<Workout> getWorkouts() {
+        return workouts.asList();
+    }
+
+    /**
+     * Adds a goal. A tracked goal (see {@link Goal#isTracked()}) starts with the
+     * progress of the workouts already logged in its date range, and from then
+     * on advances as workouts in that range are logged, changed, or removed.
+     */
     public void addGoal(Goal goal) {
+        writeLock.lock();
+        try {
+            attachGoal(goal);
+            if (goal.isTracked()) {
+                goal.updateProgress(progressOf(goal));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a goal whose progress was saved together with the workouts it counts,
+     * so it is not seeded again. Used when loading snapshots.
+     */
+    void restoreGoal(Goal goal) {
+        writeLock.lock();
+        try {
+            attachGoal(goal);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void attachGoal(Goal goal) {
         goals.add(goal);
+        goalsByEndDate.computeIfAbsent(goal.getEndDate(), end -> new ArrayList<>(1)).add(goal);
+        if (goal.isTracked()) {
+            trackedGoals.add(goal);
+        }
+        goal.setChangeListener(goalListener);
+        changed();
+    }
+
+    /**
+     * Re-indexes a goal whose date range changed and recomputes its progress if it is tracked.
+     */
+    private void goalDatesChanged(Goal goal, LocalDate previousEndDate) {
+        writeLock.lock();
+        try {
+            if (!previousEndDate.equals(goal.getEndDate())) {
+                List<Goal> previous = goalsByEndDate.get(previousEndDate);
+                previous.remove(goal);
+                if (previous.isEmpty()) {
+                    goalsByEndDate.remove(previousEndDate);
+                }
+                goalsByEndDate.computeIfAbsent(goal.getEndDate(), end -> new ArrayList<>(1)).add(goal);
+            }
+            if (goal.isTracked()) {
+                trackedGoals.rebuild();
+                goal.resetProgress(progressOf(goal));
+            }
+            changed();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Measures a tracked goal over the workouts in its date range using the date index.
+     */
+    private double progressOf(Goal goal) {
+        int from = (int) goal.getStartDate().toEpochDay();
+        int to = (int) goal.getEndDate().toEpochDay();
+        int activity = goal.getActivityType() == null ? -1 : goal.getActivityType().getId();
+        return switch (goal.getMetric()) {
+            case MINUTES -> workouts.minutesBetween(from, to, activity);
+            case CALORIES -> workouts.caloriesBetween(from, to, activity);
+            case SESSIONS -> workouts.countBetween(from, to, activity);
+            case MANUAL -> goal.getCurrentValue();
+        };
     }
 
+    /**
+     * Returns the user's goals. The list is safe to iterate while other threads add goals.
+     * Adding to the list is the same as {@link #addGoal(Goal)}.
+     */
     public List<Goal> getGoals() {
-        return goals;
+        return goalView;
     }
 
     /**
-     * Returns only active goals.
+     * Returns only active goals (ending after today), soonest end date first.
+     * Expired goals are never visited, so the cost depends only on the number of active goals.
      */
     public List<Goal> getActiveGoals() {
-        return goals.stream()
-                .filter(g -> LocalDate.now().isBefore(g.getEndDate()))
-                .toList();
+        LocalDate today = LocalDate.now(clock);
+        readLock.lock();
+        try {
+            List<Goal> active = new ArrayList<>();
+            for (List<Goal> endingSameDay : goalsByEndDate.tailMap(today, false).values()) {
+                active.addAll(endingSameDay);
+            }
+            return active;
+        } finally {
+            readLock.unlock();
+        }
     }
 
     /**
-     * Calculates total minutes spent on a specific activity type.
+     * Returns total minutes spent on a specific activity type.
+     * Totals are maintained as workouts are logged or changed.
      */
     public long getTotalWorkoutMinutes(ActivityType activityType) {
-        return workouts.stream()
-                .filter(w -> w.getActivityType() == activityType)
-                .mapToLong(w -> w.getDuration().toMinutes())
-                .sum();
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            long result = totals.minutes(activityType);
+            commitTotalsEvent(event, "minutes", activityType);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
     }
 
     /**
-     * Calculates total calories burned for a specific activity type.
+     * Returns total calories burned for a specific activity type.
+     * Totals are maintained as workouts are logged or changed.
      */
     public double getTotalCaloriesBurned(ActivityType activityType) {
-        return workouts.stream()
-                .filter(w -> w.getActivityType() == activityType)
-                .mapToDouble(Workout::getCaloriesBurned)
-                .sum();
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            double result = totals.calories(activityType);
+            commitTotalsEvent(event, "calories", activityType);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the workouts performed between two dates (inclusive), ordered by date.
+     */
+    public List<Workout> getWorkoutsBetween(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            int fromDay = (int) from.toEpochDay();
+            int toDay = (int) to.toEpochDay();
+            List<Workout> result = workouts.workoutsBetween(fromDay, toDay);
+            commitRangeEvent(event, "workouts", -1, fromDay, toDay);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns total minutes of all workouts between two dates (inclusive).
+     */
+    public long getTotalWorkoutMinutes(LocalDate from, LocalDate to) {
+        return minutesBetween(from, to, -1);
+    }
+
+    /**
+     * Returns total minutes of one activity type between two dates (inclusive).
+     */
+    public long getTotalWorkoutMinutes(ActivityType activityType, LocalDate from, LocalDate to) {
+        return minutesBetween(from, to, activityType.getId());
+    }
+
+    /**
+     * Returns total calories burned by all workouts between two dates (inclusive).
+     */
+    public double getTotalCaloriesBurned(LocalDate from, LocalDate to) {
+        return caloriesBetween(from, to, -1);
+    }
+
+    /**
+     * Returns total calories burned by one activity type between two dates (inclusive).
+     */
+    public double getTotalCaloriesBurned(ActivityType activityType, LocalDate from, LocalDate to) {
+        return caloriesBetween(from, to, activityType.getId());
+    }
+
+    /**
+     * Returns the number of workouts between two dates (inclusive).
+     */
+    public int getWorkoutCount(LocalDate from, LocalDate to) {
+        return countBetween(from, to, -1);
+    }
+
+    /**
+     * Returns the number of workouts of one activity type between two dates (inclusive).
+     */
+    public int getWorkoutCount(ActivityType activityType, LocalDate from, LocalDate to) {
+        return countBetween(from, to, activityType.getId());
+    }
+
+    /**
+     * Returns the number of workouts logged for a specific activity type.
+     */
+    public int getWorkoutCount(ActivityType activityType) {
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            int result = totals.count(activityType);
+            commitTotalsEvent(event, "count", activityType);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns per-activity totals for each day, week, or month bucket that overlaps a date range.
+     * Totals are maintained as workouts are logged or changed, so the cost depends
+     * on the number of buckets in the range, not the number of workouts.
+     */
+    public List<RollupRow> getReport(Granularity granularity, LocalDate from, LocalDate to) {
+        return report(granularity, from, to, -1);
+    }
+
+    /**
+     * Returns the totals of one activity type for each bucket that overlaps a date range.
+     */
+    public List<RollupRow> getReport(Granularity granularity, ActivityType activityType, LocalDate from, LocalDate to) {
+        return report(granularity, from, to, activityType.getId());
+    }
+
+    private List<RollupRow> report(Granularity granularity, LocalDate from, LocalDate to, int activity) {
+        Objects.requireNonNull(granularity, "Granularity cannot be null.");
+        checkRange(from, to);
+        readLock.lock();
+        try {
+            return rollups.rows(granularity, (int) from.toEpochDay(), (int) to.toEpochDay(), activity);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private long minutesBetween(LocalDate from, LocalDate to, int activity) {
+        checkRange(from, to);
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            int fromDay = (int) from.toEpochDay();
+            int toDay = (int) to.toEpochDay();
+            long result = workouts.minutesBetween(fromDay, toDay, activity);
+            commitRangeEvent(event, "minutes", activity, fromDay, toDay);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private double caloriesBetween(LocalDate from, LocalDate to, int activity) {
+        checkRange(from, to);
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            int fromDay = (int) from.toEpochDay();
+            int toDay = (int) to.toEpochDay();
+            double result = workouts.caloriesBetween(fromDay, toDay, activity);
+            commitRangeEvent(event, "calories", activity, fromDay, toDay);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private int countBetween(LocalDate from, LocalDate to, int activity) {
+        checkRange(from, to);
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        readLock.lock();
+        try {
+            int fromDay = (int) from.toEpochDay();
+            int toDay = (int) to.toEpochDay();
+            int result = workouts.countBetween(fromDay, toDay, activity);
+            commitRangeEvent(event, "count", activity, fromDay, toDay);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Emits an aggregation event for a read of the running totals, which scans no workouts.
+     */
+    private void commitTotalsEvent(AggregationEvent event, String metric, ActivityType activityType) {
+        event.end();
+        if (event.shouldCommit()) {
+            commitAggregation(event, metric, activityType.getName(), 0);
+        }
+    }
+
+    /**
+     * Emits an aggregation event for a scan of the workouts between two epoch days.
+     * The lock must be held, since the scanned workouts are counted from the date index.
+     */
+    private void commitRangeEvent(AggregationEvent event, String metric, int activity, int fromDay, int toDay) {
+        event.end();
+        if (event.shouldCommit()) {
+            int scanned = workouts.rowsScannedBetween(fromDay, toDay);
+            commitAggregation(event, metric, activity < 0 ? "All" : ActivityType.byId(activity).getName(), scanned);
+        }
+    }
+
+    private void commitAggregation(AggregationEvent event, String metric, String activity, int workoutsScanned) {
+        event.userId = userId;
+        event.metric = metric;
+        event.activity = activity;
+        event.workoutsScanned = workoutsScanned;
+        event.commit();
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        Objects.requireNonNull(from, "Start date cannot be null.");
+        Objects.requireNonNull(to, "End date cannot be null.");
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+    }
+
+    /**
+     * Re-indexes this user's goals when their dates change and reports every goal change.
+     */
+    private final class GoalListener implements Goal.ChangeListener {
+        @Override
+        public void goalChanged(Goal goal) {
+            changed();
+        }
+
+        @Override
+        public void goalDatesChanged(Goal goal, LocalDate previousEndDate) {
+            User.this.goalDatesChanged(goal, previousEndDate);
+        }
+    }
+
+    /**
+     * Reports every workout change to the change listener.
+     */
+    private final class ChangeTracker implements WorkoutListener {
+        @Override
+        public void workoutAdded(int epochDay, int activity, int minutes, double calories) {
+            changed();
+        }
+
+        @Override
+        public void workoutRemoved(int epochDay, int activity, int minutes, double calories) {
+            changed();
+        }
+
+        @Override
+        public void caloriesChanged(CalorieBatch batch) {
+            changed();
+        }
+    }
+
+    /**
+     * Goal list that keeps the tracked goal index in step with the goals.
+     */
+    private final class GoalListView extends AbstractList<Goal> {
+        @Override
+        public Goal get(int index) {
+            return goals.get(index);
+        }
+
+        @Override
+        public int size() {
+            return goals.size();
+        }
+
+        @Override
+        public Iterator<Goal> iterator() {
+            return goals.iterator();
+        }
+
+        @Override
+        public boolean add(Goal goal) {
+            addGoal(goal);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            writeLock.lock();
+            try {
+                for (Goal goal : goals) {
+                    goal.setChangeListener(null);
+                }
+                goals.clear();
+                goalsByEndDate.clear();
+                trackedGoals.clear();
+                changed();
+            } finally {
+                writeLock.unlock();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.fitnesstracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes organisation-wide workout statistics over all users in parallel.
+ * <p>
+ * The users are split into ranges that a {@link ForkJoinPool} works on
+ * independently. Each range builds its own partial result from the running
+ * per-activity totals every user already keeps, so no workout is visited and
+ * no state is shared between workers; partial results are merged pairwise
+ * on the way back up. The cost is O(users / cores).
+ * <p>
+ * Each user is read under its own read lock, so the report is consistent per
+ * user but may mix users read before and after concurrent changes.
+ */
+public class UserAnalytics {
+    /** Ranges with at most this many users are analysed without splitting further. */
+    static final int SPLIT_THRESHOLD = 256;
+    /**
+     * Users are taken from the collection this many at a time, so a registry that reads
+     * users from disk on demand only has one chunk of them held by the pass.
+     */
+    static final int CHUNK_USERS = 4096;
+    private static final int HISTOGRAM_BANDS = 64;
+
+    private final ForkJoinPool pool;
+
+    public UserAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool The pool that runs the analysis.
+     */
+    public UserAnalytics(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "Pool cannot be null.");
+    }
+
+    /**
+     * Analyses a set of users, typically {@link UserRegistry#users()}.
+     *
+     * @param users The users to analyse.
+     * @return The merged statistics.
+     */
+    public AnalyticsReport analyze(Collection<User> users) {
+        Objects.requireNonNull(users, "Users cannot be null.");
+        long start = System.nanoTime();
+        Partial result = new Partial();
+        User[] chunk = new User[CHUNK_USERS];
+        int count = 0;
+        for (User user : users) {
+            chunk[count++] = user;
+            if (count == chunk.length) {
+                result.merge(pool.invoke(new AnalyzeTask(chunk, 0, count)));
+                count = 0;
+            }
+        }
+        result.merge(pool.invoke(new AnalyzeTask(chunk, 0, count)));
+        return result.toReport(System.nanoTime() - start);
+    }
+
+    /**
+     * Splits a range of users in half until it is small enough to analyse directly.
+     */
+    private static final class AnalyzeTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final User[] users;
+        private final int from;
+        private final int to;
+
+        AnalyzeTask(User[] users, int from, int to) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Partial partial = new Partial();
+                ActivityType[] activityTypes = ActivityType.values();
+                for (int i = from; i < to; i++) {
+                    partial.addUser(users[i], activityTypes);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            AnalyzeTask left = new AnalyzeTask(users, from, middle);
+            left.fork();
+            Partial right = new AnalyzeTask(users, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Mergeable statistics of a range of users.
+     */
+    private static final class Partial {
+        private int users;
+        private int activeUsers;
+        private Accumulator[] byActivity = new Accumulator[0];
+
+        void addUser(User user, ActivityType[] activityTypes) {
+            users++;
+            boolean active = user.read(() -> {
+                ActivityTotals totals = user.activityTotals();
+                boolean any = false;
+                for (ActivityType activityType : activityTypes) {
+                    int count = totals.count(activityType);
+                    if (count > 0) {
+                        accumulator(activityType.getId())
+                                .addUser(count, totals.minutes(activityType), totals.calories(activityType));
+                        any = true;
+                    }
+                }
+                return any;
+            });
+            if (active) {
+                activeUsers++;
+            }
+        }
+
+        Partial merge(Partial other) {
+            users += other.users;
+            activeUsers += other.activeUsers;
+            for (int id = 0; id < other.byActivity.length; id++) {
+                if (other.byActivity[id] != null) {
+                    accumulator(id).merge(other.byActivity[id]);
+                }
+            }
+            return this;
+        }
+
+        private Accumulator accumulator(int activity) {
+            if (activity >= byActivity.length) {
+                byActivity = Arrays.copyOf(byActivity, activity + 1);
+            }
+            Accumulator accumulator = byActivity[activity];
+            if (accumulator == null) {
+                accumulator = new Accumulator();
+                byActivity[activity] = accumulator;
+            }
+            return accumulator;
+        }
+
+        AnalyticsReport toReport(long elapsedNanos) {
+            List<ActivityStatistics> activities = new ArrayList<>();
+            long workouts = 0;
+            long minutes = 0;
+            double calories = 0.0;
+            for (int id = 0; id < byActivity.length; id++) {
+                Accumulator accumulator = byActivity[id];
+                if (accumulator != null) {
+                    activities.add(accumulator.toStatistics(ActivityType.byId(id)));
+                    workouts += accumulator.workouts;
+                    minutes += accumulator.minutes;
+                    calories += accumulator.calories;
+                }
+            }
+            return new AnalyticsReport(users, activeUsers, workouts, minutes, calories,
+                    List.copyOf(activities), elapsedNanos);
+        }
+    }
+
+    /**
+     * Totals of one activity, plus the moments and histogram of minutes per user.
+     */
+    private static final class Accumulator {
+        private int users;
+        private long workouts;
+        private long minutes;
+        private double calories;
+        private long minUserMinutes = Long.MAX_VALUE;
+        private long maxUserMinutes = Long.MIN_VALUE;
+        private double sumSquaredUserMinutes;
+        private final long[] histogram = new long[HISTOGRAM_BANDS];
+
+        void addUser(int count, long userMinutes, double userCalories) {
+            users++;
+            workouts += count;
+            minutes += userMinutes;
+            calories += userCalories;
+            minUserMinutes = Math.min(minUserMinutes, userMinutes);
+            maxUserMinutes = Math.max(maxUserMinutes, userMinutes);
+            sumSquaredUserMinutes += (double) userMinutes * userMinutes;
+            histogram[band(userMinutes)]++;
+        }
+
+        void merge(Accumulator other) {
+            users += other.users;
+            workouts += other.workouts;
+            minutes += other.minutes;
+            calories += other.calories;
+            minUserMinutes = Math.min(minUserMinutes, other.minUserMinutes);
+            maxUserMinutes = Math.max(maxUserMinutes, other.maxUserMinutes);
+            sumSquaredUserMinutes += other.sumSquaredUserMinutes;
+            for (int band = 0; band < HISTOGRAM_BANDS; band++) {
+                histogram[band] += other.histogram[band];
+            }
+        }
+
+        ActivityStatistics toStatistics(ActivityType activityType) {
+            double average = (double) minutes / users;
+            double variance = Math.max(0.0, sumSquaredUserMinutes / users - average * average);
+            int bands = HISTOGRAM_BANDS;
+            while (bands > 1 && histogram[bands - 1] == 0) {
+                bands--;
+            }
+            return new ActivityStatistics(activityType, users, workouts, minutes, calories,
+                    minUserMinutes, maxUserMinutes, average, Math.sqrt(variance), calories / users,
+                    Arrays.copyOf(histogram, bands));
+        }
+
+        private static int band(long userMinutes) {
+            return userMinutes <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(userMinutes);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Users of a bounded {@link UserRegistry}: the recently used ones in memory, the
+ * rest in one file per user, read back when they are looked up again.
+ * <p>
+ * Users in memory are kept in least-recently-used order and weighed with
+ * {@link User#estimatedBytes()} as of their last lookup. When the total is over
+ * the budget, the least recently used users are evicted. An evicted user that
+ * changed since it was last read or written is written to its file; an unchanged
+ * one is just dropped. The files are a spill area for this run, written in the
+ * {@link Snapshot} layout; the snapshot and journal remain the saved state.
+ * <p>
+ * An evicted user stays reachable through a weak reference until it is garbage
+ * collected, so a thread that still holds it and a later lookup share one object,
+ * and a change made to it after eviction puts it back in memory instead of being lost.
+ * <p>
+ * Lookups and eviction are guarded by the cache's monitor. Files are read and
+ * written outside it: concurrent misses of one user share a single read, and
+ * write-backs run at the end of the next lookup or creation, under the user's
+ * read lock. Callers must therefore not look users up while holding
+ * another user's lock.
+ */
+final class UserCache implements UserCacheMXBean {
+    static final String OBJECT_NAME = "com.fitnesstracker:type=UserCache";
+
+    private final Path directory;
+    private final long budgetBytes;
+    private final BiFunction<String, String, User> factory;
+    private final Consumer<User> onLoad;
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this.
+    private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, EvictedRef> evicted = new HashMap<>();
+    private final ReferenceQueue<Entry> collected = new ReferenceQueue<>();
+    private final Map<String, CompletableFuture<Entry>> loading = new HashMap<>();
+    private final List<Entry> pendingWriteBacks = new ArrayList<>();
+    private long residentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+
+    /**
+     * A cached user with its cache state.
+     */
+    private static final class Entry {
+        final User user;
+        // Set by every change; cleared under the user's read lock just before the user is written.
+        volatile boolean dirty;
+        volatile boolean resident;
+        long bytes; // Guarded by the cache
+
+        Entry(User user, boolean dirty) {
+            this.user = user;
+            this.dirty = dirty;
+        }
+    }
+
+    private static final class EvictedRef extends WeakReference<Entry> {
+        final String userId;
+
+        EvictedRef(Entry entry, ReferenceQueue<Entry> queue) {
+            super(entry, queue);
+            this.userId = entry.user.getUserId();
+        }
+    }
+
+    /**
+     * @param directory Where evicted users are written.
+     * @param budgetBytes The estimated memory the users in memory may take.
+     * @param factory Creates an empty user from a name and ID, for reading a user from disk.
+     * @param onLoad Runs on a user read from disk once its workouts and goals are restored.
+     */
+    UserCache(Path directory, long budgetBytes, BiFunction<String, String, User> factory, Consumer<User> onLoad) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Cache budget must be positive.");
+        }
+        this.directory = directory;
+        this.budgetBytes = budgetBytes;
+        this.factory = factory;
+        this.onLoad = onLoad;
+    }
+
+    /**
+     * Returns a user, reading it from disk if it is not in memory.
+     *
+     * @return The user, or null if no user has that ID.
+     * @throws UncheckedIOException if the user cannot be read or an evicted user cannot be written.
+     */
+    User get(String userId) {
+        CompletableFuture<Entry> load;
+        boolean loader = false;
+        synchronized (this) {
+            Entry entry = lookup(userId);
+            if (entry != null) {
+                hits.increment();
+                load = CompletableFuture.completedFuture(entry);
+            } else if (!ids.contains(userId)) {
+                return null;
+            } else {
+                load = loading.get(userId);
+                if (load == null) {
+                    load = new CompletableFuture<>();
+                    loading.put(userId, load);
+                    loader = true;
+                    misses.increment();
+                }
+            }
+        }
+        if (loader) {
+            load(userId, load);
+        }
+        Entry entry;
+        try {
+            entry = load.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException cause ? cause : e;
+        }
+        writePending();
+        return entry.user;
+    }
+
+    /**
+     * Adds a new user unless the ID is taken.
+     *
+     * @param userId The user ID.
+     * @param newUser Creates the user.
+     * @return The new user, or null if the ID is taken.
+     */
+    User create(String userId, Supplier<User> newUser) {
+        User user;
+        synchronized (this) {
+            if (!ids.add(userId)) {
+                return null;
+            }
+            user = newUser.get();
+            // A new user has no file yet, so it must be written if evicted.
+            admit(track(new Entry(user, true)));
+        }
+        writePending();
+        return user;
+    }
+
+    /**
+     * Returns the IDs of all users, in memory or not. The set is a live, read-only view.
+     */
+    Set<String> ids() {
+        return Collections.unmodifiableSet(ids);
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the users currently held in memory.
+     */
+    synchronized List<User> residentUsers() {
+        List<User> users = new ArrayList<>(resident.size());
+        for (Entry entry : resident.values()) {
+            users.add(entry.user);
+        }
+        return users;
+    }
+
+    synchronized UserCacheStats stats() {
+        return new UserCacheStats(ids.size(), resident.size(), residentBytes, budgetBytes,
+                hits.sum(), misses.sum(), evictions.sum(), writeBacks.sum());
+    }
+
+    /**
+     * Registers the cache counters with the platform MBean server as {@value #OBJECT_NAME}.
+     *
+     * @throws JMException if the MBean cannot be registered, e.g. because the name is taken.
+     */
+    void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Returns the file an evicted user is written to.
+     */
+    Path fileOf(String userId) {
+        byte[] encoded = userId.getBytes(StandardCharsets.UTF_8);
+        return directory.resolve(Base64.getUrlEncoder().withoutPadding().encodeToString(encoded) + ".user");
+    }
+
+    private void load(String userId, CompletableFuture<Entry> load) {
+        try {
+            User user = Snapshot.readUser(fileOf(userId), factory);
+            onLoad.accept(user);
+            Entry entry = track(new Entry(user, false));
+            synchronized (this) {
+                loading.remove(userId);
+                admit(entry);
+            }
+            load.complete(entry);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(userId);
+            }
+            load.completeExceptionally(e instanceof IOException io
+                    ? new UncheckedIOException("Could not read user " + userId, io) : e);
+        }
+    }
+
+    private Entry track(Entry entry) {
+        entry.user.setChangeListener(() -> changed(entry));
+        return entry;
+    }
+
+    /**
+     * Marks a user as changed; a user changed after it was evicted is taken back into memory.
+     * Runs under the user's write lock, so any eviction it causes is written back later.
+     */
+    private void changed(Entry entry) {
+        entry.dirty = true;
+        if (!entry.resident) {
+            synchronized (this) {
+                if (!entry.resident) {
+                    admit(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds a user in memory, or an evicted one that is still reachable, and marks it most recently used.
+     */
+    private Entry lookup(String userId) {
+        expungeCollected();
+        Entry entry = resident.get(userId);
+        if (entry != null) {
+            long bytes = entry.user.estimatedBytes();
+            residentBytes += bytes - entry.bytes;
+            entry.bytes = bytes;
+            evictOverBudget();
+            return entry;
+        }
+        EvictedRef ref = evicted.get(userId);
+        entry = ref == null ? null : ref.get();
+        if (entry != null) {
+            admit(entry);
+        }
+        return entry;
+    }
+
+    private void admit(Entry entry) {
+        String userId = entry.user.getUserId();
+        evicted.remove(userId);
+        entry.bytes = entry.user.estimatedBytes();
+        entry.resident = true;
+        resident.put(userId, entry);
+        residentBytes += entry.bytes;
+        evictOverBudget();
+    }
+
+    /**
+     * Evicts the least recently used users until the rest fit the budget.
+     * The most recently used user always stays, however large it is.
+     */
+    private void evictOverBudget() {
+        Iterator<Entry> eldest = resident.values().iterator();
+        while (residentBytes > budgetBytes && resident.size() > 1) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            residentBytes -= entry.bytes;
+            entry.resident = false;
+            evicted.put(entry.user.getUserId(), new EvictedRef(entry, collected));
+            evictions.increment();
+            if (entry.dirty) {
+                pendingWriteBacks.add(entry);
+            }
+        }
+    }
+
+    private void expungeCollected() {
+        EvictedRef ref;
+        while ((ref = (EvictedRef) collected.poll()) != null) {
+            evicted.remove(ref.userId, ref);
+        }
+    }
+
+    /**
+     * Writes back the evicted users that changed. Must be called without holding the cache's monitor.
+     */
+    private void writePending() {
+        List<Entry> entries;
+        synchronized (this) {
+            if (pendingWriteBacks.isEmpty()) {
+                return;
+            }
+            entries = new ArrayList<>(pendingWriteBacks);
+            pendingWriteBacks.clear();
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            try {
+                writeBack(entries.get(i));
+            } catch (UncheckedIOException e) {
+                // Keep the users that were not written in memory, so their changes are not lost.
+                for (Entry entry : entries.subList(i, entries.size())) {
+                    changed(entry);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void writeBack(Entry entry) {
+        // One write per user at a time; a user evicted again while being written waits here.
+        synchronized (entry) {
+            entry.user.read(() -> {
+                if (entry.dirty) {
+                    entry.dirty = false;
+                    try {
+                        Files.createDirectories(directory);
+                        Snapshot.writeUser(fileOf(entry.user.getUserId()), entry.user);
+                    } catch (IOException e) {
+                        entry.dirty = true;
+                        throw new UncheckedIOException("Could not write user " + entry.user.getUserId(), e);
+                    }
+                    writeBacks.increment();
+                }
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public int getUsers() {
+        return ids.size();
+    }
+
+    @Override
+    public synchronized int getResidentUsers() {
+        return resident.size();
+    }
+
+    @Override
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    @Override
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getWriteBacks() {
+        return writeBacks.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return stats().hitRatio();
+    }
+}
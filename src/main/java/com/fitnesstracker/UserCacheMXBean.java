@@ -0,0 +1,25 @@
+package com.fitnesstracker;
+
+/**
+ * JMX view of the user cache of a bounded {@link UserRegistry}; see {@link UserCacheStats}.
+ */
+public interface UserCacheMXBean {
+
+    int getUsers();
+
+    int getResidentUsers();
+
+    long getResidentBytes();
+
+    long getBudgetBytes();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    long getWriteBacks();
+
+    double getHitRatio();
+}
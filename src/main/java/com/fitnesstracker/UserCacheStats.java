@@ -0,0 +1,25 @@
+package com.fitnesstracker;
+
+/**
+ * Counters of a bounded {@link UserRegistry}'s user cache.
+ *
+ * @param users The number of users in the registry, in memory or not.
+ * @param residentUsers The number of users held in memory.
+ * @param residentBytes The estimated memory taken by the users held in memory.
+ * @param budgetBytes The memory budget the cache evicts users to stay under.
+ * @param hits Lookups answered from memory.
+ * @param misses Lookups that read the user from disk.
+ * @param evictions Users dropped from memory to stay within the budget.
+ * @param writeBacks Changed users written to disk when evicted.
+ */
+public record UserCacheStats(int users, int residentUsers, long residentBytes, long budgetBytes,
+                             long hits, long misses, long evictions, long writeBacks) {
+
+    /**
+     * Returns the share of lookups answered from memory, or 0 if there were none.
+     */
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,200 @@
+package com.fitnesstracker;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+
+/**
+ * Registry of all users, indexed by user ID.
+ * Lookups are O(1) and safe to call from many threads while users are being created.
+ * Every user's workouts are counted on the registry's {@link Leaderboards}.
+ * <p>
+ * By default every user is kept in memory. A registry created with a cache
+ * budget keeps only the recently used users in memory and the rest on disk,
+ * reading them back when they are looked up; see {@link UserCache}. Lookups
+ * in such a registry must not be made while holding a user's lock.
+ */
+public class UserRegistry {
+    private final ConcurrentMap<String, User> usersById = new ConcurrentHashMap<>();
+    private final UserCache cache; // Null when every user is kept in memory
+    private final Clock clock;
+    private final WorkoutStorage storage;
+    private final Leaderboards leaderboards;
+
+    public UserRegistry() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock The clock given to every user created by this registry.
+     */
+    public UserRegistry(Clock clock) {
+        this(clock, WorkoutStorage.HEAP);
+    }
+
+    /**
+     * @param clock The clock given to every user created by this registry.
+     * @param storage Where every user created by this registry keeps its workouts.
+     */
+    public UserRegistry(Clock clock, WorkoutStorage storage) {
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null.");
+        this.storage = Objects.requireNonNull(storage, "Storage cannot be null.");
+        this.leaderboards = new Leaderboards(clock);
+        this.cache = null;
+    }
+
+    /**
+     * Creates a registry that keeps users in memory only up to a budget.
+     * Users evicted to stay within it are written to files in a directory,
+     * which replace files of the same name left by an earlier run.
+     *
+     * @param clock The clock given to every user created by this registry.
+     * @param storage Where every user created by this registry keeps its workouts.
+     * @param cacheDirectory Where users that do not fit in memory are written.
+     * @param cacheBytes The estimated memory the users kept in memory may take.
+     */
+    public UserRegistry(Clock clock, WorkoutStorage storage, Path cacheDirectory, long cacheBytes) {
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null.");
+        this.storage = Objects.requireNonNull(storage, "Storage cannot be null.");
+        this.leaderboards = new Leaderboards(clock);
+        // Users read back from disk are already counted on the leaderboards, so the
+        // leaderboard listener is only attached once their workouts are restored.
+        this.cache = new UserCache(Objects.requireNonNull(cacheDirectory, "Cache directory cannot be null."),
+                cacheBytes, (name, userId) -> new User(name, userId, clock, storage),
+                user -> user.addWorkoutListener(leaderboards.listenerFor(user)));
+    }
+
+    /**
+     * Finds a user by ID.
+     *
+     * @param userId The user ID.
+     * @return The matching user, or null if no user has that ID.
+     */
+    public User find(String userId) {
+        Objects.requireNonNull(userId, "User ID cannot be null.");
+        return cache != null ? cache.get(userId) : usersById.get(userId);
+    }
+
+    /**
+     * Atomically creates a user unless the ID is already taken.
+     *
+     * @param name The user's name.
+     * @param userId The unique user ID.
+     * @return The new user, or null if a user with that ID already exists.
+     */
+    public User create(String name, String userId) {
+        Objects.requireNonNull(userId, "User ID cannot be null.");
+        if (cache != null) {
+            return cache.create(userId, () -> newUser(name, userId));
+        }
+        User candidate = newUser(name, userId);
+        return usersById.putIfAbsent(userId, candidate) == null ? candidate : null;
+    }
+
+    private User newUser(String name, String userId) {
+        User user = new User(name, userId, clock, storage);
+        user.addWorkoutListener(leaderboards.listenerFor(user));
+        return user;
+    }
+
+    /**
+     * Returns the calorie leaderboards of all users in this registry.
+     */
+    public Leaderboards leaderboards() {
+        return leaderboards;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        return cache != null ? cache.size() : usersById.size();
+    }
+
+    /**
+     * Returns a read-only, weakly consistent view of all registered users.
+     * With a cache budget, iterating the view reads users that are not in memory
+     * back from disk one at a time, so callers should not hold on to all of them.
+     */
+    public Collection<User> users() {
+        if (cache == null) {
+            return Collections.unmodifiableCollection(usersById.values());
+        }
+        Set<String> ids = cache.ids();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                Iterator<String> remaining = ids.iterator();
+                return new Iterator<>() {
+                    private User next = advance();
+
+                    private User advance() {
+                        while (remaining.hasNext()) {
+                            User user = cache.get(remaining.next());
+                            if (user != null) {
+                                return user;
+                            }
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public User next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        User user = next;
+                        next = advance();
+                        return user;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the users currently held in memory: all users, unless the registry has a cache budget.
+     */
+    public Collection<User> residentUsers() {
+        return cache != null ? Collections.unmodifiableList(cache.residentUsers()) : users();
+    }
+
+    /**
+     * Returns the counters of the user cache, or null if every user is kept in memory.
+     */
+    public UserCacheStats cacheStats() {
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * Registers the user cache counters with the platform MBean server as
+     * {@code com.fitnesstracker:type=UserCache}. Does nothing if every user is kept in memory.
+     *
+     * @throws JMException if the MBean cannot be registered, e.g. because the name is taken.
+     */
+    public void registerCacheMBean() throws JMException {
+        if (cache != null) {
+            cache.registerMBean();
+        }
+    }
+}
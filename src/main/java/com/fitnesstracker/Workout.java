@@ -9,11 +9,20 @@ import java.util.Objects;
  * activity type, duration, date, and calories burned.
  */
 public class Workout {
+    // Used for every new or changed workout; CalorieRecalculator applies a new model to stored ones.
+    private static volatile CalorieModel calorieModel = CalorieModel.catalogRates();
+
     private ActivityType activityType;
     private Duration duration;
     private LocalDate date;
     private double caloriesBurned;
 
+    // Set once the workout is stored in a user's log; changes are then written back to its row,
+    // which notifies the owning user's aggregates.
+    private WorkoutLog log;
+    private int row;
+    private int generation;
+
     /**
      * Constructs a new Workout instance.
      *
@@ -27,6 +36,31 @@ public class Workout {
         setDate(Objects.requireNonNull(date, "Date cannot be null."));
         setDuration(duration);
         calculateCaloriesBurned();
+        recordCreated(false);
+    }
+
+    /**
+     * Creates a view of a stored workout row. The values were validated when the
+     * workout was stored, and the calories are the row's stored estimate, which may
+     * come from an earlier calorie model, so nothing is validated or recalculated.
+     */
+    Workout(ActivityType activityType, Duration duration, LocalDate date, double caloriesBurned) {
+        this.activityType = activityType;
+        this.duration = duration;
+        this.date = date;
+        this.caloriesBurned = caloriesBurned;
+        recordCreated(true);
+    }
+
+    private void recordCreated(boolean view) {
+        WorkoutCreatedEvent event = new WorkoutCreatedEvent();
+        if (event.isEnabled()) {
+            event.activity = activityType.getName();
+            event.minutes = duration.toMinutes();
+            event.epochDay = date.toEpochDay();
+            event.view = view;
+            event.commit();
+        }
     }
 
     /**
@@ -46,6 +80,7 @@ public class Workout {
     public void setActivityType(ActivityType activityType) {
         this.activityType = Objects.requireNonNull(activityType, "Activity type cannot be null.");
         calculateCaloriesBurned();
+        writeBack();
     }
 
     /**
@@ -70,6 +105,7 @@ public class Workout {
         }
         this.duration = duration;
         calculateCaloriesBurned();
+        writeBack();
     }
 
     /**
@@ -88,6 +124,7 @@ public class Workout {
      */
     public void setDate(LocalDate date) {
         this.date = Objects.requireNonNull(date, "Date cannot be null.");
+        writeBack();
     }
 
     /**
@@ -105,12 +142,49 @@ public class Workout {
      */
     private void calculateCaloriesBurned() {
         if (activityType!= null && duration!= null) {
-            this.caloriesBurned = activityType.getCaloriesPerMinute() * duration.toMinutes();
+            this.caloriesBurned = caloriesFor(activityType, duration.getSeconds());
         } else {
             this.caloriesBurned = 0.0;
         }
     }
 
+    /**
+     * Estimates the calories burned by an activity over a number of seconds with the current model.
+     * Shared with code that stores workouts without creating Workout objects.
+     */
+    static double caloriesFor(ActivityType activityType, long seconds) {
+        return calorieModel.caloriesFor(activityType, seconds);
+    }
+
+    /**
+     * Returns the calorie model used for new and changed workouts.
+     */
+    public static CalorieModel calorieModel() {
+        return calorieModel;
+    }
+
+    /**
+     * Replaces the calorie model. Stored workouts keep their estimates until recalculated.
+     */
+    static void setCalorieModel(CalorieModel model) {
+        calorieModel = Objects.requireNonNull(model, "Calorie model cannot be null.");
+    }
+
+    /**
+     * Binds this workout to a row of a workout log.
+     */
+    void attach(WorkoutLog log, int row, int generation) {
+        this.log = log;
+        this.row = row;
+        this.generation = generation;
+    }
+
+    private void writeBack() {
+        if (log != null) {
+            log.update(this, row, generation);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("Activity: %s, Duration: %d minutes, Date: %s, Calories Burned: %.2f",
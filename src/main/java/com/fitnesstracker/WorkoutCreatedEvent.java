@@ -0,0 +1,34 @@
+package com.fitnesstracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for each Workout object created: new workouts, and views of stored
+ * workouts (such as the elements of {@link User#getWorkouts()}), marked as views.
+ * Disabled by default because of its volume.
+ */
+@Name("com.fitnesstracker.WorkoutCreated")
+@Label("Workout Created")
+@Category({"Fitness Tracker", "Workouts"})
+@Enabled(false)
+@StackTrace(false)
+final class WorkoutCreatedEvent extends Event {
+    @Label("Activity")
+    String activity;
+
+    @Label("Minutes")
+    long minutes;
+
+    @Label("Epoch Day")
+    long epochDay;
+
+    @Label("View")
+    @Description("Whether the object is a view of a stored workout rather than a new workout")
+    boolean view;
+}
@@ -0,0 +1,181 @@
+package com.fitnesstracker;
+
+import java.util.Arrays;
+
+/**
+ * Index of workout rows ordered by epoch day.
+ * Rows are kept sorted by (epoch day, row), so the rows of any date window
+ * form one contiguous run that is found with two binary searches.
+ * Workouts logged in date order are appended in O(1); back-dated workouts
+ * shift the entries after their position. Bulk loads instead {@link #append}
+ * their rows unsorted and call {@link #sortFrom} once, which sorts only the
+ * new entries and merges them in with one pass over the older ones.
+ */
+final class WorkoutDateIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] days = new int[INITIAL_CAPACITY];
+    private int[] rows = new int[INITIAL_CAPACITY];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bytes held by the index, including room not yet used.
+     */
+    long allocatedBytes() {
+        return (long) days.length * Integer.BYTES * 2;
+    }
+
+    void insert(int row, int epochDay) {
+        ensureRoom();
+        int position = (size == 0 || compare(size - 1, epochDay, row) < 0)
+                ? size
+                : search(epochDay, row);
+        System.arraycopy(days, position, days, position + 1, size - position);
+        System.arraycopy(rows, position, rows, position + 1, size - position);
+        days[position] = epochDay;
+        rows[position] = row;
+        size++;
+    }
+
+    /**
+     * Adds an entry at the end without keeping the order. The index must not be
+     * searched until {@link #sortFrom} has been called for the appended entries.
+     */
+    void append(int row, int epochDay) {
+        ensureRoom();
+        days[size] = epochDay;
+        rows[size] = row;
+        size++;
+    }
+
+    /**
+     * Restores the order after entries were appended from a position on:
+     * sorts the appended entries and merges them with the sorted ones before them.
+     */
+    void sortFrom(int from) {
+        int count = size - from;
+        if (count == 0) {
+            return;
+        }
+        long[] keys = new long[count];
+        boolean ordered = true;
+        for (int i = 0; i < count; i++) {
+            keys[i] = key(from + i);
+            ordered &= i == 0 || keys[i - 1] < keys[i];
+        }
+        if (ordered && (from == 0 || key(from - 1) < keys[0])) {
+            return;
+        }
+        if (!ordered) {
+            Arrays.sort(keys);
+        }
+        // Merge from the largest entry down, so no sorted entry is overwritten before it is moved.
+        int left = from - 1;
+        int right = count - 1;
+        for (int target = size - 1; right >= 0; target--) {
+            if (left >= 0 && key(left) > keys[right]) {
+                days[target] = days[left];
+                rows[target] = rows[left];
+                left--;
+            } else {
+                days[target] = (int) (keys[right] >> 32);
+                rows[target] = (int) keys[right];
+                right--;
+            }
+        }
+    }
+
+    void remove(int row, int epochDay) {
+        int position = search(epochDay, row);
+        if (position == size || days[position] != epochDay || rows[position] != row) {
+            throw new IllegalStateException("Workout row " + row + " is not indexed on day " + epochDay + ".");
+        }
+        System.arraycopy(days, position + 1, days, position, size - position - 1);
+        System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+        size--;
+    }
+
+    /**
+     * Drops the entries of rows below a row number and renumbers the rest to start at 0.
+     * Subtracting the same amount from every row keeps the entries in order.
+     */
+    void dropRowsBelow(int firstKept) {
+        int kept = 0;
+        for (int position = 0; position < size; position++) {
+            if (rows[position] >= firstKept) {
+                days[kept] = days[position];
+                rows[kept] = rows[position] - firstKept;
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    void clear() {
+        days = new int[INITIAL_CAPACITY];
+        rows = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns the position of the first entry on or after the given day.
+     */
+    int firstOnOrAfter(int epochDay) {
+        return search(epochDay, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Returns the position just past the last entry on or before the given day.
+     */
+    int endOnOrBefore(int epochDay) {
+        return search(epochDay + 1, Integer.MIN_VALUE);
+    }
+
+    int rowAt(int position) {
+        return rows[position];
+    }
+
+    int dayAt(int position) {
+        return days[position];
+    }
+
+    /**
+     * Returns the first position whose entry is not less than (epochDay, row).
+     */
+    private int search(int epochDay, int row) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, epochDay, row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureRoom() {
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size * 2);
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+    }
+
+    /**
+     * Packs an entry into a long that sorts like (epoch day, row); rows are never negative.
+     */
+    private long key(int position) {
+        return ((long) days[position] << 32) | rows[position];
+    }
+
+    private int compare(int position, int epochDay, int row) {
+        int byDay = Integer.compare(days[position], epochDay);
+        return byDay != 0 ? byDay : Integer.compare(rows[position], row);
+    }
+}
@@ -0,0 +1,348 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streams users with their workouts and goals to a CSV, JSON-lines, or binary file.
+ * <p>
+ * CSV and JSON lines hold one record per line: a user, then their workouts in
+ * the order they were logged, then their goals. CSV lines start with the record
+ * type, as described by the comment lines at the top of the file:
+ * <pre>
+ * user,userId,name
+ * workout,userId,activity,minutes,date,calories
+ * goal,userId,title,target,current,start,end,metric,activity
+ * </pre>
+ * JSON lines are flat objects with a {@code "type"} field. Workout lines carry the
+ * {@code "activity"}, {@code "minutes"} and {@code "date"} fields that
+ * {@link WorkoutImporter} reads, so they can be imported again. The binary
+ * format is the {@link Snapshot} layout.
+ * <p>
+ * Lines are built in one reusable buffer straight from the columnar workout log,
+ * with the {@link ListingRenderer} date and number formatting, encoded into one
+ * reusable direct buffer, and written to a {@link FileChannel} whenever it fills,
+ * so no Workout objects, per-line Strings, or lists of records are created.
+ * Each user is written under its read lock. A binary export of all users copies
+ * the snapshot file with {@link FileChannel#transferTo} when the journal shows
+ * it is the complete saved state, so nothing is encoded at all.
+ * <p>
+ * Not thread-safe; the CLI uses one exporter per command.
+ */
+final class WorkoutExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final List<String> CSV_HEADER = List.of(
+            "# user,userId,name",
+            "# workout,userId,activity,minutes,date,calories",
+            "# goal,userId,title,target,current,start,end,metric,activity");
+
+    /**
+     * The file formats an export can be written in.
+     */
+    enum Format {
+        CSV("csv"),
+        JSON_LINES("jsonl"),
+        BINARY("binary");
+
+        private final String name;
+
+        Format(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the format with the given name, ignoring case.
+         *
+         * @throws IllegalArgumentException if no format has that name.
+         */
+        static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name.equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + name + ". Use csv, jsonl or binary.");
+        }
+    }
+
+    /**
+     * Outcome of an export.
+     *
+     * @param users Number of users exported.
+     * @param workouts Number of workouts exported; not counted in binary exports.
+     * @param goals Number of goals exported; not counted in binary exports.
+     * @param bytes Size of the written file.
+     * @param snapshotCopied Whether the snapshot file was copied instead of encoding the users.
+     */
+    record Result(int users, long workouts, long goals, long bytes, boolean snapshotCopied) {
+    }
+
+    private final Format format;
+    private final StringBuilder line = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // Activity names by id, already escaped for the format.
+    private String[] activityNames = new String[0];
+    private FileChannel channel;
+
+    private int users;
+    private long workouts;
+    private long goals;
+
+    WorkoutExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Exports one user.
+     *
+     * @param user The user to export.
+     * @param file The file to write; an existing file is replaced.
+     * @throws IOException if the file cannot be written.
+     */
+    Result exportUser(User user, Path file) throws IOException {
+        if (format == Format.BINARY) {
+            try {
+                user.read(() -> {
+                    try {
+                        Snapshot.writeUser(file, user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return new Result(1, 0, 0, Files.size(file), false);
+        }
+        return exportText(List.of(user), file);
+    }
+
+    /**
+     * Exports every user. In the binary format, the snapshot file is copied when the
+     * journal holds nothing since it was written; otherwise the users are encoded.
+     *
+     * @param users The users to export, typically {@link UserRegistry#users()}.
+     * @param file The file to write; an existing file is replaced.
+     * @param snapshot The snapshot file, or null when running without persistence.
+     * @param journal The journal continuing from the snapshot, or null when running without persistence.
+     * @throws IOException if the file cannot be written.
+     */
+    Result exportAll(Collection<User> users, Path file, Path snapshot, Journal journal) throws IOException {
+        if (format != Format.BINARY) {
+            return exportText(users, file);
+        }
+        if (snapshot != null && journal != null && Files.exists(snapshot)) {
+            Result copied = copySnapshot(users.size(), snapshot, file, journal);
+            if (copied != null) {
+                return copied;
+            }
+        }
+        int written = Snapshot.write(file, users, journal != null ? journal.epoch() : 0);
+        return new Result(written, 0, 0, Files.size(file), false);
+    }
+
+    /**
+     * Copies the snapshot to the target file if it is the complete saved state.
+     * The snapshot is opened before the journal is checked, so a checkpoint that
+     * replaces it meanwhile is caught by the epoch check.
+     *
+     * @return The result, or null if the journal holds changes the snapshot does not.
+     */
+    private static Result copySnapshot(int users, Path snapshot, Path file, Journal journal) throws IOException {
+        try (FileChannel source = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (!journal.isEmptySince(Snapshot.readEpoch(source))) {
+                return null;
+            }
+            try (FileChannel target = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+                return new Result(users, 0, 0, size, true);
+            }
+        }
+    }
+
+    private Result exportText(Iterable<User> exported, Path file) throws IOException {
+        users = 0;
+        workouts = 0;
+        goals = 0;
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel = out;
+            buffer.clear();
+            if (format == Format.CSV) {
+                for (String header : CSV_HEADER) {
+                    line.setLength(0);
+                    writeLine(line.append(header).append('\n'));
+                }
+            }
+            for (User user : exported) {
+                user.read(() -> {
+                    try {
+                        writeUser(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            }
+            drain();
+            return new Result(users, workouts, goals, out.size(), false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel = null;
+        }
+    }
+
+    private void writeUser(User user) throws IOException {
+        String userId = text(user.getUserId());
+        line.setLength(0);
+        if (format == Format.CSV) {
+            line.append("user,").append(userId).append(',').append(text(user.getName())).append('\n');
+        } else {
+            line.append("{\"type\":\"user\",\"user\":").append(userId)
+                    .append(",\"name\":").append(text(user.getName())).append("}\n");
+        }
+        writeLine(line);
+        users++;
+
+        WorkoutLog log = user.workoutLog();
+        int size = log.size();
+        for (int row = 0; row < size; row++) {
+            line.setLength(0);
+            if (format == Format.CSV) {
+                line.append("workout,").append(userId).append(',').append(activityName(log.activity(row)))
+                        .append(',').append(log.minutes(row)).append(',');
+                ListingRenderer.appendDate(line, log.epochDay(row)).append(',');
+                ListingRenderer.appendFixed2(line, log.calories(row)).append('\n');
+            } else {
+                line.append("{\"type\":\"workout\",\"user\":").append(userId)
+                        .append(",\"activity\":").append(activityName(log.activity(row)))
+                        .append(",\"minutes\":").append(log.minutes(row)).append(",\"date\":\"");
+                ListingRenderer.appendDate(line, log.epochDay(row)).append("\",\"calories\":");
+                ListingRenderer.appendFixed2(line, log.calories(row)).append("}\n");
+            }
+            writeLine(line);
+        }
+        workouts += size;
+
+        for (Goal goal : user.getGoals()) {
+            writeGoal(userId, goal);
+            goals++;
+        }
+    }
+
+    private void writeGoal(String userId, Goal goal) throws IOException {
+        String activity = goal.getActivityType() == null ? null : activityName(goal.getActivityType().getId());
+        line.setLength(0);
+        if (format == Format.CSV) {
+            line.append("goal,").append(userId).append(',').append(text(goal.getGoalTitle())).append(',');
+            ListingRenderer.appendFixed2(line, goal.getTargetValue()).append(',');
+            ListingRenderer.appendFixed2(line, goal.getCurrentValue()).append(',');
+            ListingRenderer.appendDate(line, (int) goal.getStartDate().toEpochDay()).append(',');
+            ListingRenderer.appendDate(line, (int) goal.getEndDate().toEpochDay()).append(',')
+                    .append(goal.getMetric().getName()).append(',');
+            if (activity != null) {
+                line.append(activity);
+            }
+            line.append('\n');
+        } else {
+            line.append("{\"type\":\"goal\",\"user\":").append(userId)
+                    .append(",\"title\":").append(text(goal.getGoalTitle())).append(",\"target\":");
+            ListingRenderer.appendFixed2(line, goal.getTargetValue()).append(",\"current\":");
+            ListingRenderer.appendFixed2(line, goal.getCurrentValue()).append(",\"start\":\"");
+            ListingRenderer.appendDate(line, (int) goal.getStartDate().toEpochDay()).append("\",\"end\":\"");
+            ListingRenderer.appendDate(line, (int) goal.getEndDate().toEpochDay()).append("\",\"metric\":\"")
+                    .append(goal.getMetric().getName()).append('"');
+            if (activity != null) {
+                line.append(",\"activity\":").append(activity);
+            }
+            line.append("}\n");
+        }
+        writeLine(line);
+    }
+
+    private String activityName(int id) {
+        if (id >= activityNames.length) {
+            int known = activityNames.length;
+            activityNames = Arrays.copyOf(activityNames, ActivityType.count());
+            for (int i = known; i < activityNames.length; i++) {
+                activityNames[i] = text(ActivityType.byId(i).getName());
+            }
+        }
+        return activityNames[id];
+    }
+
+    /**
+     * Escapes a value for the format: quoted for JSON, and quoted for CSV only
+     * when it holds a separator, quote, or line break.
+     */
+    private String text(String value) {
+        if (format == Format.JSON_LINES) {
+            return ApiServer.quote(value);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r' || (i == 0 && c == '#')) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Encodes a line into the write buffer, draining the buffer to the file whenever it fills.
+     * ASCII is copied byte by byte; a line with other characters is encoded as UTF-8 from there on.
+     */
+    private void writeLine(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                writeBytes(text.subSequence(i, text.length()).toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
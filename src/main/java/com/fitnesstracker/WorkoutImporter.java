@@ -0,0 +1,392 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams workouts from a CSV or JSON-lines file into a user.
+ * <p>
+ * CSV lines are {@code activity,minutes,date}; a header line is skipped.
+ * JSON lines are objects with {@code "activity"}, {@code "minutes"} and
+ * {@code "date"} fields, e.g. {@code {"activity":"Running","minutes":45,"date":"2024-06-01"}}.
+ * Both formats can be mixed, blank lines and lines starting with {@code #} are ignored.
+ * <p>
+ * The file is read through a {@link FileChannel} into a reusable buffer and
+ * parsed byte by byte, so no String is created per line except for the
+ * activity name. Valid rows are collected into primitive batches that are
+ * journaled and appended to the user together.
+ */
+final class WorkoutImporter {
+    static final int BATCH_SIZE = 8192;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_REJECTION_SAMPLES = 10;
+    // Durations are stored in seconds as an int.
+    static final int MAX_MINUTES = Integer.MAX_VALUE / 60;
+
+    private static final byte[] ACTIVITY_KEY = "activity".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MINUTES_KEY = "minutes".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATE_KEY = "date".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Outcome of an import.
+     *
+     * @param imported Number of workouts added.
+     * @param rejected Number of lines that could not be parsed.
+     * @param elapsedNanos Time spent importing.
+     * @param rejectionSamples Descriptions of the first rejected lines.
+     */
+    record Result(long imported, long rejected, long elapsedNanos, List<String> rejectionSamples) {
+
+        /**
+         * Returns the number of workouts imported per second.
+         */
+        long workoutsPerSecond() {
+            return elapsedNanos == 0 ? imported : imported * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    private final User user;
+    private final Journal journal;
+
+    private final ActivityType[] batchTypes = new ActivityType[BATCH_SIZE];
+    private final int[] batchDays = new int[BATCH_SIZE];
+    private final int[] batchMinutes = new int[BATCH_SIZE];
+    private int batchCount;
+
+    private long imported;
+    private long rejected;
+    private final List<String> rejectionSamples = new ArrayList<>();
+
+    // Field bounds of the line being parsed, as offsets into the read buffer.
+    private int activityStart;
+    private int activityEnd;
+    private int minutesStart;
+    private int minutesEnd;
+    private int dateStart;
+    private int dateEnd;
+
+    /**
+     * @param user The user receiving the workouts.
+     * @param journal The journal to record batches in, or null to skip journaling.
+     */
+    WorkoutImporter(User user, Journal journal) {
+        this.user = user;
+        this.journal = journal;
+    }
+
+    /**
+     * Imports every workout in a file.
+     *
+     * @param file The CSV or JSON-lines file.
+     * @return The import result.
+     * @throws IOException if the file cannot be read.
+     */
+    Result importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long lineNumber = 0;
+        boolean skippingLongLine = false;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        lineNumber++;
+                        if (skippingLongLine) {
+                            skippingLongLine = false;
+                        } else {
+                            processLine(bytes, lineStart, i, lineNumber);
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+                if (endOfFile) {
+                    if (lineStart < limit && !skippingLongLine) {
+                        processLine(bytes, lineStart, limit, ++lineNumber);
+                    }
+                } else if (lineStart == 0 && limit == bytes.length) {
+                    // A line longer than the buffer cannot be parsed; skip to its end.
+                    if (!skippingLongLine) {
+                        reject(lineNumber + 1, "line too long");
+                    }
+                    skippingLongLine = true;
+                    buffer.clear();
+                    continue;
+                }
+                buffer.position(lineStart);
+                buffer.limit(limit);
+                buffer.compact();
+            }
+        }
+        flushBatch();
+        return new Result(imported, rejected, System.nanoTime() - start, List.copyOf(rejectionSamples));
+    }
+
+    private void processLine(byte[] bytes, int start, int end, long lineNumber) {
+        while (start < end && isSpace(bytes[start])) {
+            start++;
+        }
+        while (end > start && isSpace(bytes[end - 1])) {
+            end--;
+        }
+        if (start == end || bytes[start] == '#') {
+            return;
+        }
+
+        boolean parsed = bytes[start] == '{' ? splitJson(bytes, start, end) : splitCsv(bytes, start, end);
+        if (!parsed) {
+            reject(lineNumber, "expected activity, minutes and date");
+            return;
+        }
+
+        String activityName = new String(bytes, activityStart, activityEnd - activityStart, StandardCharsets.UTF_8);
+        ActivityType activityType = ActivityType.lookup(activityName);
+        if (activityType == null) {
+            if (lineNumber == 1 && activityName.equalsIgnoreCase("activity")) {
+                return; // CSV header
+            }
+            reject(lineNumber, "unknown activity '" + activityName + "'");
+            return;
+        }
+        int minutes = parseMinutes(bytes, minutesStart, minutesEnd);
+        if (minutes <= 0) {
+            reject(lineNumber, "duration must be a positive whole number of minutes");
+            return;
+        }
+        if (minutes > MAX_MINUTES) {
+            reject(lineNumber, "duration must be at most " + MAX_MINUTES + " minutes");
+            return;
+        }
+        int epochDay = parseEpochDay(bytes, dateStart, dateEnd);
+        if (epochDay == Integer.MIN_VALUE) {
+            reject(lineNumber, "date must be YYYY-MM-DD");
+            return;
+        }
+
+        batchTypes[batchCount] = activityType;
+        batchDays[batchCount] = epochDay;
+        batchMinutes[batchCount] = minutes;
+        if (++batchCount == BATCH_SIZE) {
+            flushBatch();
+        }
+    }
+
+    private void flushBatch() {
+        if (batchCount == 0) {
+            return;
+        }
+        user.write(() -> {
+            if (journal != null) {
+                journal.recordLogWorkouts(user.getUserId(), batchTypes, batchDays, batchMinutes, batchCount);
+            }
+            user.addWorkouts(batchTypes, batchDays, batchMinutes, batchCount);
+            return null;
+        });
+        imported += batchCount;
+        batchCount = 0;
+    }
+
+    private void reject(long lineNumber, String reason) {
+        rejected++;
+        if (rejectionSamples.size() < MAX_REJECTION_SAMPLES) {
+            rejectionSamples.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    /**
+     * Splits {@code activity,minutes,date} into field bounds.
+     */
+    private boolean splitCsv(byte[] bytes, int start, int end) {
+        int firstComma = indexOf(bytes, start, end, (byte) ',');
+        if (firstComma < 0) {
+            return false;
+        }
+        int secondComma = indexOf(bytes, firstComma + 1, end, (byte) ',');
+        if (secondComma < 0) {
+            return false;
+        }
+        int thirdComma = indexOf(bytes, secondComma + 1, end, (byte) ',');
+        activityStart = start;
+        activityEnd = firstComma;
+        minutesStart = firstComma + 1;
+        minutesEnd = secondComma;
+        dateStart = secondComma + 1;
+        dateEnd = thirdComma < 0 ? end : thirdComma;
+        trimFields(bytes);
+        return activityStart < activityEnd;
+    }
+
+    /**
+     * Splits a flat JSON object into field bounds. Only the three known keys are
+     * used; other keys are skipped. Escaped strings are not supported.
+     */
+    private boolean splitJson(byte[] bytes, int start, int end) {
+        activityStart = activityEnd = minutesStart = minutesEnd = dateStart = dateEnd = -1;
+        int i = start + 1;
+        while (i < end) {
+            byte b = bytes[i];
+            if (b == '}') {
+                break;
+            }
+            if (isSpace(b) || b == ',') {
+                i++;
+                continue;
+            }
+            if (b != '"') {
+                return false;
+            }
+            int keyStart = i + 1;
+            int keyEnd = indexOf(bytes, keyStart, end, (byte) '"');
+            if (keyEnd < 0) {
+                return false;
+            }
+            i = keyEnd + 1;
+            while (i < end && isSpace(bytes[i])) {
+                i++;
+            }
+            if (i == end || bytes[i] != ':') {
+                return false;
+            }
+            i++;
+            while (i < end && isSpace(bytes[i])) {
+                i++;
+            }
+            int valueStart;
+            int valueEnd;
+            if (i < end && bytes[i] == '"') {
+                valueStart = i + 1;
+                valueEnd = indexOf(bytes, valueStart, end, (byte) '"');
+                if (valueEnd < 0 || indexOf(bytes, valueStart, valueEnd, (byte) '\\') >= 0) {
+                    return false;
+                }
+                i = valueEnd + 1;
+            } else {
+                valueStart = i;
+                while (i < end && bytes[i] != ',' && bytes[i] != '}' && !isSpace(bytes[i])) {
+                    i++;
+                }
+                valueEnd = i;
+            }
+            if (keyEquals(bytes, keyStart, keyEnd, ACTIVITY_KEY)) {
+                activityStart = valueStart;
+                activityEnd = valueEnd;
+            } else if (keyEquals(bytes, keyStart, keyEnd, MINUTES_KEY)) {
+                minutesStart = valueStart;
+                minutesEnd = valueEnd;
+            } else if (keyEquals(bytes, keyStart, keyEnd, DATE_KEY)) {
+                dateStart = valueStart;
+                dateEnd = valueEnd;
+            }
+        }
+        return activityStart >= 0 && activityStart < activityEnd && minutesStart >= 0 && dateStart >= 0;
+    }
+
+    private void trimFields(byte[] bytes) {
+        while (activityStart < activityEnd && isSpace(bytes[activityStart])) {
+            activityStart++;
+        }
+        while (activityEnd > activityStart && isSpace(bytes[activityEnd - 1])) {
+            activityEnd--;
+        }
+        while (minutesStart < minutesEnd && isSpace(bytes[minutesStart])) {
+            minutesStart++;
+        }
+        while (minutesEnd > minutesStart && isSpace(bytes[minutesEnd - 1])) {
+            minutesEnd--;
+        }
+        while (dateStart < dateEnd && isSpace(bytes[dateStart])) {
+            dateStart++;
+        }
+        while (dateEnd > dateStart && isSpace(bytes[dateEnd - 1])) {
+            dateEnd--;
+        }
+    }
+
+    /**
+     * Parses a positive whole number, returning -1 if it is not one or does not fit in an int.
+     */
+    private static int parseMinutes(byte[] bytes, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses {@code YYYY-MM-DD}, returning Integer.MIN_VALUE if the date is malformed or invalid.
+     */
+    private static int parseEpochDay(byte[] bytes, int start, int end) {
+        if (end - start != 10 || bytes[start + 4] != '-' || bytes[start + 7] != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int year = parseDigits(bytes, start, start + 4);
+        int month = parseDigits(bytes, start + 5, start + 7);
+        int day = parseDigits(bytes, start + 8, start + 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static int parseDigits(byte[] bytes, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean keyEquals(byte[] bytes, int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (bytes[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
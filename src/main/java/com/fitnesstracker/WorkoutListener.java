@@ -0,0 +1,33 @@
+package com.fitnesstracker;
+
+/**
+ * Receives row-level changes from a {@link WorkoutLog}.
+ * A changed workout is reported as the removal of its old values
+ * followed by the addition of its new values, so aggregates only
+ * need to handle additions and removals.
+ */
+interface WorkoutListener {
+
+    /**
+     * Called after a workout row is added or takes on new values.
+     */
+    void workoutAdded(int epochDay, int activity, int minutes, double calories);
+
+    /**
+     * Called after a workout row is removed or loses its old values.
+     */
+    void workoutRemoved(int epochDay, int activity, int minutes, double calories);
+
+    /**
+     * Called after the calorie estimates of a batch of rows were replaced; the rows keep
+     * their day, activity, and minutes. The batch is reused, so it must not be kept.
+     * By default each row is reported as the removal of its old values followed by the
+     * addition of its new values; aggregates override this to apply the differences directly.
+     */
+    default void caloriesChanged(CalorieBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            workoutRemoved(batch.epochDay(i), batch.activity(i), batch.minutes(i), batch.oldCalories(i));
+            workoutAdded(batch.epochDay(i), batch.activity(i), batch.minutes(i), batch.newCalories(i));
+        }
+    }
+}
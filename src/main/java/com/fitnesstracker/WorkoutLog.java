@@ -0,0 +1,575 @@
+package com.fitnesstracker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Columnar storage for a user's workouts.
+ * Each workout is one fixed-width row (epoch day, activity id, seconds, calories)
+ * in a {@link WorkoutStore}, on or off the heap. Rows grow in fixed-size chunks,
+ * after a small first chunk that doubles, so appending never copies more than one
+ * chunk's rows, and {@link Workout} objects are only created when a caller asks for
+ * one; they show the row's stored calorie estimate. Durations are kept to the
+ * second, but totals and listeners count each workout's whole minutes, as
+ * {@link Workout#getDuration()}{@code .toMinutes()} would.
+ * Registered {@link WorkoutListener}s are told about every row change,
+ * including changes made through a bound workout's setters.
+ * <p>
+ * The oldest rows can be sealed into a {@link ColdTier} on disk; the rest, the
+ * hot tail, stay in the store. Row numbers count the sealed rows first, so
+ * sealing does not renumber any row and bound workouts stay bound. Sealed rows
+ * can still be read and changed, at the cost of inflating their segment.
+ * <p>
+ * The log is guarded by its owner's read-write lock. Package-private methods
+ * expect the caller to hold it; the list view and bound workouts take it themselves.
+ */
+final class WorkoutLog {
+    /** The most rows {@link #recalculateCalories} reports in one batch. */
+    static final int BATCH_SIZE = WorkoutStore.CHUNK_SIZE;
+
+    private final WorkoutStore store;
+    private final ColdTier cold = new ColdTier();
+    // Rows in the store; row numbers of the hot tail start at cold.size().
+    private int hotSize;
+
+    // Bumped by clear() so that Workout views of removed rows stop writing through.
+    private int generation;
+
+    private final Lock readLock;
+    private final Lock writeLock;
+    private final List<Workout> view = new WorkoutListView();
+    private final List<WorkoutListener> listeners = new ArrayList<>();
+    private final WorkoutDateIndex dateIndex = new WorkoutDateIndex();
+
+    WorkoutLog(ReadWriteLock lock, WorkoutStore store) {
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        this.store = Objects.requireNonNull(store, "Store cannot be null.");
+    }
+
+    void addListener(WorkoutListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener cannot be null."));
+    }
+
+    int size() {
+        return cold.size() + hotSize;
+    }
+
+    /**
+     * Returns the number of rows sealed on disk.
+     */
+    int coldSize() {
+        return cold.size();
+    }
+
+    /**
+     * Returns the number of rows held in memory.
+     */
+    int hotSize() {
+        return hotSize;
+    }
+
+    /**
+     * Returns the bytes held in memory for rows: the allocated chunks and date index,
+     * including room not yet used, and the cached sealed segment. Reads without
+     * locking, so the figure may be slightly out of date.
+     */
+    long allocatedBytes() {
+        return store.allocatedBytes() + dateIndex.allocatedBytes() + cold.cachedBytes();
+    }
+
+    /**
+     * Appends a workout as a new row and binds the workout to it,
+     * so later changes made through its setters reach the log.
+     *
+     * @param workout The workout to store.
+     * @return The row index of the new workout.
+     */
+    int append(Workout workout) {
+        Objects.requireNonNull(workout, "Workout cannot be null.");
+        int row = appendRow((int) workout.getDate().toEpochDay(),
+                workout.getActivityType().getId(),
+                Math.toIntExact(workout.getDuration().getSeconds()),
+                workout.getCaloriesBurned());
+        workout.attach(this, row, generation);
+        return row;
+    }
+
+    /**
+     * Appends a workout row without creating a Workout object.
+     *
+     * @return The row index of the new workout.
+     */
+    int appendRow(int epochDay, int activity, int secondsValue, double caloriesValue) {
+        int hotRow = hotSize;
+        store.ensureCapacity(hotRow + 1);
+        store.set(hotRow, epochDay, activity, secondsValue, caloriesValue);
+        hotSize++;
+        dateIndex.insert(hotRow, epochDay);
+        for (WorkoutListener listener : listeners) {
+            listener.workoutAdded(epochDay, activity, secondsValue / 60, caloriesValue);
+        }
+        return cold.size() + hotRow;
+    }
+
+    /**
+     * Appends a batch of workout rows without creating Workout objects. The rows are
+     * added to the date index unsorted and the index is sorted once at the end, so
+     * back-dated rows do not each shift the index.
+     *
+     * @param secondsValues The durations in seconds.
+     */
+    void appendRows(ActivityType[] activityTypes, int[] epochDays, int[] secondsValues, int count) {
+        int first = hotSize;
+        store.ensureCapacity(first + count);
+        try {
+            for (int i = 0; i < count; i++) {
+                int activity = activityTypes[i].getId();
+                double caloriesValue = Workout.caloriesFor(activityTypes[i], secondsValues[i]);
+                store.set(hotSize, epochDays[i], activity, secondsValues[i], caloriesValue);
+                dateIndex.append(hotSize, epochDays[i]);
+                hotSize++;
+                for (WorkoutListener listener : listeners) {
+                    listener.workoutAdded(epochDays[i], activity, secondsValues[i] / 60, caloriesValue);
+                }
+            }
+        } finally {
+            dateIndex.sortFrom(first);
+        }
+    }
+
+    /**
+     * Writes the current state of a bound workout back into its row.
+     * Ignored if the row was removed after the workout was bound.
+     * Takes the write lock, so it must not be called while holding the read lock.
+     */
+    void update(Workout workout, int row, int boundGeneration) {
+        writeLock.lock();
+        try {
+            updateRow(workout, row, boundGeneration);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void updateRow(Workout workout, int row, int boundGeneration) {
+        if (boundGeneration != generation || row >= size()) {
+            return;
+        }
+        int oldDay = epochDay(row);
+        int oldActivity = activity(row);
+        int oldMinutes = minutes(row);
+        double oldCalories = calories(row);
+        int newDay = (int) workout.getDate().toEpochDay();
+        int activity = workout.getActivityType().getId();
+        int secondsValue = Math.toIntExact(workout.getDuration().getSeconds());
+        double caloriesValue = workout.getCaloriesBurned();
+        if (row < cold.size()) {
+            updateColdRow(row, newDay, activity, secondsValue, caloriesValue);
+        } else {
+            int hotRow = row - cold.size();
+            if (oldDay != newDay) {
+                dateIndex.remove(hotRow, oldDay);
+                dateIndex.insert(hotRow, newDay);
+            }
+            store.set(hotRow, newDay, activity, secondsValue, caloriesValue);
+        }
+        // Listeners hear about the change only once the row is written, so a segment
+        // that cannot be rewritten leaves the aggregates matching the stored rows.
+        for (WorkoutListener listener : listeners) {
+            listener.workoutRemoved(oldDay, oldActivity, oldMinutes, oldCalories);
+            listener.workoutAdded(newDay, activity, secondsValue / 60, caloriesValue);
+        }
+    }
+
+    private void fireRemoved(int row) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        int day = epochDay(row);
+        int activity = activity(row);
+        int minutesValue = minutes(row);
+        double caloriesValue = calories(row);
+        for (WorkoutListener listener : listeners) {
+            listener.workoutRemoved(day, activity, minutesValue, caloriesValue);
+        }
+    }
+
+    /**
+     * Rewrites the segment that holds a sealed row with the row's new values.
+     */
+    private void updateColdRow(int row, int epochDay, int activity, int secondsValue, double caloriesValue) {
+        List<WorkoutSegment> segments = cold.segments();
+        int index = segments.size() - 1;
+        while (cold.firstRow(index) > row) {
+            index--;
+        }
+        WorkoutSegment.Columns columns = cold.columns(index).copy();
+        int offset = row - cold.firstRow(index);
+        columns.epochDays[offset] = epochDay;
+        columns.activities[offset] = activity;
+        columns.seconds[offset] = secondsValue;
+        columns.calories[offset] = caloriesValue;
+        cold.replace(index, columns);
+    }
+
+    int epochDay(int row) {
+        int coldRows = cold.size();
+        return row < coldRows ? cold.epochDay(row) : store.epochDay(row - coldRows);
+    }
+
+    int activity(int row) {
+        int coldRows = cold.size();
+        return row < coldRows ? cold.activity(row) : store.activity(row - coldRows);
+    }
+
+    int seconds(int row) {
+        int coldRows = cold.size();
+        return row < coldRows ? cold.seconds(row) : store.seconds(row - coldRows);
+    }
+
+    /**
+     * Returns a row's whole minutes, the unit of totals and listeners.
+     */
+    int minutes(int row) {
+        return seconds(row) / 60;
+    }
+
+    double calories(int row) {
+        int coldRows = cold.size();
+        return row < coldRows ? cold.calories(row) : store.calories(row - coldRows);
+    }
+
+    /**
+     * Creates a workout view of a row with the row's stored values, calories included.
+     * The view is bound to the row, so its setters update the log.
+     */
+    Workout workoutAt(int row) {
+        Objects.checkIndex(row, size());
+        Workout workout = new Workout(ActivityType.byId(activity(row)),
+                Duration.ofSeconds(seconds(row)),
+                LocalDate.ofEpochDay(epochDay(row)),
+                calories(row));
+        workout.attach(this, row, generation);
+        return workout;
+    }
+
+    /**
+     * Returns bound views of the workouts between two epoch days (inclusive), in date order.
+     */
+    List<Workout> workoutsBetween(int fromDay, int toDay) {
+        DateRange range = rowsBetween(fromDay, toDay);
+        List<Workout> result = new ArrayList<>(range.size());
+        for (int position = 0; position < range.size(); position++) {
+            result.add(workoutAt(range.rowAt(position)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the rows between two epoch days (inclusive) in date order.
+     * When no sealed segment overlaps the range, this only looks up the range's
+     * bounds in the date index; otherwise the sealed rows in range are collected
+     * and merged with the hot ones.
+     */
+    DateRange rowsBetween(int fromDay, int toDay) {
+        int start = dateIndex.firstOnOrAfter(fromDay);
+        int end = Math.max(start, dateIndex.endOnOrBefore(toDay));
+        long[] coldKeys = cold.isEmpty() ? new long[0] : cold.rowsBetween(fromDay, toDay);
+        return new DateRange(dateIndex, start, end, cold.size(), coldKeys);
+    }
+
+    /**
+     * Returns how many rows a scan between two epoch days visits: the hot rows in
+     * range plus the rows of sealed segments that a footer cannot answer for.
+     */
+    int rowsScannedBetween(int fromDay, int toDay) {
+        int scanned = Math.max(0, dateIndex.endOnOrBefore(toDay) - dateIndex.firstOnOrAfter(fromDay));
+        for (WorkoutSegment segment : cold.segments()) {
+            if (segment.overlaps(fromDay, toDay) && !segment.within(fromDay, toDay)) {
+                scanned += segment.rows();
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Rows of a date range, ordered by (epoch day, row).
+     */
+    static final class DateRange {
+        private final WorkoutDateIndex index;
+        private final int start;
+        private final int hotCount;
+        private final int coldSize;
+        // Sealed rows in range, merged with the hot rows below when there are any.
+        private final int[] merged;
+
+        private DateRange(WorkoutDateIndex index, int start, int end, int coldSize, long[] coldKeys) {
+            this.index = index;
+            this.start = start;
+            this.hotCount = end - start;
+            this.coldSize = coldSize;
+            this.merged = coldKeys.length == 0 ? null : merge(coldKeys);
+        }
+
+        int size() {
+            return merged != null ? merged.length : hotCount;
+        }
+
+        /**
+         * Returns the row at a position in date order.
+         */
+        int rowAt(int position) {
+            return merged != null ? merged[position] : coldSize + index.rowAt(start + position);
+        }
+
+        private int[] merge(long[] coldKeys) {
+            // Sealed rows come before hot rows of the same day, since their row numbers are lower.
+            int[] result = new int[coldKeys.length + hotCount];
+            int c = 0;
+            int h = 0;
+            for (int i = 0; i < result.length; i++) {
+                boolean takeCold = h == hotCount
+                        || (c < coldKeys.length && (int) (coldKeys[c] >> 32) <= index.dayAt(start + h));
+                result[i] = takeCold ? (int) coldKeys[c++] : coldSize + index.rowAt(start + h++);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Sums minutes between two epoch days (inclusive).
+     *
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    long minutesBetween(int fromDay, int toDay, int activity) {
+        long total = cold.isEmpty() ? 0 : cold.minutesBetween(fromDay, toDay, activity);
+        int end = dateIndex.endOnOrBefore(toDay);
+        for (int position = dateIndex.firstOnOrAfter(fromDay); position < end; position++) {
+            int hotRow = dateIndex.rowAt(position);
+            if (activity < 0 || store.activity(hotRow) == activity) {
+                total += store.seconds(hotRow) / 60;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums calories between two epoch days (inclusive).
+     *
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    double caloriesBetween(int fromDay, int toDay, int activity) {
+        double total = cold.isEmpty() ? 0 : cold.caloriesBetween(fromDay, toDay, activity);
+        int end = dateIndex.endOnOrBefore(toDay);
+        for (int position = dateIndex.firstOnOrAfter(fromDay); position < end; position++) {
+            int hotRow = dateIndex.rowAt(position);
+            if (activity < 0 || store.activity(hotRow) == activity) {
+                total += store.calories(hotRow);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Counts workouts between two epoch days (inclusive).
+     *
+     * @param activity The activity id to include, or -1 for all activities.
+     */
+    int countBetween(int fromDay, int toDay, int activity) {
+        int count = cold.isEmpty() ? 0 : cold.countBetween(fromDay, toDay, activity);
+        int start = dateIndex.firstOnOrAfter(fromDay);
+        int end = dateIndex.endOnOrBefore(toDay);
+        if (activity < 0) {
+            return count + Math.max(0, end - start);
+        }
+        for (int position = start; position < end; position++) {
+            if (store.activity(dateIndex.rowAt(position)) == activity) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the calorie estimate of every row with the given model's, one chunk at a time.
+     * The changed rows of each chunk are reported to the listeners as one batch.
+     * Sealed segments with changed rows are rewritten before their rows are reported,
+     * so a segment that cannot be written leaves the listeners unchanged.
+     * The caller must hold the write lock.
+     *
+     * @param model The calorie model to apply.
+     * @param batch A batch of at least {@link #BATCH_SIZE} rows to reuse.
+     * @return The number of rows whose estimate changed.
+     */
+    long recalculateCalories(CalorieModel model, CalorieBatch batch) {
+        long changed = 0;
+        for (int index = 0; index < cold.segments().size(); index++) {
+            WorkoutSegment.Columns original = cold.columns(index);
+            WorkoutSegment.Columns columns = original.copy();
+            boolean segmentChanged = false;
+            for (int i = 0; i < columns.size(); i++) {
+                double updated = caloriesFor(model, columns.activities[i], columns.seconds[i]);
+                if (Double.compare(updated, columns.calories[i]) != 0) {
+                    columns.calories[i] = updated;
+                    segmentChanged = true;
+                }
+            }
+            if (!segmentChanged) {
+                continue;
+            }
+            cold.replace(index, columns);
+            for (int first = 0; first < columns.size(); first += BATCH_SIZE) {
+                int end = Math.min(columns.size(), first + BATCH_SIZE);
+                batch.clear();
+                for (int i = first; i < end; i++) {
+                    if (Double.compare(columns.calories[i], original.calories[i]) != 0) {
+                        batch.add(columns.epochDays[i], columns.activities[i], columns.seconds[i] / 60,
+                                original.calories[i], columns.calories[i]);
+                    }
+                }
+                changed += fireCaloriesChanged(batch);
+            }
+        }
+        for (int first = 0; first < hotSize; first += BATCH_SIZE) {
+            int end = Math.min(hotSize, first + BATCH_SIZE);
+            batch.clear();
+            for (int hotRow = first; hotRow < end; hotRow++) {
+                int activity = store.activity(hotRow);
+                int secondsValue = store.seconds(hotRow);
+                double current = store.calories(hotRow);
+                double updated = caloriesFor(model, activity, secondsValue);
+                if (Double.compare(updated, current) != 0) {
+                    batch.add(store.epochDay(hotRow), activity, secondsValue / 60, current, updated);
+                    store.setCalories(hotRow, updated);
+                }
+            }
+            changed += fireCaloriesChanged(batch);
+        }
+        return changed;
+    }
+
+    private static double caloriesFor(CalorieModel model, int activity, int secondsValue) {
+        return model.caloriesFor(ActivityType.byId(activity), secondsValue);
+    }
+
+    private int fireCaloriesChanged(CalorieBatch batch) {
+        if (batch.size() > 0) {
+            for (WorkoutListener listener : listeners) {
+                listener.caloriesChanged(batch);
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Moves the oldest rows to a new segment on disk, without telling the listeners,
+     * since the workouts themselves do not change. Rows are sealed in the order they
+     * were logged, up to the first row on or after the cutoff day, so that row numbers
+     * stay the same; a recent workout logged before older ones holds them back until it
+     * is old enough itself. The caller must hold the write lock.
+     *
+     * @param cutoffDay Rows before this epoch day may be sealed.
+     * @param minRows The fewest rows worth a segment; fewer are left in memory.
+     * @param directory The directory for the segment file.
+     * @return The number of rows sealed.
+     * @throws IOException if the segment cannot be written; the rows then stay in memory.
+     */
+    int seal(int cutoffDay, int minRows, Path directory) throws IOException {
+        int count = 0;
+        while (count < hotSize && store.epochDay(count) < cutoffDay) {
+            count++;
+        }
+        if (count == 0 || count < minRows) {
+            return 0;
+        }
+        WorkoutSegment.Columns columns = new WorkoutSegment.Columns(count);
+        for (int hotRow = 0; hotRow < count; hotRow++) {
+            columns.epochDays[hotRow] = store.epochDay(hotRow);
+            columns.activities[hotRow] = store.activity(hotRow);
+            columns.seconds[hotRow] = store.seconds(hotRow);
+            columns.calories[hotRow] = store.calories(hotRow);
+        }
+        cold.append(WorkoutSegment.write(cold.nextFile(directory), columns));
+
+        int remaining = hotSize - count;
+        for (int hotRow = 0; hotRow < remaining; hotRow++) {
+            int from = hotRow + count;
+            store.set(hotRow, store.epochDay(from), store.activity(from), store.seconds(from), store.calories(from));
+        }
+        store.shrink(remaining);
+        dateIndex.dropRowsBelow(count);
+        hotSize = remaining;
+        return count;
+    }
+
+    void clear() {
+        for (int row = 0; row < size(); row++) {
+            fireRemoved(row);
+        }
+        dateIndex.clear();
+        store.clear();
+        hotSize = 0;
+        generation++;
+        cold.clear();
+    }
+
+    /**
+     * Returns a live list view of the log. Elements are created on access.
+     */
+    List<Workout> asList() {
+        return view;
+    }
+
+    private final class WorkoutListView extends AbstractList<Workout> implements RandomAccess {
+        @Override
+        public Workout get(int index) {
+            readLock.lock();
+            try {
+                return workoutAt(index);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            readLock.lock();
+            try {
+                return WorkoutLog.this.size();
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        @Override
+        public boolean add(Workout workout) {
+            writeLock.lock();
+            try {
+                append(workout);
+                return true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            writeLock.lock();
+            try {
+                WorkoutLog.this.clear();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
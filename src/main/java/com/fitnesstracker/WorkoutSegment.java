@@ -0,0 +1,305 @@
+package com.fitnesstracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An immutable, compressed file of workout rows that were moved out of memory.
+ * <p>
+ * The file holds a header, the rows as deflated columns (epoch day, activity id,
+ * seconds, calories), and a footer with the segment's first and last day and
+ * its count, whole minutes, and calories per activity. The footer is kept in memory,
+ * so range totals that cover the whole segment, or none of it, are answered
+ * without inflating any rows. Files are never changed in place; a changed
+ * segment is written to a new file that replaces the old one.
+ */
+final class WorkoutSegment {
+    private static final int MAGIC = 0x46545347; // "FTSG"
+    private static final byte VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES + 1;
+    private static final int TRAILER_BYTES = 2 * Integer.BYTES;
+
+    private final Path file;
+    private final int rows;
+    private final int minDay;
+    private final int maxDay;
+    private final int[] counts;
+    private final long[] minutes;
+    private final double[] calories;
+
+    /**
+     * The rows of a segment in parallel columns, in the order they were logged.
+     */
+    static final class Columns {
+        /** The bytes one row takes across the four columns. */
+        static final int ROW_BYTES = 3 * Integer.BYTES + Double.BYTES;
+
+        final int[] epochDays;
+        final int[] activities;
+        final int[] seconds;
+        final double[] calories;
+
+        Columns(int rows) {
+            epochDays = new int[rows];
+            activities = new int[rows];
+            seconds = new int[rows];
+            calories = new double[rows];
+        }
+
+        int size() {
+            return epochDays.length;
+        }
+
+        Columns copy() {
+            Columns copy = new Columns(size());
+            System.arraycopy(epochDays, 0, copy.epochDays, 0, size());
+            System.arraycopy(activities, 0, copy.activities, 0, size());
+            System.arraycopy(seconds, 0, copy.seconds, 0, size());
+            System.arraycopy(calories, 0, copy.calories, 0, size());
+            return copy;
+        }
+    }
+
+    private WorkoutSegment(Path file, int rows, int minDay, int maxDay, int[] counts, long[] minutes, double[] calories) {
+        this.file = file;
+        this.rows = rows;
+        this.minDay = minDay;
+        this.maxDay = maxDay;
+        this.counts = counts;
+        this.minutes = minutes;
+        this.calories = calories;
+    }
+
+    /**
+     * Writes rows to a new segment file, replacing any file of that name atomically.
+     *
+     * @param file The segment file.
+     * @param columns The rows; there must be at least one.
+     * @return The segment, with its footer in memory.
+     * @throws IOException if the file cannot be written.
+     */
+    static WorkoutSegment write(Path file, Columns columns) throws IOException {
+        int rows = columns.size();
+        if (rows == 0) {
+            throw new IllegalArgumentException("A segment needs at least one workout.");
+        }
+        int activities = 0;
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            activities = Math.max(activities, columns.activities[i] + 1);
+            minDay = Math.min(minDay, columns.epochDays[i]);
+            maxDay = Math.max(maxDay, columns.epochDays[i]);
+        }
+        int[] counts = new int[activities];
+        long[] minutes = new long[activities];
+        double[] calories = new double[activities];
+        for (int i = 0; i < rows; i++) {
+            int activity = columns.activities[i];
+            counts[activity]++;
+            // Whole minutes per workout, as the in-memory totals count them.
+            minutes[activity] += columns.seconds[i] / 60;
+            calories[activity] += columns.calories[i];
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, 1 << 16);
+                DataOutputStream data = new DataOutputStream(deflated);
+                int previousDay = 0;
+                for (int i = 0; i < rows; i++) {
+                    // Days of neighbouring rows are close, so their differences compress well.
+                    data.writeInt(columns.epochDays[i] - previousDay);
+                    previousDay = columns.epochDays[i];
+                }
+                for (int i = 0; i < rows; i++) {
+                    data.writeShort(columns.activities[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    data.writeInt(columns.seconds[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    data.writeDouble(columns.calories[i]);
+                }
+                data.flush();
+                deflated.finish();
+            } finally {
+                deflater.end();
+            }
+            int footerStart = out.size();
+            out.writeInt(rows);
+            out.writeInt(minDay);
+            out.writeInt(maxDay);
+            out.writeShort(activities);
+            for (int activity = 0; activity < activities; activity++) {
+                out.writeInt(counts[activity]);
+                out.writeLong(minutes[activity]);
+                out.writeDouble(calories[activity]);
+            }
+            out.writeInt(out.size() - footerStart);
+            out.writeInt(MAGIC);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new WorkoutSegment(file, rows, minDay, maxDay, counts, minutes, calories);
+    }
+
+    /**
+     * Reads a segment's footer without inflating its rows.
+     *
+     * @throws IOException if the file cannot be read or is not a workout segment.
+     */
+    static WorkoutSegment open(Path file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            long length = in.length();
+            if (length < HEADER_BYTES + TRAILER_BYTES || readMagic(in, 0) != MAGIC || readMagic(in, length - Integer.BYTES) != MAGIC) {
+                throw new IOException("Not a workout segment: " + file);
+            }
+            in.seek(length - TRAILER_BYTES);
+            in.seek(length - TRAILER_BYTES - in.readInt());
+            int rows = in.readInt();
+            int minDay = in.readInt();
+            int maxDay = in.readInt();
+            int activities = in.readShort();
+            int[] counts = new int[activities];
+            long[] minutes = new long[activities];
+            double[] calories = new double[activities];
+            for (int activity = 0; activity < activities; activity++) {
+                counts[activity] = in.readInt();
+                minutes[activity] = in.readLong();
+                calories[activity] = in.readDouble();
+            }
+            return new WorkoutSegment(file, rows, minDay, maxDay, counts, minutes, calories);
+        } catch (EOFException e) {
+            throw new IOException("Workout segment is truncated: " + file, e);
+        }
+    }
+
+    private static int readMagic(RandomAccessFile in, long position) throws IOException {
+        in.seek(position);
+        return in.readInt();
+    }
+
+    /**
+     * Inflates the segment's rows.
+     *
+     * @throws IOException if the file cannot be read or is damaged.
+     */
+    Columns read() throws IOException {
+        Columns columns = new Columns(rows);
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(this.file))) {
+            DataInputStream header = new DataInputStream(file);
+            if (header.readInt() != MAGIC || header.readByte() != VERSION) {
+                throw new IOException("Not a workout segment: " + this.file);
+            }
+            try (DataInputStream data = new DataInputStream(
+                    new BufferedInputStream(new InflaterInputStream(file), 1 << 16))) {
+                int day = 0;
+                for (int i = 0; i < rows; i++) {
+                    day += data.readInt();
+                    columns.epochDays[i] = day;
+                }
+                for (int i = 0; i < rows; i++) {
+                    columns.activities[i] = data.readShort();
+                }
+                for (int i = 0; i < rows; i++) {
+                    columns.seconds[i] = data.readInt();
+                }
+                for (int i = 0; i < rows; i++) {
+                    columns.calories[i] = data.readDouble();
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Workout segment is truncated: " + file, e);
+        }
+        return columns;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int minDay() {
+        return minDay;
+    }
+
+    int maxDay() {
+        return maxDay;
+    }
+
+    /**
+     * Returns true if every row of this segment lies between two epoch days (inclusive).
+     */
+    boolean within(int fromDay, int toDay) {
+        return minDay >= fromDay && maxDay <= toDay;
+    }
+
+    /**
+     * Returns true if some row of this segment may lie between two epoch days (inclusive).
+     */
+    boolean overlaps(int fromDay, int toDay) {
+        return minDay <= toDay && maxDay >= fromDay;
+    }
+
+    /**
+     * @param activity The activity id, or -1 for all activities.
+     */
+    int count(int activity) {
+        if (activity < 0) {
+            return rows;
+        }
+        return activity < counts.length ? counts[activity] : 0;
+    }
+
+    /**
+     * @param activity The activity id, or -1 for all activities.
+     */
+    long minutes(int activity) {
+        if (activity >= 0) {
+            return activity < minutes.length ? minutes[activity] : 0;
+        }
+        long total = 0;
+        for (long value : minutes) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * @param activity The activity id, or -1 for all activities.
+     */
+    double calories(int activity) {
+        if (activity >= 0) {
+            return activity < calories.length ? calories[activity] : 0.0;
+        }
+        double total = 0;
+        for (double value : calories) {
+            total += value;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,35 @@
+package com.fitnesstracker;
+
+import java.util.Locale;
+
+/**
+ * Where users keep their stored workouts.
+ */
+public enum WorkoutStorage {
+    /** Primitive arrays on the Java heap. Fastest to read; the default. */
+    HEAP,
+    /** Fixed-width records in direct memory, so long histories do not grow the heap. */
+    OFF_HEAP;
+
+    /**
+     * Parses a storage name such as {@code heap} or {@code off-heap}, ignoring case.
+     *
+     * @throws IllegalArgumentException if the name is not a storage kind.
+     */
+    public static WorkoutStorage fromName(String name) {
+        String normalized = name.strip().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (WorkoutStorage storage : values()) {
+            if (storage.name().equals(normalized)) {
+                return storage;
+            }
+        }
+        throw new IllegalArgumentException("Invalid workout storage: " + name + ". Choose from heap, off-heap.");
+    }
+
+    WorkoutStore newStore() {
+        return switch (this) {
+            case HEAP -> new HeapWorkoutStore();
+            case OFF_HEAP -> new OffHeapWorkoutStore();
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.fitnesstracker;
+
+/**
+ * Fixed-width workout rows (epoch day, activity id, seconds, calories) addressed by row index.
+ * This is where a {@link WorkoutLog} keeps its rows; the log decides how many are in use.
+ * Implementations are not thread-safe; the log's owner guards them with its lock.
+ */
+interface WorkoutStore {
+    // Rows are allocated in chunks of CHUNK_SIZE, so growing never moves existing rows,
+    // except that the first chunk starts at FIRST_CHUNK_ROWS and doubles until it is full,
+    // so that a short history does not take a whole chunk.
+    int CHUNK_SHIFT = 12;
+    int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    int CHUNK_MASK = CHUNK_SIZE - 1;
+    int FIRST_CHUNK_ROWS = 16;
+
+    /**
+     * Returns the length the first chunk grows to so that it holds the given number of rows:
+     * its current length doubled until it is large enough, at least {@link #FIRST_CHUNK_ROWS}
+     * and at most {@link #CHUNK_SIZE}.
+     */
+    static int grownFirstChunk(int length, int rows) {
+        int grown = Math.max(FIRST_CHUNK_ROWS, length);
+        while (grown < rows && grown < CHUNK_SIZE) {
+            grown <<= 1;
+        }
+        return Math.min(grown, CHUNK_SIZE);
+    }
+
+    /**
+     * Makes room for rows up to (excluding) the given index, keeping existing rows.
+     */
+    void ensureCapacity(int rows);
+
+    int epochDay(int row);
+
+    int activity(int row);
+
+    int seconds(int row);
+
+    double calories(int row);
+
+    void set(int row, int epochDay, int activity, int seconds, double calories);
+
+    void setCalories(int row, double calories);
+
+    /**
+     * Returns the bytes held for rows, including room not yet used. May be called
+     * without the owner's lock, in which case the figure may be slightly out of date.
+     */
+    long allocatedBytes();
+
+    /**
+     * Keeps room for rows up to (excluding) the given index and releases the memory of the rest.
+     */
+    void shrink(int rows);
+
+    /**
+     * Drops all rows and releases their memory.
+     */
+    void clear();
+}
@@ -0,0 +1,79 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ActivityType} catalog.
+ * Registered types stay in the catalog for the rest of the JVM, so each test uses its own names.
+ */
+class ActivityTypeTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that built-in types keep their ids and are found ignoring case.
+     * Positive scenario.
+     */
+    @Test
+    void testFromName_builtInsIgnoreCase() {
+        assertEquals(0, ActivityType.RUNNING.getId());
+        assertSame(ActivityType.RUNNING, ActivityType.fromName("rUnNiNg"));
+        assertSame(ActivityType.CYCLING, ActivityType.fromName("CYCLING"));
+        assertSame(ActivityType.WEIGHTLIFTING, ActivityType.byId(ActivityType.WEIGHTLIFTING.getId()));
+    }
+
+    /**
+     * Tests that types loaded from a config file get dense ids and can be logged.
+     * Positive scenario.
+     */
+    @Test
+    void testLoadCatalog_registersTypes() throws IOException {
+        Path file = tempDir.resolve("activities.txt");
+        Files.writeString(file, "# name,caloriesPerMinute\nCatalog Swimming, 9.5\n\ncatalog hiking,6\nCycling,8.0\n");
+        int before = ActivityType.count();
+
+        assertEquals(2, ActivityType.loadCatalog(file));
+        assertEquals(before + 2, ActivityType.count());
+        ActivityType swimming = ActivityType.fromName("CATALOG SWIMMING");
+        assertEquals(before, swimming.getId());
+        assertEquals(9.5, swimming.getCaloriesPerMinute(), 0.001);
+        assertEquals(0, ActivityType.loadCatalog(file), "Loading the same file again should register nothing.");
+
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(swimming, Duration.ofMinutes(10), LocalDate.of(2024, 6, 1)));
+        assertEquals(95.0, user.getTotalCaloriesBurned(swimming), 0.001);
+    }
+
+    /**
+     * Tests that a type cannot be registered twice or redefined by a config file.
+     * Negative scenario.
+     */
+    @Test
+    void testRegister_duplicateNameThrowsException() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> ActivityType.register("running", 12.0));
+        Path file = tempDir.resolve("activities.txt");
+        Files.writeString(file, "Running,12.0\n");
+        assertThrows(IllegalArgumentException.class, () -> ActivityType.loadCatalog(file));
+    }
+
+    /**
+     * Tests that unknown names are rejected with the list of choices.
+     * Negative scenario.
+     */
+    @Test
+    void testFromName_unknownNameThrowsException() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> ActivityType.fromName("Juggling"));
+        assertTrue(thrown.getMessage().contains("RUNNING, WEIGHTLIFTING, CYCLING"));
+        assertNull(ActivityType.lookup("Juggling"));
+    }
+}
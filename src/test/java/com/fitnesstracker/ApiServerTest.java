@@ -0,0 +1,164 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ApiServer} class.
+ * Covers sessions, workout logging, tracking, goals, and error responses.
+ */
+class ApiServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private UserRegistry users;
+    private ApiServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        users = new UserRegistry();
+        server = new ApiServer(users, null, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    /**
+     * Tests creating a user, logging a workout with the session token, and tracking it.
+     * Positive scenario.
+     */
+    @Test
+    void testLogAndTrack_withSession() throws Exception {
+        HttpResponse<String> created = post("/users", "name=Alice&userId=A1", null);
+        assertEquals(201, created.statusCode());
+        String token = created.body().replaceAll(".*\"token\":\"([0-9a-f]+)\".*", "$1");
+
+        HttpResponse<String> logged = post("/workouts", "activity=Cycling&minutes=30&date=2024-06-01", token);
+        assertEquals(201, logged.statusCode());
+
+        HttpResponse<String> tracked = get("/track?activity=cycling", token);
+        assertEquals(200, tracked.statusCode());
+        assertTrue(tracked.body().contains("\"totalMinutes\":30"));
+        assertEquals(30, users.find("A1").getTotalWorkoutMinutes(ActivityType.CYCLING));
+    }
+
+    /**
+     * Tests that sessions are per client: each token acts as its own user.
+     * Positive scenario.
+     */
+    @Test
+    void testSessions_areIndependent() throws Exception {
+        String alice = post("/users", "name=Alice&userId=A1", null).body().replaceAll(".*\"token\":\"([0-9a-f]+)\".*", "$1");
+        String bob = post("/users", "name=Bob&userId=B1", null).body().replaceAll(".*\"token\":\"([0-9a-f]+)\".*", "$1");
+
+        post("/workouts", "activity=Cycling&minutes=10&date=2024-06-01", alice);
+        post("/workouts", "activity=Cycling&minutes=20&date=2024-06-01", bob);
+
+        assertEquals(10, users.find("A1").getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(20, users.find("B1").getTotalWorkoutMinutes(ActivityType.CYCLING));
+    }
+
+    /**
+     * Tests error responses for missing sessions, duplicates, and invalid input.
+     * Negative scenario.
+     */
+    @Test
+    void testErrors() throws Exception {
+        assertEquals(401, get("/workouts", null).statusCode());
+        String token = post("/users", "name=Alice&userId=A1", null).body().replaceAll(".*\"token\":\"([0-9a-f]+)\".*", "$1");
+        assertEquals(409, post("/users", "name=Other&userId=A1", null).statusCode());
+        assertEquals(404, post("/sessions", "userId=missing", null).statusCode());
+
+        HttpResponse<String> invalid = post("/workouts", "activity=Swimming&minutes=10", token);
+        assertEquals(400, invalid.statusCode());
+        assertTrue(invalid.body().contains("Invalid activity type"));
+    }
+
+    /**
+     * Tests that a session ends on logout, and that the session token stops working afterwards.
+     * Positive scenario.
+     */
+    @Test
+    void testSessions_logout() throws Exception {
+        String token = token(post("/users", "name=Alice&userId=A1", null));
+        assertEquals(200, get("/workouts", token).statusCode());
+
+        assertEquals(200, delete("/sessions", token).statusCode());
+        assertEquals(401, get("/workouts", token).statusCode());
+        assertEquals(401, delete("/sessions", token).statusCode());
+    }
+
+    /**
+     * Tests that idle sessions expire and that the number of open sessions is capped.
+     * Edge case scenario.
+     */
+    @Test
+    void testSessions_expireAndAreCapped() throws Exception {
+        server.stop();
+        server = new ApiServer(users, null, 0, Duration.ofMillis(200), 1);
+        server.start();
+        users.create("Alice", "A1");
+
+        String token = token(post("/sessions", "userId=A1", null));
+        assertEquals(503, post("/sessions", "userId=A1", null).statusCode());
+        Thread.sleep(300);
+        assertEquals(401, get("/workouts", token).statusCode());
+        assertEquals(200, post("/sessions", "userId=A1", null).statusCode());
+    }
+
+    /**
+     * Tests that a request body over the size limit is refused.
+     * Negative scenario.
+     */
+    @Test
+    void testRequestBody_tooLarge() throws Exception {
+        String name = "x".repeat(ApiServer.MAX_BODY_BYTES);
+        HttpResponse<String> response = post("/users", "userId=A1&name=" + name, null);
+
+        assertEquals(413, response.statusCode());
+        assertNull(users.find("A1"));
+    }
+
+    private static String token(HttpResponse<String> response) {
+        return response.body().replaceAll(".*\"token\":\"([0-9a-f]+)\".*", "$1");
+    }
+
+    private HttpResponse<String> delete(String path, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).DELETE()
+                .header("Authorization", "Bearer " + token).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String form, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).GET();
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
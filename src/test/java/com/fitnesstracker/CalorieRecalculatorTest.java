@@ -0,0 +1,195 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CalorieRecalculator} and {@link CalorieModel} classes.
+ * Covers recalculating stored workouts with their aggregates, and reading model files.
+ */
+class CalorieRecalculatorTest {
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2024, 6, 5).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void restoreModel() {
+        Workout.setCalorieModel(CalorieModel.catalogRates());
+    }
+
+    /**
+     * Tests that a new rate updates stored workouts, totals, reports and leaderboards.
+     * Positive scenario.
+     */
+    @Test
+    void testRecalculate_updatesWorkoutsAndAggregates() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        User bob = registry.create("Bob", "B1");
+        alice.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 3)));
+        alice.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(10), LocalDate.of(2024, 5, 20)));
+        bob.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 4)));
+        assertEquals("B1", registry.leaderboards().top(null, null, 1).get(0).userId());
+
+        RecalculationResult result = new CalorieRecalculator().recalculate(registry.users(),
+                CalorieModel.rates(Map.of(ActivityType.RUNNING, 10.0)));
+
+        assertEquals(new RecalculationResult(2, 3, 2, result.elapsedNanos()), result);
+        assertEquals(400.0, alice.getTotalCaloriesBurned(ActivityType.RUNNING), 1e-9);
+        assertEquals(300.0, alice.getTotalCaloriesBurned(ActivityType.RUNNING,
+                LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30)), 1e-9);
+        List<RollupRow> weeks = alice.getReport(Granularity.WEEK, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 6, 30));
+        assertEquals(2, weeks.size());
+        assertEquals(100.0, weeks.get(0).calories(), 1e-9);
+        assertEquals(300.0, weeks.get(1).calories(), 1e-9);
+
+        Leaderboards leaderboards = registry.leaderboards();
+        assertEquals(new LeaderboardEntry(1, "A1", "Alice", 2, 400.0), leaderboards.top(null, null, 1).get(0));
+        assertEquals(300.0, leaderboards.rankOf(alice, LocalDate.of(2024, 6, 5), null).calories(), 1e-9);
+        assertEquals(100.0, leaderboards.rankOf(alice, LocalDate.of(2024, 5, 20), ActivityType.RUNNING).calories(), 1e-9);
+        assertEquals(2, leaderboards.rankOf(bob, null, null).rank());
+    }
+
+    /**
+     * Tests that the model is given each workout's duration to the second.
+     * Edge case scenario.
+     */
+    @Test
+    void testRecalculate_usesSeconds() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofSeconds(90), LocalDate.of(2024, 6, 3)));
+        List<Long> seconds = new ArrayList<>();
+
+        new CalorieRecalculator().recalculate(registry.users(), (activityType, duration) -> {
+            seconds.add(duration);
+            return duration / 6.0;
+        });
+
+        assertEquals(List.of(90L), seconds);
+        assertEquals(15.0, alice.getTotalCaloriesBurned(ActivityType.CYCLING), 1e-9);
+        assertEquals(15.0, alice.getWorkouts().get(0).getCaloriesBurned(), 1e-9);
+        assertEquals(Duration.ofSeconds(90), alice.getWorkouts().get(0).getDuration());
+    }
+
+    /**
+     * Tests that workouts logged after a pass use the new model.
+     * Positive scenario.
+     */
+    @Test
+    void testRecalculate_appliesToNewWorkouts() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+
+        new CalorieRecalculator().recalculate(registry.users(), CalorieModel.rates(Map.of(ActivityType.RUNNING, 10.0)));
+        alice.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(6), LocalDate.of(2024, 6, 3)));
+
+        assertEquals(60.0, alice.getTotalCaloriesBurned(ActivityType.RUNNING), 1e-9);
+    }
+
+    /**
+     * Tests that recalculating with the model already in use changes nothing.
+     * Edge case scenario.
+     */
+    @Test
+    void testRecalculate_unchangedModel() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 3)));
+
+        RecalculationResult result = new CalorieRecalculator().recalculate(registry.users(), CalorieModel.catalogRates());
+
+        assertEquals(1, result.workouts());
+        assertEquals(0, result.changed());
+        assertEquals(80.0, alice.getTotalCaloriesBurned(ActivityType.CYCLING), 1e-9);
+    }
+
+    /**
+     * Tests a pass over more users and workouts than one batch or one split holds.
+     * Edge case scenario.
+     */
+    @Test
+    void testRecalculate_manyUsersAndChunks() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        for (int i = 0; i < CalorieRecalculator.SPLIT_THRESHOLD * 3; i++) {
+            User user = registry.create("User " + i, "U" + i);
+            user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(1 + i % 7), LocalDate.of(2024, 6, 3)));
+        }
+        User heavy = registry.create("Heavy", "H1");
+        int rows = WorkoutLog.BATCH_SIZE * 2 + 5;
+        for (int i = 0; i < rows; i++) {
+            heavy.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(1), LocalDate.of(2024, 1, 1).plusDays(i % 300)));
+        }
+
+        RecalculationResult result = new CalorieRecalculator().recalculate(registry.users(),
+                CalorieModel.rates(Map.of(ActivityType.CYCLING, 2.0)));
+
+        assertEquals(CalorieRecalculator.SPLIT_THRESHOLD * 3 + rows, result.changed());
+        assertEquals(rows * 2.0, heavy.getTotalCaloriesBurned(ActivityType.CYCLING), 1e-6);
+        assertEquals(rows * 2.0, registry.leaderboards().rankOf(heavy, null, null).calories(), 1e-6);
+    }
+
+    /**
+     * Tests the MET model: MET x kg x hours, with catalog rates for unlisted types.
+     * Positive scenario.
+     */
+    @Test
+    void testMet_caloriesFromBodyWeight() {
+        CalorieModel model = CalorieModel.met(70.0, Map.of(ActivityType.RUNNING, 9.8));
+
+        assertEquals(343.0, model.caloriesFor(ActivityType.RUNNING, 30 * 60), 1e-9);
+        assertEquals(5.716666, model.caloriesFor(ActivityType.RUNNING, 30), 1e-6);
+        assertEquals(80.0, model.caloriesFor(ActivityType.CYCLING, 600), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> CalorieModel.met(0, Map.of()));
+    }
+
+    /**
+     * Tests reading a MET model from a file.
+     * Positive scenario.
+     */
+    @Test
+    void testLoad_metFile() throws IOException {
+        Path file = tempDir.resolve("calories.txt");
+        Files.writeString(file, "# MET values\nmodel=met\nbodyWeightKg=80\n\nrunning = 10\n");
+
+        CalorieModel model = CalorieModel.load(file);
+
+        assertEquals(800.0, model.caloriesFor(ActivityType.RUNNING, 3600), 1e-9);
+        assertEquals(7.0, model.caloriesFor(ActivityType.WEIGHTLIFTING, 60), 1e-9);
+    }
+
+    /**
+     * Tests that malformed model files are rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testLoad_invalidFiles() throws IOException {
+        Path file = tempDir.resolve("calories.txt");
+        Files.writeString(file, "Running\n");
+        assertThrows(IllegalArgumentException.class, () -> CalorieModel.load(file));
+        Files.writeString(file, "Running=-1\n");
+        assertThrows(IllegalArgumentException.class, () -> CalorieModel.load(file));
+        Files.writeString(file, "Unknown=5\n");
+        assertThrows(IllegalArgumentException.class, () -> CalorieModel.load(file));
+        Files.writeString(file, "model=met\nRunning=9\n");
+        assertThrows(IllegalArgumentException.class, () -> CalorieModel.load(file));
+        Files.writeString(file, "model=magic\n");
+        assertThrows(IllegalArgumentException.class, () -> CalorieModel.load(file));
+    }
+}
@@ -0,0 +1,91 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CommandStats} and {@link LatencyHistogram} classes.
+ * Covers counting, percentiles, and unknown commands.
+ */
+class CommandStatsTest {
+
+    /**
+     * Tests that calls and errors are counted per command.
+     * Positive scenario.
+     */
+    @Test
+    void testRecord_countsCallsAndErrors() {
+        CommandStats stats = new CommandStats(Set.of("log", "track"));
+        stats.record("log", 1_000, false);
+        stats.record("log", 3_000, true);
+        stats.record("track", 500, false);
+
+        List<CommandLatency> snapshot = stats.snapshot();
+
+        assertEquals(2, snapshot.size());
+        CommandLatency log = snapshot.get(0);
+        assertEquals("log", log.command());
+        assertEquals(2, log.calls());
+        assertEquals(1, log.errors());
+        assertEquals(2_000.0, log.meanNanos(), 1e-9);
+        assertEquals(3_000, log.maxNanos());
+        assertEquals(1L, stats.getCalls().get("track"));
+    }
+
+    /**
+     * Tests that percentiles are within the histogram's precision.
+     * Positive scenario.
+     */
+    @Test
+    void testValueAtPercentile_withinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 100);
+        }
+
+        assertEquals(5_000_000, histogram.valueAtPercentile(50.0), 5_000_000 * 0.035);
+        assertEquals(9_900_000, histogram.valueAtPercentile(99.0), 9_900_000 * 0.035);
+        assertEquals(9_990_000, histogram.valueAtPercentile(99.9), 9_990_000 * 0.035);
+        assertEquals(10_000_000, histogram.valueAtPercentile(100.0));
+        assertEquals(100_000, histogram.count());
+    }
+
+    /**
+     * Tests that every value falls in a bucket whose upper bound is not below it.
+     * Edge case scenario.
+     */
+    @Test
+    void testBucketOf_boundsContainValue() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000_003, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueIn(bucket) >= value, "Bucket too low for " + value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.highestValueIn(bucket - 1) < value, "Bucket too high for " + value);
+            }
+        }
+    }
+
+    /**
+     * Tests that unknown command names share one entry and that reset clears counts.
+     * Negative scenario.
+     */
+    @Test
+    void testRecord_unknownCommandsCountedTogether() {
+        CommandStats stats = new CommandStats(Set.of("log"));
+        stats.record("lgo", 100, false);
+        stats.record("bogus", 100, false);
+        stats.record(null, 100, true);
+
+        assertEquals(3L, stats.getCalls().get(CommandStats.OTHER_COMMAND));
+        assertEquals(1, stats.snapshot().size());
+
+        stats.reset();
+        assertEquals(0L, stats.getCalls().get(CommandStats.OTHER_COMMAND));
+        assertEquals(0L, stats.getErrors().get(CommandStats.OTHER_COMMAND));
+    }
+}
@@ -4,8 +4,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.util.Scanner;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -107,4 +110,130 @@ class FitnessTrackerAppTest {
 
         assertTrue(outContent.toString().contains("Unknown command: unknown-command"));
     }
+
+    /**
+     * Tests the 'view-workouts' command with a date range.
+     */
+    @Test
+    void testMain_viewWorkoutsDateRange() {
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Cycling", "30", "2024-05-01"}, new Scanner(""));
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Cycling", "45", "2024-06-15"}, new Scanner(""));
+        outContent.reset();
+
+        FitnessTrackerApp.executeCommand(new String[]{"view-workouts", "2024-06-01", "2024-06-30"}, new Scanner(""));
+
+        assertTrue(outContent.toString().contains("Your Logged Workouts from 2024-06-01 to 2024-06-30:"));
+        assertTrue(outContent.toString().contains("Duration: 45 minutes"));
+        assertFalse(outContent.toString().contains("Duration: 30 minutes"));
+    }
+
+    /**
+     * Tests the 'report' command with weekly buckets.
+     */
+    @Test
+    void testMain_reportCommand() {
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Cycling", "30", "2024-06-04"}, new Scanner(""));
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Cycling", "45", "2024-06-06"}, new Scanner(""));
+        outContent.reset();
+
+        FitnessTrackerApp.executeCommand(new String[]{"report", "week", "2024-06-01", "2024-06-09"}, new Scanner(""));
+
+        assertTrue(outContent.toString().contains("Report by week from 2024-06-01 to 2024-06-09:"));
+        assertTrue(outContent.toString().contains("Week of 2024-06-03: Cycling, Workouts: 2, Duration: 75 minutes"));
+    }
+
+    /**
+     * Tests the 'leaderboard' command for all time and one activity.
+     */
+    @Test
+    void testMain_leaderboardCommand() {
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Weightlifting", "1000", "2024-06-04"}, new Scanner(""));
+        outContent.reset();
+
+        FitnessTrackerApp.executeCommand(new String[]{"leaderboard", "all", "Weightlifting", "--limit", "1"}, new Scanner(""));
+
+        assertTrue(outContent.toString().contains("Leaderboard for all time, Weightlifting:"));
+        assertTrue(outContent.toString().contains("1. TestUser (User123): 7000.00 calories, 1 workouts"));
+        assertTrue(outContent.toString().contains("Your rank: 1 of "));
+    }
+
+    /**
+     * Tests the 'analytics' command across all users.
+     */
+    @Test
+    void testMain_analyticsCommand() {
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Cycling", "30", "2024-06-04"}, new Scanner(""));
+        outContent.reset();
+
+        FitnessTrackerApp.executeCommand(new String[]{"analytics"}, new Scanner(""));
+
+        assertTrue(outContent.toString().contains("Analytics for "));
+        assertTrue(outContent.toString().contains("Cycling: Users: "));
+        assertTrue(outContent.toString().contains("  Minutes per user: average "));
+    }
+
+    /**
+     * Tests the 'recalculate' command with the catalog rates and with a missing model file.
+     */
+    @Test
+    void testMain_recalculateCommand() {
+        FitnessTrackerApp.executeCommand(new String[]{"log", "Cycling", "30", "2024-06-04"}, new Scanner(""));
+        outContent.reset();
+
+        FitnessTrackerApp.executeCommand(new String[]{"recalculate"}, new Scanner(""));
+        FitnessTrackerApp.executeCommand(new String[]{"recalculate", "missing-calories.txt"}, new Scanner(""));
+
+        assertTrue(outContent.toString().contains(" changed, in "));
+        assertTrue(errContent.toString().contains("Error reading calorie model: "));
+    }
+
+    /**
+     * Tests that the 'stats' command reports calls and errors of earlier commands.
+     */
+    @Test
+    void testMain_statsCommand() {
+        FitnessTrackerApp.commandStats().reset();
+        FitnessTrackerApp.executeCommand(new String[]{"track", "Cycling"}, new Scanner(""));
+        FitnessTrackerApp.executeCommand(new String[]{"track"}, new Scanner(""));
+        outContent.reset();
+
+        FitnessTrackerApp.executeCommand(new String[]{"stats"}, new Scanner(""));
+
+        assertTrue(outContent.toString().contains("Command statistics (latencies in microseconds):"));
+        assertTrue(outContent.toString().contains("track: Calls: 2, Errors: 1, Mean: "));
+    }
+
+    /**
+     * Tests that a script runs fully specified commands without prompts and continues after errors.
+     */
+    @Test
+    void testRunScript_executesCommandsWithoutPrompts() throws IOException {
+        String script = "# setup\n"
+                + "create-user \"Script User\" Script1\n"
+                + "log Cycling 30 2024-06-01\n"
+                + "log Cycling thirty 2024-06-01\n"
+                + "\n"
+                + "track Cycling\n"
+                + "exit\n"
+                + "view-user\n";
+
+        int executed = FitnessTrackerApp.runScript(new BufferedReader(new StringReader(script)));
+
+        assertEquals(5, executed);
+        String output = outContent.toString();
+        assertTrue(output.contains("User created successfully! Logged in as Script User."));
+        assertTrue(output.contains("Total Duration: 30 minutes"));
+        assertFalse(output.contains("Enter your name:"));
+        assertFalse(output.contains("User Name:"), "Commands after exit should not run.");
+        assertTrue(errContent.toString().contains("Error on line 4:"));
+    }
+
+    /**
+     * Tests that quoted arguments are kept together when tokenizing a script line.
+     */
+    @Test
+    void testTokenize_quotedArguments() {
+        assertArrayEquals(new String[]{"set-goal", "Weekly Ride", "150", "2024-06-01", "2024-06-07"},
+                FitnessTrackerApp.tokenize("set-goal  \"Weekly Ride\" 150 2024-06-01 2024-06-07"));
+    }
 }
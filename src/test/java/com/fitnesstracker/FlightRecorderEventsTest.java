@@ -0,0 +1,86 @@
+package com.fitnesstracker;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the custom Flight Recorder events.
+ * Covers commands, aggregation, workout creation, and persistence.
+ */
+class FlightRecorderEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that each event is emitted with its fields once enabled.
+     * Positive scenario.
+     */
+    @Test
+    void testEvents_recordedWhenEnabled() throws IOException {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(CommandEvent.class);
+            recording.enable(AggregationEvent.class);
+            recording.enable(WorkoutCreatedEvent.class);
+            recording.enable(PersistenceEvent.class);
+            recording.start();
+
+            UserRegistry registry = new UserRegistry();
+            User user = registry.create("Alice", "A1");
+            user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1)));
+            user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 2)));
+            user.getTotalWorkoutMinutes(ActivityType.CYCLING, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+            user.getWorkouts().get(1);
+            Snapshot.write(tempDir.resolve("snapshot.bin"), registry.users(), 1);
+            FitnessTrackerApp.testMode = true;
+            FitnessTrackerApp.executeCommand(new String[]{"bogus-command"}, new Scanner(""));
+
+            recording.stop();
+            Path file = tempDir.resolve("recording.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        RecordedEvent aggregation = only(events, "com.fitnesstracker.Aggregation");
+        assertEquals("A1", aggregation.getString("userId"));
+        assertEquals("minutes", aggregation.getString("metric"));
+        assertEquals("Cycling", aggregation.getString("activity"));
+        assertEquals(2, aggregation.getInt("workoutsScanned"));
+
+        List<RecordedEvent> created = events.stream()
+                .filter(event -> isType(event, "com.fitnesstracker.WorkoutCreated")).toList();
+        assertEquals(3, created.size());
+        assertEquals(1, created.stream().filter(event -> event.getBoolean("view")).count());
+
+        RecordedEvent persistence = only(events, "com.fitnesstracker.Persistence");
+        assertEquals("snapshot-write", persistence.getString("operation"));
+        assertEquals(1, persistence.getLong("records"));
+        assertTrue(persistence.getLong("bytes") > 0);
+
+        assertTrue(events.stream().anyMatch(event -> isType(event, "com.fitnesstracker.Command")
+                && "bogus-command".equals(event.getString("command"))));
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String type) {
+        List<RecordedEvent> matching = events.stream().filter(event -> isType(event, type)).toList();
+        assertEquals(1, matching.size(), "Expected one " + type + " event.");
+        return matching.get(0);
+    }
+
+    private static boolean isType(RecordedEvent event, String type) {
+        return event.getEventType().getName().equals(type);
+    }
+}
@@ -0,0 +1,140 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Journal} class.
+ * Covers recording, replay, and recovery from a torn tail.
+ */
+class JournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that replaying a journal rebuilds users, workouts, and goals.
+     * Positive scenario.
+     */
+    @Test
+    void testReplay_rebuildsState() throws IOException {
+        Path file = tempDir.resolve("journal.bin");
+        try (Journal journal = Journal.open(file, 0)) {
+            journal.recordCreateUser("Alice", "A1");
+            journal.recordLogWorkout("A1", new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1)));
+            journal.recordSetGoal("A1", new Goal("Ride", 100, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30)));
+            journal.recordUpdateGoalTitle("A1", 0, "Ride more");
+            journal.recordUpdateActivity("A1", 0, ActivityType.WEIGHTLIFTING);
+        }
+
+        UserRegistry users = new UserRegistry();
+        assertEquals(5, Journal.replay(file, users, 0));
+
+        User user = users.find("A1");
+        assertNotNull(user);
+        assertEquals("Alice", user.getName());
+        assertEquals(30, user.getTotalWorkoutMinutes(ActivityType.WEIGHTLIFTING));
+        assertEquals("Ride more", user.getGoals().get(0).getGoalTitle());
+    }
+
+    /**
+     * Tests that replayed workouts keep their duration to the second.
+     * Edge case scenario.
+     */
+    @Test
+    void testReplay_keepsSeconds() throws IOException {
+        Path file = tempDir.resolve("journal.bin");
+        try (Journal journal = Journal.open(file, 0)) {
+            journal.recordCreateUser("Alice", "A1");
+            journal.recordLogWorkout("A1", new Workout(ActivityType.CYCLING, Duration.ofSeconds(45), LocalDate.of(2024, 6, 1)));
+        }
+
+        UserRegistry users = new UserRegistry();
+        Journal.replay(file, users, 0);
+
+        Workout workout = users.find("A1").getWorkouts().get(0);
+        assertEquals(Duration.ofSeconds(45), workout.getDuration());
+        assertEquals(6.0, workout.getCaloriesBurned(), 1e-9);
+    }
+
+    /**
+     * Tests that a torn record at the end of the journal is ignored and cut off on reopen.
+     * Edge case scenario.
+     */
+    @Test
+    void testReplay_ignoresTornTail() throws IOException {
+        Path file = tempDir.resolve("journal.bin");
+        try (Journal journal = Journal.open(file, 0)) {
+            journal.recordCreateUser("Alice", "A1");
+        }
+        Files.write(file, new byte[]{0, 0, 0, 40, 2, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(1, Journal.replay(file, new UserRegistry(), 0));
+
+        try (Journal journal = Journal.open(file, 0)) {
+            journal.recordCreateUser("Bob", "B1");
+        }
+        UserRegistry users = new UserRegistry();
+        assertEquals(2, Journal.replay(file, users, 0));
+        assertNotNull(users.find("B1"));
+    }
+
+    /**
+     * Tests that a file that is not a journal is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testReplay_rejectsForeignFile() throws IOException {
+        Path file = tempDir.resolve("other.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+
+        assertThrows(IOException.class, () -> Journal.replay(file, new UserRegistry(), 0));
+    }
+
+    /**
+     * Tests that a journal older than the loaded snapshot is skipped and restarted.
+     * Edge case scenario.
+     */
+    @Test
+    void testReplay_skipsJournalOlderThanSnapshot() throws IOException {
+        Path file = tempDir.resolve("journal.bin");
+        try (Journal journal = Journal.open(file, 1)) {
+            journal.recordCreateUser("Alice", "A1");
+        }
+
+        assertEquals(0, Journal.replay(file, new UserRegistry(), 2));
+        try (Journal journal = Journal.open(file, 2)) {
+            assertEquals(2, journal.epoch());
+        }
+        assertEquals(0, Journal.replay(file, new UserRegistry(), 2));
+    }
+
+    /**
+     * Tests that a recorded workout batch is replayed in full.
+     * Positive scenario.
+     */
+    @Test
+    void testReplay_workoutBatch() throws IOException {
+        Path file = tempDir.resolve("journal.bin");
+        ActivityType[] types = {ActivityType.CYCLING, ActivityType.RUNNING, ActivityType.CYCLING};
+        int[] days = {19875, 19876, 19877};
+        int[] minutes = {10, 20, 30};
+        try (Journal journal = Journal.open(file, 0)) {
+            journal.recordCreateUser("Alice", "A1");
+            journal.recordLogWorkouts("A1", types, days, minutes, 3);
+        }
+
+        UserRegistry users = new UserRegistry();
+        assertEquals(2, Journal.replay(file, users, 0));
+        assertEquals(40, users.find("A1").getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(3, users.find("A1").getWorkouts().size());
+    }
+}
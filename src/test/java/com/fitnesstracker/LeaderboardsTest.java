@@ -0,0 +1,165 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Leaderboards} class.
+ * Covers ranking, weekly and per-activity boards, and workout changes.
+ */
+class LeaderboardsTest {
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2024, 6, 5).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+
+    /**
+     * Tests that users are ranked by calories, highest first.
+     * Positive scenario.
+     */
+    @Test
+    void testTop_ranksByCalories() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        User bob = registry.create("Bob", "B1");
+        User carol = registry.create("Carol", "C1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 3)));
+        bob.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 4)));
+        carol.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(20), LocalDate.of(2024, 5, 1)));
+
+        Leaderboards leaderboards = registry.leaderboards();
+        List<LeaderboardEntry> top = leaderboards.top(null, null, 2);
+
+        assertEquals(2, top.size());
+        assertEquals(new LeaderboardEntry(1, "B1", "Bob", 1, 240.0), top.get(0));
+        assertEquals("C1", top.get(1).userId());
+        assertEquals(3, leaderboards.rankOf(alice, null, null).rank());
+        assertEquals(3, leaderboards.size(null, null));
+    }
+
+    /**
+     * Tests that weekly and per-activity boards only count matching workouts.
+     * Positive scenario.
+     */
+    @Test
+    void testTop_weeklyAndPerActivity() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        User bob = registry.create("Bob", "B1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 9)));
+        bob.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(60), LocalDate.of(2024, 6, 2)));
+
+        Leaderboards leaderboards = registry.leaderboards();
+        LocalDate week = leaderboards.currentWeek();
+
+        assertEquals(LocalDate.of(2024, 6, 3), week);
+        assertEquals(List.of("A1"), userIds(leaderboards.top(week, null, 10)));
+        assertEquals(List.of("B1"), userIds(leaderboards.top(LocalDate.of(2024, 6, 2), null, 10)));
+        assertEquals(List.of("B1", "A1"), userIds(leaderboards.top(null, null, 10)));
+        assertEquals(List.of("A1"), userIds(leaderboards.top(null, ActivityType.CYCLING, 10)));
+        assertNull(leaderboards.rankOf(bob, week, null));
+    }
+
+    /**
+     * Tests that changing or removing workouts moves users on the boards.
+     * Edge case scenario.
+     */
+    @Test
+    void testRank_followsWorkoutChanges() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        User bob = registry.create("Bob", "B1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 3)));
+        bob.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 3)));
+        Leaderboards leaderboards = registry.leaderboards();
+        assertEquals(2, leaderboards.rankOf(alice, null, null).rank());
+
+        alice.getWorkouts().get(0).setDuration(Duration.ofMinutes(40));
+        assertEquals(1, leaderboards.rankOf(alice, null, null).rank());
+
+        alice.getWorkouts().get(0).setDate(LocalDate.of(2024, 5, 27));
+        assertNull(leaderboards.rankOf(alice, LocalDate.of(2024, 6, 3), null));
+        assertEquals(1, leaderboards.rankOf(alice, LocalDate.of(2024, 5, 27), null).rank());
+
+        alice.getWorkouts().clear();
+        assertNull(leaderboards.rankOf(alice, null, null));
+        assertEquals(1, leaderboards.size(null, null));
+    }
+
+    /**
+     * Tests that ties are broken by user ID.
+     * Edge case scenario.
+     */
+    @Test
+    void testTop_tiesOrderedByUserId() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        for (String userId : new String[]{"C1", "A1", "B1"}) {
+            registry.create(userId, userId)
+                    .addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(15), LocalDate.of(2024, 6, 3)));
+        }
+
+        assertEquals(List.of("A1", "B1", "C1"), userIds(registry.leaderboards().top(null, null, 10)));
+    }
+
+    /**
+     * Tests top-N and ranks against a full sort after many random changes.
+     * Edge case scenario.
+     */
+    @Test
+    void testRank_matchesFullSort() {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            users.add(registry.create("User" + i, String.format("U%03d", i)));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            List<Workout> workouts = user.getWorkouts();
+            if (!workouts.isEmpty() && random.nextInt(4) == 0) {
+                workouts.get(random.nextInt(workouts.size())).setDuration(Duration.ofMinutes(1 + random.nextInt(90)));
+            } else {
+                user.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(1 + random.nextInt(90)),
+                        LocalDate.of(2024, 6, 3)));
+            }
+        }
+
+        List<User> expected = new ArrayList<>(users);
+        expected.removeIf(user -> user.getWorkouts().isEmpty());
+        expected.sort(Comparator.comparingDouble((User user) -> -user.getTotalCaloriesBurned(ActivityType.WEIGHTLIFTING))
+                .thenComparing(User::getUserId));
+        Leaderboards leaderboards = registry.leaderboards();
+        List<LeaderboardEntry> top = leaderboards.top(null, null, expected.size() + 10);
+
+        assertEquals(expected.size(), top.size());
+        for (int i = 0; i < expected.size(); i++) {
+            User user = expected.get(i);
+            assertEquals(user.getUserId(), top.get(i).userId());
+            assertEquals(i + 1, leaderboards.rankOf(user, null, null).rank());
+            assertEquals(user.getTotalCaloriesBurned(ActivityType.WEIGHTLIFTING), top.get(i).calories(), 1e-6);
+        }
+    }
+
+    /**
+     * Tests that a non-positive leaderboard size is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testTop_invalidLimitThrowsException() {
+        Leaderboards leaderboards = new UserRegistry(CLOCK).leaderboards();
+
+        assertThrows(IllegalArgumentException.class, () -> leaderboards.top(null, null, 0));
+    }
+
+    private static List<String> userIds(List<LeaderboardEntry> entries) {
+        return entries.stream().map(LeaderboardEntry::userId).toList();
+    }
+}
@@ -0,0 +1,112 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ListingRenderer} class.
+ * Covers hand-rolled formatting, paging, and ordering.
+ */
+class ListingRendererTest {
+
+    /**
+     * Tests that rendered workout lines match Workout.toString().
+     * Positive scenario.
+     */
+    @Test
+    void testRenderWorkouts_matchesWorkoutToString() {
+        User user = new User("Test", "T1");
+        Workout workout = new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(37), LocalDate.of(2024, 2, 29));
+        user.addWorkout(workout);
+
+        String output = render(user, null, null, new ListingRenderer.PageRequest(1, 0, false));
+        assertEquals("Your Logged Workouts:\n" + workout + "\n", output);
+    }
+
+    /**
+     * Tests that the hand-rolled date and number formats match LocalDate and %.2f.
+     * Edge case scenario.
+     */
+    @Test
+    void testFormatting_matchesJdk() {
+        for (int day = -800_000; day < 2_932_897; day += 997) {
+            assertEquals(LocalDate.ofEpochDay(day).toString(),
+                    ListingRenderer.appendDate(new StringBuilder(), day).toString());
+        }
+        for (double value : new double[]{0.0, 0.004, 0.005, 1.5, 4.5, 123.456, 7.0 * 37, -2.25, 99.999}) {
+            assertEquals(String.format("%.2f", value), ListingRenderer.appendFixed2(new StringBuilder(), value).toString());
+        }
+    }
+
+    /**
+     * Tests that values just below and just above half a hundredth round like %.2f,
+     * although multiplying them by 100 lands on the other side.
+     * Edge case scenario.
+     */
+    @Test
+    void testAppendFixed2_nearHalfHundredth() {
+        assertEquals("13062.49", ListingRenderer.appendFixed2(new StringBuilder(), 13062.494999999999).toString());
+        assertEquals("8665.51", ListingRenderer.appendFixed2(new StringBuilder(), 8665.505).toString());
+        assertEquals("1.01", ListingRenderer.appendFixed2(new StringBuilder(), 1.005).toString());
+        for (int cents = 0; cents < 2_000_000; cents += 7) {
+            double half = (cents + 0.5) / 100;
+            for (double value : new double[]{Math.nextDown(half), half, Math.nextUp(half), 0.05 * cents / 60}) {
+                assertEquals(String.format("%.2f", value),
+                        ListingRenderer.appendFixed2(new StringBuilder(), value).toString());
+            }
+        }
+    }
+
+    /**
+     * Tests that a page shows only its slice, newest first when requested.
+     * Positive scenario.
+     */
+    @Test
+    void testRenderWorkouts_pagesNewestFirst() {
+        User user = new User("Test", "T1");
+        for (int i = 1; i <= 25; i++) {
+            user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(i), LocalDate.of(2024, 6, 1).plusDays(i)));
+        }
+
+        String output = render(user, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 7, 31),
+                ListingRenderer.PageRequest.parse(new String[]{"view-workouts", "--page", "2", "--limit", "10", "--newest"},
+                        new ArrayList<>()));
+        assertTrue(output.contains("Duration: 15 minutes"));
+        assertTrue(output.contains("Duration: 6 minutes"));
+        assertFalse(output.contains("Duration: 16 minutes"));
+        assertFalse(output.contains("Duration: 5 minutes"));
+        assertTrue(output.indexOf("Duration: 15 minutes") < output.indexOf("Duration: 6 minutes"));
+        assertTrue(output.contains("Page 2 of 3 (25 workouts)."));
+    }
+
+    /**
+     * Tests that asking for a page past the end or a bad option is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testPageRequest_invalidPageThrowsException() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(5), LocalDate.of(2024, 6, 1)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> render(user, null, null, new ListingRenderer.PageRequest(2, 10, false)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ListingRenderer.PageRequest.parse(new String[]{"view-goals", "--page", "0"}, new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ListingRenderer.PageRequest.parse(new String[]{"view-goals", "--limit"}, new ArrayList<>()));
+    }
+
+    private static String render(User user, LocalDate from, LocalDate to, ListingRenderer.PageRequest request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ListingRenderer().renderWorkouts(user, from, to, request, new PrintStream(bytes));
+        return bytes.toString().replace(System.lineSeparator(), "\n");
+    }
+}
@@ -0,0 +1,110 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Snapshot} class.
+ * Covers writing and loading users, workouts, and goals.
+ */
+class SnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that a loaded snapshot matches the users it was written from.
+     * Positive scenario.
+     */
+    @Test
+    void testWriteAndLoad_roundTrip() throws IOException {
+        UserRegistry original = new UserRegistry();
+        User alice = original.create("Alice", "A1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1)));
+        alice.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(45), LocalDate.of(2024, 6, 2)));
+        Goal goal = new Goal("Ride", 100, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        goal.updateProgress(40);
+        alice.addGoal(goal);
+        alice.addGoal(new Goal("Run", 100, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30),
+                GoalMetric.MINUTES, ActivityType.RUNNING));
+        original.create("Bob", "B1");
+
+        Path file = tempDir.resolve("snapshot.bin");
+        Snapshot.write(file, original.users(), 7);
+
+        UserRegistry loaded = new UserRegistry();
+        assertEquals(7, Snapshot.load(file, loaded));
+        assertEquals(2, loaded.size());
+        User loadedAlice = loaded.find("A1");
+        assertEquals("Alice", loadedAlice.getName());
+        assertEquals(2, loadedAlice.getWorkouts().size());
+        assertEquals(30, loadedAlice.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(LocalDate.of(2024, 6, 2), loadedAlice.getWorkouts().get(1).getDate());
+        Goal loadedGoal = loadedAlice.getGoals().get(0);
+        assertEquals("Ride", loadedGoal.getGoalTitle());
+        assertEquals(40, loadedGoal.getCurrentValue(), 0.001);
+        assertEquals(LocalDate.of(2024, 6, 30), loadedGoal.getEndDate());
+        Goal trackedGoal = loadedAlice.getGoals().get(1);
+        assertEquals(GoalMetric.MINUTES, trackedGoal.getMetric());
+        assertEquals(ActivityType.RUNNING, trackedGoal.getActivityType());
+        assertEquals(45, trackedGoal.getCurrentValue(), 0.001);
+        loadedAlice.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(5), LocalDate.of(2024, 6, 3)));
+        assertEquals(50, trackedGoal.getCurrentValue(), 0.001);
+    }
+
+    /**
+     * Tests that workout durations are saved to the second.
+     * Edge case scenario.
+     */
+    @Test
+    void testWriteAndLoad_keepsSeconds() throws IOException {
+        UserRegistry original = new UserRegistry();
+        User alice = original.create("Alice", "A1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofSeconds(90), LocalDate.of(2024, 6, 1)));
+
+        Path file = tempDir.resolve("snapshot.bin");
+        Snapshot.write(file, original.users(), 1);
+        UserRegistry loaded = new UserRegistry();
+        Snapshot.load(file, loaded);
+
+        Workout workout = loaded.find("A1").getWorkouts().get(0);
+        assertEquals(Duration.ofSeconds(90), workout.getDuration());
+        assertEquals(12.0, workout.getCaloriesBurned(), 1e-9);
+    }
+
+    /**
+     * Tests that a missing snapshot loads nothing.
+     * Edge case scenario.
+     */
+    @Test
+    void testLoad_missingFileReturnsZero() throws IOException {
+        UserRegistry users = new UserRegistry();
+
+        assertEquals(0, Snapshot.load(tempDir.resolve("missing.bin"), users));
+        assertTrue(users.isEmpty());
+    }
+
+    /**
+     * Tests that a truncated snapshot is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testLoad_truncatedFileThrowsException() throws IOException {
+        UserRegistry original = new UserRegistry();
+        original.create("Alice", "A1");
+        Path file = tempDir.resolve("snapshot.bin");
+        Snapshot.write(file, original.users(), 1);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> Snapshot.load(file, new UserRegistry()));
+    }
+}
@@ -0,0 +1,253 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link TieredStorage} class.
+ * Covers sealing old workouts into segments, and reading and changing them afterwards.
+ */
+class TieredStorageTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+    private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void restoreModel() {
+        Workout.setCalorieModel(CalorieModel.catalogRates());
+    }
+
+    /**
+     * Logs one workout a day for a year, ending today, alternating activity types.
+     */
+    private static void logYear(User user) {
+        LocalDate start = TODAY.minusDays(365);
+        for (int i = 0; i <= 365; i++) {
+            ActivityType type = i % 2 == 0 ? ActivityType.CYCLING : ActivityType.WEIGHTLIFTING;
+            user.addWorkout(new Workout(type, Duration.ofMinutes(10 + i % 50), start.plusDays(i)));
+        }
+    }
+
+    /**
+     * Tests that sealing keeps only the hot window in memory and every query gives the same answer.
+     * Positive scenario.
+     */
+    @Test
+    void testSeal_queriesMatchUnsealedUser() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User sealed = registry.create("Sealed", "S1");
+        User reference = new User("Reference", "R1", CLOCK);
+        logYear(sealed);
+        logYear(reference);
+
+        long moved = new TieredStorage(tempDir, 30, 1).seal(registry.users(), TODAY);
+
+        assertEquals(336, moved);
+        assertEquals(336, sealed.read(() -> sealed.workoutLog().coldSize()));
+        assertEquals(reference.getTotalWorkoutMinutes(ActivityType.CYCLING), sealed.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        LocalDate[][] ranges = {
+                {TODAY.minusDays(400), TODAY},
+                {TODAY.minusDays(200), TODAY.minusDays(100)},
+                {TODAY.minusDays(40), TODAY.minusDays(20)},
+                {TODAY.minusDays(10), TODAY}};
+        for (LocalDate[] range : ranges) {
+            assertEquals(reference.getTotalWorkoutMinutes(range[0], range[1]), sealed.getTotalWorkoutMinutes(range[0], range[1]));
+            assertEquals(reference.getTotalCaloriesBurned(ActivityType.WEIGHTLIFTING, range[0], range[1]),
+                    sealed.getTotalCaloriesBurned(ActivityType.WEIGHTLIFTING, range[0], range[1]), 1e-6);
+            assertEquals(reference.getWorkoutCount(ActivityType.CYCLING, range[0], range[1]),
+                    sealed.getWorkoutCount(ActivityType.CYCLING, range[0], range[1]));
+            assertEquals(reference.getWorkoutsBetween(range[0], range[1]).toString(),
+                    sealed.getWorkoutsBetween(range[0], range[1]).toString());
+        }
+        assertEquals(reference.getWorkouts().toString(), sealed.getWorkouts().toString());
+    }
+
+    /**
+     * Tests that ranges covering whole segments are answered from the footer alone.
+     * Positive scenario.
+     */
+    @Test
+    void testSeal_footerAnswersWithoutReadingRows() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User user = registry.create("Alice", "A1");
+        logYear(user);
+        TieredStorage storage = new TieredStorage(tempDir, 30, 1);
+        storage.seal(registry.users(), TODAY);
+
+        Path file = storage.directoryOf(user).resolve("0.seg");
+        WorkoutSegment footer = WorkoutSegment.open(file);
+        assertEquals(336, footer.rows());
+        assertEquals((int) TODAY.minusDays(365).toEpochDay(), footer.minDay());
+        assertEquals((int) TODAY.minusDays(30).toEpochDay(), footer.maxDay());
+        long minutes = user.getTotalWorkoutMinutes(TODAY.minusYears(2), TODAY);
+
+        Files.delete(file);
+
+        assertEquals(minutes, user.getTotalWorkoutMinutes(TODAY.minusYears(2), TODAY));
+        assertEquals(footer.count(ActivityType.CYCLING.getId()), user.getWorkoutCount(ActivityType.CYCLING,
+                TODAY.minusYears(2), TODAY.minusDays(30)));
+    }
+
+    /**
+     * Tests that a sealed workout keeps its index and can still be changed.
+     * Positive scenario.
+     */
+    @Test
+    void testSeal_changeSealedWorkout() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User user = registry.create("Alice", "A1");
+        logYear(user);
+        Workout bound = user.getWorkouts().get(3);
+        new TieredStorage(tempDir, 30, 1).seal(registry.users(), TODAY);
+        double cycling = user.getTotalCaloriesBurned(ActivityType.CYCLING);
+
+        bound.setActivityType(ActivityType.CYCLING);
+
+        Workout reread = user.getWorkouts().get(3);
+        assertEquals(ActivityType.CYCLING, reread.getActivityType());
+        assertEquals(TODAY.minusDays(362), reread.getDate());
+        assertEquals(cycling + reread.getCaloriesBurned(), user.getTotalCaloriesBurned(ActivityType.CYCLING), 1e-6);
+        assertEquals(1, user.getWorkoutCount(ActivityType.CYCLING, TODAY.minusDays(362), TODAY.minusDays(362)));
+        assertEquals(cycling + reread.getCaloriesBurned(),
+                registry.leaderboards().rankOf(user, null, ActivityType.CYCLING).calories(), 1e-6);
+    }
+
+    /**
+     * Tests that a sealed segment that cannot be rewritten leaves the totals unchanged.
+     * Negative scenario.
+     */
+    @Test
+    void testSeal_failedRewriteKeepsTotals() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User user = registry.create("Alice", "A1");
+        logYear(user);
+        Workout bound = user.getWorkouts().get(3);
+        TieredStorage storage = new TieredStorage(tempDir, 30, 1);
+        storage.seal(registry.users(), TODAY);
+        double cycling = user.getTotalCaloriesBurned(ActivityType.CYCLING);
+        long minutes = user.getTotalWorkoutMinutes(TODAY.minusYears(2), TODAY);
+        Path blocked = storage.directoryOf(user).resolve("0.seg.tmp");
+        Files.createDirectories(blocked.resolve("in-use"));
+
+        assertThrows(UncheckedIOException.class, () -> bound.setActivityType(ActivityType.CYCLING));
+        assertThrows(UncheckedIOException.class, () -> new CalorieRecalculator().recalculate(registry.users(),
+                CalorieModel.rates(Map.of(ActivityType.CYCLING, 1.0))));
+
+        assertEquals(cycling, user.getTotalCaloriesBurned(ActivityType.CYCLING), 1e-6);
+        assertEquals(minutes, user.getTotalWorkoutMinutes(TODAY.minusYears(2), TODAY));
+        assertEquals(ActivityType.WEIGHTLIFTING, user.getWorkouts().get(3).getActivityType());
+        assertEquals(cycling, registry.leaderboards().rankOf(user, null, ActivityType.CYCLING).calories(), 1e-6);
+    }
+
+    /**
+     * Tests that a calorie recalculation rewrites sealed segments.
+     * Positive scenario.
+     */
+    @Test
+    void testSeal_recalculateSealedWorkouts() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User user = registry.create("Alice", "A1");
+        logYear(user);
+        new TieredStorage(tempDir, 30, 1).seal(registry.users(), TODAY);
+
+        RecalculationResult result = new CalorieRecalculator().recalculate(registry.users(),
+                CalorieModel.rates(Map.of(ActivityType.CYCLING, 1.0)));
+
+        assertEquals(183, result.changed());
+        long minutes = user.getTotalWorkoutMinutes(ActivityType.CYCLING);
+        assertEquals(minutes, user.getTotalCaloriesBurned(ActivityType.CYCLING), 1e-6);
+        LocalDate from = TODAY.minusDays(300);
+        LocalDate to = TODAY.minusDays(200);
+        assertEquals(user.getTotalWorkoutMinutes(ActivityType.CYCLING, from, to),
+                user.getTotalCaloriesBurned(ActivityType.CYCLING, from, to), 1e-6);
+    }
+
+    /**
+     * Tests that workouts are sealed in logged order, so a recent one holds back older ones logged after it.
+     * Edge case scenario.
+     */
+    @Test
+    void testSeal_stopsAtFirstRecentWorkout() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User user = registry.create("Alice", "A1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), TODAY.minusDays(100)));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), TODAY));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), TODAY.minusDays(200)));
+        TieredStorage storage = new TieredStorage(tempDir, 30, 1);
+
+        assertEquals(1, storage.seal(registry.users(), TODAY));
+        assertEquals(0, new TieredStorage(tempDir, 30, 2).seal(registry.users(), TODAY));
+
+        List<Workout> inOrder = user.getWorkoutsBetween(TODAY.minusYears(1), TODAY);
+        assertEquals(List.of(TODAY.minusDays(200), TODAY.minusDays(100), TODAY),
+                inOrder.stream().map(Workout::getDate).toList());
+    }
+
+    /**
+     * Tests that clearing workouts deletes their segments, and reset deletes what is left.
+     * Edge case scenario.
+     */
+    @Test
+    void testClearAndReset_deleteSegments() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        User bob = registry.create("Bob", "B1");
+        logYear(alice);
+        logYear(bob);
+        TieredStorage storage = new TieredStorage(tempDir, 30, 1);
+        storage.seal(registry.users(), TODAY);
+
+        alice.getWorkouts().clear();
+
+        assertFalse(Files.exists(storage.directoryOf(alice).resolve("0.seg")));
+        assertEquals(0, alice.getTotalWorkoutMinutes(TODAY.minusYears(2), TODAY));
+        assertTrue(Files.exists(storage.directoryOf(bob).resolve("0.seg")));
+        storage.reset();
+        assertFalse(Files.exists(storage.directoryOf(bob)));
+    }
+
+    /**
+     * Tests that a snapshot written after sealing holds every workout.
+     * Positive scenario.
+     */
+    @Test
+    void testSnapshot_includesSealedWorkouts() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User user = registry.create("Alice", "A1");
+        logYear(user);
+        new TieredStorage(tempDir.resolve("segments"), 30, 1).seal(registry.users(), TODAY);
+
+        Path snapshot = tempDir.resolve("snapshot.bin");
+        Snapshot.write(snapshot, registry.users(), 1);
+        UserRegistry loaded = new UserRegistry(CLOCK);
+        Snapshot.load(snapshot, loaded);
+
+        assertEquals(user.getWorkouts().toString(), loaded.find("A1").getWorkouts().toString());
+    }
+
+    /**
+     * Tests that invalid settings are rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testConstructor_invalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TieredStorage(tempDir, -1));
+        assertThrows(IllegalArgumentException.class, () -> new TieredStorage(tempDir, 30, 0));
+    }
+}
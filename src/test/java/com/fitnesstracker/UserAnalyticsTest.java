@@ -0,0 +1,107 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserAnalytics} class.
+ * Covers totals, per-user spread, and splitting across workers.
+ */
+class UserAnalyticsTest {
+
+    /**
+     * Tests totals and per-user figures for a small set of users.
+     * Positive scenario.
+     */
+    @Test
+    void testAnalyze_totalsAndSpread() {
+        UserRegistry registry = new UserRegistry();
+        User alice = registry.create("Alice", "A1");
+        User bob = registry.create("Bob", "B1");
+        registry.create("Carol", "C1");
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 3)));
+        alice.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 4)));
+        bob.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 3)));
+        bob.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(5), LocalDate.of(2024, 6, 3)));
+
+        AnalyticsReport report = new UserAnalytics().analyze(registry.users());
+
+        assertEquals(3, report.users());
+        assertEquals(2, report.activeUsers());
+        assertEquals(4, report.workouts());
+        assertEquals(45, report.minutes());
+        assertEquals(2, report.activities().size());
+
+        ActivityStatistics cycling = report.activities().stream()
+                .filter(statistics -> statistics.activityType() == ActivityType.CYCLING).findFirst().orElseThrow();
+        assertEquals(2, cycling.users());
+        assertEquals(3, cycling.workouts());
+        assertEquals(40, cycling.minutes());
+        assertEquals(320.0, cycling.calories(), 1e-9);
+        assertEquals(10, cycling.minUserMinutes());
+        assertEquals(30, cycling.maxUserMinutes());
+        assertEquals(20.0, cycling.averageUserMinutes(), 1e-9);
+        assertEquals(10.0, cycling.stdDevUserMinutes(), 1e-9);
+        assertArrayEquals(new long[]{0, 0, 0, 1, 1}, cycling.minutesHistogram()); // 8-15 and 16-31
+    }
+
+    /**
+     * Tests that a parallel run over many users matches a sequential sum.
+     * Edge case scenario.
+     */
+    @Test
+    void testAnalyze_parallelMatchesSequential() {
+        UserRegistry registry = new UserRegistry();
+        Random random = new Random(7);
+        long expectedMinutes = 0;
+        int expectedActive = 0;
+        int userCount = UserAnalytics.SPLIT_THRESHOLD * 9 + 3;
+        for (int i = 0; i < userCount; i++) {
+            User user = registry.create("User" + i, "U" + i);
+            int workouts = random.nextInt(4);
+            for (int w = 0; w < workouts; w++) {
+                int minutes = 1 + random.nextInt(120);
+                user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(minutes), LocalDate.of(2024, 6, 3)));
+                expectedMinutes += minutes;
+            }
+            if (workouts > 0) {
+                expectedActive++;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AnalyticsReport report = new UserAnalytics(pool).analyze(registry.users());
+
+            assertEquals(userCount, report.users());
+            assertEquals(expectedActive, report.activeUsers());
+            assertEquals(expectedMinutes, report.minutes());
+            ActivityStatistics running = report.activities().get(0);
+            assertEquals(expectedActive, running.users());
+            assertEquals(expectedActive, Arrays.stream(running.minutesHistogram()).sum());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that an empty user base gives an empty report.
+     * Negative scenario.
+     */
+    @Test
+    void testAnalyze_noUsers() {
+        AnalyticsReport report = new UserAnalytics().analyze(List.of());
+
+        assertEquals(0, report.users());
+        assertEquals(0, report.activeUsers());
+        assertTrue(report.activities().isEmpty());
+    }
+}
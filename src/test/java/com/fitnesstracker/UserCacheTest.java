@@ -0,0 +1,189 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserCache} class, used through a {@link UserRegistry} with a cache budget.
+ * Covers eviction, reading users back, write-backs, and the counters.
+ */
+class UserCacheTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+    private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    // Room for one or two users with a few workouts each.
+    private static final long BUDGET = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private UserRegistry boundedRegistry() {
+        return new UserRegistry(CLOCK, WorkoutStorage.HEAP, tempDir, BUDGET);
+    }
+
+    private static void logWorkouts(User user, int count) {
+        for (int i = 0; i < count; i++) {
+            ActivityType type = i % 2 == 0 ? ActivityType.RUNNING : ActivityType.CYCLING;
+            user.addWorkout(new Workout(type, Duration.ofMinutes(10 + i), TODAY.minusDays(i)));
+        }
+    }
+
+    /**
+     * Tests that only the recently used users stay in memory and evicted users are read back unchanged.
+     * Positive scenario.
+     */
+    @Test
+    void testFind_readsEvictedUsersBack() {
+        UserRegistry registry = boundedRegistry();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = registry.create("User" + i, "U" + i);
+            logWorkouts(user, i + 1);
+            user.addGoal(new Goal("Goal" + i, 100, TODAY.minusDays(7), TODAY, GoalMetric.MINUTES, null));
+            expected.add(user.getWorkouts() + " " + user.getGoals());
+        }
+
+        UserCacheStats afterCreate = registry.cacheStats();
+        assertEquals(10, afterCreate.users());
+        assertTrue(afterCreate.residentUsers() < 10);
+        assertTrue(afterCreate.residentBytes() <= BUDGET);
+        assertTrue(afterCreate.evictions() > 0);
+
+        for (int i = 0; i < 10; i++) {
+            User user = registry.find("U" + i);
+            assertEquals("User" + i, user.getName());
+            assertEquals(expected.get(i), user.getWorkouts() + " " + user.getGoals());
+        }
+        UserCacheStats stats = registry.cacheStats();
+        assertEquals(10, stats.hits() + stats.misses());
+        assertTrue(stats.writeBacks() > 0);
+        assertEquals(10, registry.size());
+        assertNull(registry.find("missing"));
+    }
+
+    /**
+     * Tests that reading a user back does not count its workouts on the leaderboards again,
+     * and that later workouts are counted.
+     * Positive scenario.
+     */
+    @Test
+    void testFind_leaderboardsCountReadBackUsersOnce() {
+        UserRegistry registry = boundedRegistry();
+        User alice = registry.create("Alice", "A1");
+        logWorkouts(alice, 3);
+        double calories = alice.getTotalCaloriesBurned(ActivityType.RUNNING) + alice.getTotalCaloriesBurned(ActivityType.CYCLING);
+        alice = null;
+        for (int i = 0; i < 5; i++) {
+            logWorkouts(registry.create("Other" + i, "O" + i), 3);
+        }
+
+        User reread = registry.find("A1");
+        LeaderboardEntry entry = registry.leaderboards().rankOf(reread, null, null);
+        assertEquals(3, entry.workouts());
+        assertEquals(calories, entry.calories(), 1e-6);
+
+        reread.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), TODAY));
+        assertEquals(4, registry.leaderboards().rankOf(reread, null, null).workouts());
+    }
+
+    /**
+     * Tests that a user changed after it was evicted, through a reference kept by the caller,
+     * is the same object a lookup returns and has its change written back.
+     * Edge case scenario.
+     */
+    @Test
+    void testChange_afterEvictionIsNotLost() throws IOException {
+        UserRegistry registry = boundedRegistry();
+        User held = registry.create("Alice", "A1");
+        logWorkouts(held, 2);
+        for (int i = 0; i < 5; i++) {
+            registry.create("Other" + i, "O" + i);
+        }
+        assertFalse(registry.residentUsers().contains(held));
+
+        held.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(45), TODAY));
+        assertTrue(registry.residentUsers().contains(held));
+        for (int i = 5; i < 10; i++) {
+            registry.create("Other" + i, "O" + i);
+        }
+
+        assertSame(held, registry.find("A1"));
+        for (int i = 10; i < 15; i++) {
+            registry.create("Other" + i, "O" + i);
+        }
+        User onDisk = Snapshot.readUser(tempDir.resolve("QTE.user"), (name, userId) -> new User(name, userId, CLOCK));
+        assertEquals(held.getWorkouts().toString(), onDisk.getWorkouts().toString());
+    }
+
+    /**
+     * Tests that a snapshot of a bounded registry holds every user, in memory or not.
+     * Positive scenario.
+     */
+    @Test
+    void testSnapshot_writesEvictedUsers() throws IOException {
+        UserRegistry registry = boundedRegistry();
+        for (int i = 0; i < 10; i++) {
+            logWorkouts(registry.create("User" + i, "U" + i), i + 1);
+        }
+
+        Path snapshot = tempDir.resolve("snapshot.bin");
+        Snapshot.write(snapshot, registry.users(), 1);
+        UserRegistry loaded = new UserRegistry(CLOCK);
+        Snapshot.load(snapshot, loaded);
+
+        assertEquals(10, loaded.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(registry.find("U" + i).getWorkouts().toString(), loaded.find("U" + i).getWorkouts().toString());
+        }
+        assertTrue(registry.cacheStats().residentUsers() < 10);
+    }
+
+    /**
+     * Tests that concurrent lookups of evicted users return one object per user with its workouts.
+     * Edge case scenario.
+     */
+    @Test
+    void testFind_concurrentLookups() throws Exception {
+        UserRegistry registry = boundedRegistry();
+        for (int i = 0; i < 20; i++) {
+            logWorkouts(registry.create("User" + i, "U" + i), i + 1);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String userId = "U" + (i % 20);
+            results.add(executor.submit(() -> registry.find(userId).getWorkouts().size()));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i % 20 + 1, results.get(i).get());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(400, registry.cacheStats().hits() + registry.cacheStats().misses());
+    }
+
+    /**
+     * Tests that a registry without a cache budget has no cache counters, and that an invalid budget is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testCacheStats_unboundedAndInvalidBudget() {
+        assertNull(new UserRegistry(CLOCK).cacheStats());
+        assertThrows(IllegalArgumentException.class, () -> new UserRegistry(CLOCK, WorkoutStorage.HEAP, tempDir, 0));
+    }
+}
@@ -0,0 +1,72 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserRegistry} class.
+ * Covers lookups, duplicate IDs, and concurrent creation.
+ */
+class UserRegistryTest {
+
+    /**
+     * Tests that a created user can be found by ID.
+     * Positive scenario.
+     */
+    @Test
+    void testFind_returnsCreatedUser() {
+        UserRegistry registry = new UserRegistry();
+        User created = registry.create("Alice", "A1");
+
+        assertSame(created, registry.find("A1"));
+        assertNull(registry.find("missing"));
+    }
+
+    /**
+     * Tests that creating a user with an existing ID is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testCreate_duplicateIdReturnsNull() {
+        UserRegistry registry = new UserRegistry();
+        User first = registry.create("Alice", "A1");
+
+        assertNull(registry.create("Bob", "A1"), "Duplicate IDs should be rejected.");
+        assertSame(first, registry.find("A1"));
+        assertEquals(1, registry.size());
+    }
+
+    /**
+     * Tests that concurrent creation of the same ID succeeds exactly once.
+     * Edge case scenario.
+     */
+    @Test
+    void testCreate_concurrentSameIdCreatesOnce() throws Exception {
+        UserRegistry registry = new UserRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<User>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String name = "User" + i;
+            results.add(executor.submit(() -> registry.create(name, "shared")));
+        }
+
+        int created = 0;
+        for (Future<User> result : results) {
+            if (result.get() != null) {
+                created++;
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, created, "Exactly one creation should win.");
+        assertEquals(1, registry.size());
+    }
+}
@@ -0,0 +1,534 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link User} class.
+ * Covers workout storage, workout views, per-activity totals, and tracked goals.
+ */
+class UserTest {
+
+    /**
+     * Tests that logged workouts are returned with their original values.
+     * Positive scenario.
+     */
+    @Test
+    void testGetWorkouts_returnsLoggedValues() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(45), LocalDate.of(2024, 6, 1)));
+
+        List<Workout> workouts = user.getWorkouts();
+        assertEquals(1, workouts.size());
+        Workout workout = workouts.get(0);
+        assertEquals(ActivityType.CYCLING, workout.getActivityType());
+        assertEquals(45, workout.getDuration().toMinutes());
+        assertEquals(LocalDate.of(2024, 6, 1), workout.getDate());
+        assertEquals(360.0, workout.getCaloriesBurned(), 0.001);
+    }
+
+    /**
+     * Tests that totals only include workouts of the requested activity, across storage chunks.
+     * Positive scenario.
+     */
+    @Test
+    void testTotals_filterByActivity() {
+        User user = new User("Test", "T1");
+        LocalDate date = LocalDate.of(2024, 6, 1);
+        for (int i = 0; i < 10_000; i++) {
+            ActivityType type = (i % 2 == 0) ? ActivityType.CYCLING : ActivityType.WEIGHTLIFTING;
+            user.addWorkout(new Workout(type, Duration.ofMinutes(10), date));
+        }
+
+        assertEquals(50_000, user.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(350_000.0, user.getTotalCaloriesBurned(ActivityType.WEIGHTLIFTING), 0.001);
+        assertEquals(0, user.getTotalWorkoutMinutes(ActivityType.RUNNING));
+    }
+
+    /**
+     * Tests that workouts keep their values while the first storage chunk grows, and after it is full.
+     * Positive scenario.
+     */
+    @Test
+    void testGetWorkouts_keepsValuesAcrossChunkGrowth() {
+        User user = new User("Test", "T1");
+        LocalDate date = LocalDate.of(2024, 6, 1);
+        int count = WorkoutStore.CHUNK_SIZE + 100;
+        for (int i = 0; i < count; i++) {
+            user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(1 + i % 500), date.plusDays(i % 30)));
+        }
+
+        List<Workout> workouts = user.getWorkouts();
+        assertEquals(count, workouts.size());
+        for (int i = 0; i < count; i += 7) {
+            assertEquals(1 + i % 500, workouts.get(i).getDuration().toMinutes());
+            assertEquals(date.plusDays(i % 30), workouts.get(i).getDate());
+        }
+        assertEquals(WorkoutStore.FIRST_CHUNK_ROWS, WorkoutStore.grownFirstChunk(0, 1));
+        assertEquals(64, WorkoutStore.grownFirstChunk(16, 40));
+        assertEquals(WorkoutStore.CHUNK_SIZE, WorkoutStore.grownFirstChunk(2048, 1_000_000));
+    }
+
+    /**
+     * Tests that a workout view shows the stored calorie estimate, which the totals also use,
+     * after the calorie model changed without a recalculation.
+     * Edge case scenario.
+     */
+    @Test
+    void testWorkoutView_showsStoredCalories() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1)));
+        try {
+            Workout.setCalorieModel((activityType, seconds) -> 1.0);
+            Workout view = user.getWorkouts().get(0);
+            assertEquals(240.0, view.getCaloriesBurned(), 0.001);
+            assertEquals(user.getTotalCaloriesBurned(ActivityType.CYCLING), view.getCaloriesBurned(), 0.001);
+        } finally {
+            Workout.setCalorieModel(CalorieModel.catalogRates());
+        }
+    }
+
+    /**
+     * Tests that a workout shorter than a minute can be read back after it is logged.
+     * Edge case scenario.
+     */
+    @Test
+    void testGetWorkouts_shortWorkoutCanBeReadBack() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofSeconds(30), LocalDate.of(2024, 6, 1)));
+
+        assertEquals(1, user.getWorkouts().size());
+        for (Workout workout : user.getWorkouts()) {
+            assertEquals(Duration.ofSeconds(30), workout.getDuration());
+            assertEquals(0.05, workout.getCaloriesBurned(), 1e-9);
+        }
+        assertDoesNotThrow(() -> user.getWorkouts().toString());
+        assertEquals(0, user.getTotalWorkoutMinutes(ActivityType.RUNNING));
+    }
+
+    /**
+     * Tests that changing a workout view updates the stored workout.
+     * Positive scenario.
+     */
+    @Test
+    void testWorkoutView_changesAreWrittenBack() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1)));
+
+        user.getWorkouts().get(0).setActivityType(ActivityType.WEIGHTLIFTING);
+
+        assertEquals(ActivityType.WEIGHTLIFTING, user.getWorkouts().get(0).getActivityType());
+        assertEquals(0, user.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(30, user.getTotalWorkoutMinutes(ActivityType.WEIGHTLIFTING));
+    }
+
+    /**
+     * Tests that a workout view of a cleared log no longer changes the log.
+     * Negative scenario.
+     */
+    @Test
+    void testWorkoutView_detachedAfterClear() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1)));
+        Workout stale = user.getWorkouts().get(0);
+
+        user.getWorkouts().clear();
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 2)));
+        stale.setDuration(Duration.ofMinutes(90));
+
+        assertEquals(20, user.getWorkouts().get(0).getDuration().toMinutes());
+    }
+
+    /**
+     * Tests that changing the duration of a logged workout updates the activity totals.
+     * Positive scenario.
+     */
+    @Test
+    void testSetDuration_updatesTotals() {
+        User user = new User("Test", "T1");
+        Workout workout = new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 1));
+        user.addWorkout(workout);
+
+        workout.setDuration(Duration.ofMinutes(50));
+
+        assertEquals(50, user.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(400.0, user.getTotalCaloriesBurned(ActivityType.CYCLING), 0.001);
+        assertEquals(1, user.getWorkoutCount(ActivityType.CYCLING));
+    }
+
+    /**
+     * Tests that date-range queries only include workouts inside the window, in date order.
+     * Positive scenario.
+     */
+    @Test
+    void testDateRangeQueries_includeOnlyWindow() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 10)));
+        user.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 1)));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 5)));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(40), LocalDate.of(2024, 7, 1)));
+
+        LocalDate from = LocalDate.of(2024, 6, 1);
+        LocalDate to = LocalDate.of(2024, 6, 10);
+        List<Workout> inJune = user.getWorkoutsBetween(from, to);
+
+        assertEquals(3, inJune.size());
+        assertEquals(LocalDate.of(2024, 6, 1), inJune.get(0).getDate());
+        assertEquals(LocalDate.of(2024, 6, 10), inJune.get(2).getDate());
+        assertEquals(60, user.getTotalWorkoutMinutes(from, to));
+        assertEquals(40, user.getTotalWorkoutMinutes(ActivityType.CYCLING, from, to));
+        assertEquals(320.0, user.getTotalCaloriesBurned(ActivityType.CYCLING, from, to), 0.001);
+        assertEquals(1, user.getWorkoutCount(ActivityType.WEIGHTLIFTING, from, to));
+    }
+
+    /**
+     * Tests that moving a workout to another date moves it between date windows.
+     * Positive scenario.
+     */
+    @Test
+    void testSetDate_reindexesWorkout() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 1)));
+
+        user.getWorkouts().get(0).setDate(LocalDate.of(2024, 8, 1));
+
+        assertEquals(0, user.getWorkoutCount(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30)));
+        assertEquals(1, user.getWorkoutCount(LocalDate.of(2024, 8, 1), LocalDate.of(2024, 8, 1)));
+    }
+
+    /**
+     * Tests that a date range with the start after the end is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testDateRangeQueries_invalidRangeThrowsException() {
+        User user = new User("Test", "T1");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> user.getWorkoutsBetween(LocalDate.of(2024, 7, 1), LocalDate.of(2024, 6, 1)));
+
+        assertEquals("Start date cannot be after end date.", thrown.getMessage());
+    }
+
+    /**
+     * Tests that concurrent writers and readers on the same user do not lose workouts.
+     * Edge case scenario.
+     */
+    @Test
+    void testConcurrentAddAndRead_noLostUpdates() throws Exception {
+        User user = new User("Test", "T1");
+        LocalDate date = LocalDate.of(2024, 6, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            boolean writer = thread % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    if (writer) {
+                        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(1), date));
+                    } else {
+                        long minutes = user.getTotalWorkoutMinutes(ActivityType.CYCLING);
+                        assertTrue(minutes >= 0 && minutes <= 20_000);
+                        user.getWorkoutCount(date, date);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(20_000, user.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(20_000, user.getWorkouts().size());
+        assertEquals(20_000, user.getWorkoutCount(date, date));
+    }
+
+    /**
+     * Tests that a tracked goal starts from the workouts already in its range
+     * and only counts later workouts inside its range.
+     * Positive scenario.
+     */
+    @Test
+    void testTrackedGoal_countsWorkoutsInRange() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 2)));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(90), LocalDate.of(2024, 5, 31)));
+        Goal minutes = new Goal("June Minutes", 100, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30),
+                GoalMetric.MINUTES, null);
+        Goal runs = new Goal("June Runs", 3, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30),
+                GoalMetric.SESSIONS, ActivityType.RUNNING);
+        Goal july = new Goal("July Minutes", 100, LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 31),
+                GoalMetric.MINUTES, null);
+        user.addGoal(minutes);
+        user.addGoal(runs);
+        user.addGoal(july);
+        assertEquals(30.0, minutes.getCurrentValue(), 0.001);
+
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(70), LocalDate.of(2024, 6, 30)));
+        assertEquals(100.0, minutes.getCurrentValue(), 0.001);
+        assertTrue(minutes.isAchieved());
+        assertEquals(1.0, runs.getCurrentValue(), 0.001);
+        assertEquals(0.0, july.getCurrentValue(), 0.001);
+    }
+
+    /**
+     * Tests that changing a workout or a goal's dates keeps tracked progress correct.
+     * Edge case scenario.
+     */
+    @Test
+    void testTrackedGoal_followsWorkoutAndDateChanges() {
+        User user = new User("Test", "T1");
+        Goal goal = new Goal("June Calories", 1000, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30),
+                GoalMetric.CALORIES, ActivityType.CYCLING);
+        user.addGoal(goal);
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(10), LocalDate.of(2024, 6, 15)));
+        assertEquals(80.0, goal.getCurrentValue(), 0.001);
+
+        Workout workout = user.getWorkouts().get(0);
+        workout.setDuration(Duration.ofMinutes(20));
+        assertEquals(160.0, goal.getCurrentValue(), 0.001);
+        workout.setDate(LocalDate.of(2024, 7, 1));
+        assertEquals(0.0, goal.getCurrentValue(), 0.001);
+
+        goal.setEndDate(LocalDate.of(2024, 7, 31));
+        assertEquals(160.0, goal.getCurrentValue(), 0.001);
+        user.getWorkouts().clear();
+        assertEquals(0.0, goal.getCurrentValue(), 0.001);
+    }
+
+    /**
+     * Tests that a manual goal is not changed by logged workouts.
+     * Negative scenario.
+     */
+    @Test
+    void testManualGoal_ignoresWorkouts() {
+        User user = new User("Test", "T1");
+        Goal goal = new Goal("Distance", 100, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        user.addGoal(goal);
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 2)));
+        assertEquals(0.0, goal.getCurrentValue(), 0.001);
+    }
+
+    /**
+     * Tests that only goals ending after the clock's date are active, soonest end first.
+     * Positive scenario.
+     */
+    @Test
+    void testGetActiveGoals_usesClock() {
+        Clock clock = Clock.fixed(LocalDate.of(2024, 6, 15).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+        User user = new User("Test", "T1", clock);
+        Goal expired = new Goal("May", 10, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31));
+        Goal endsToday = new Goal("Mid June", 10, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 15));
+        Goal year = new Goal("Year", 10, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        Goal june = new Goal("June", 10, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        user.addGoal(expired);
+        user.addGoal(endsToday);
+        user.addGoal(year);
+        user.addGoal(june);
+
+        assertEquals(List.of(june, year), user.getActiveGoals());
+    }
+
+    /**
+     * Tests that changing a goal's end date moves it in or out of the active goals.
+     * Edge case scenario.
+     */
+    @Test
+    void testGetActiveGoals_followsEndDateChanges() {
+        Clock clock = Clock.fixed(LocalDate.of(2024, 6, 15).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+        User user = new User("Test", "T1", clock);
+        Goal goal = new Goal("May", 10, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31));
+        user.addGoal(goal);
+        assertTrue(user.getActiveGoals().isEmpty());
+
+        goal.setEndDate(LocalDate.of(2024, 7, 31));
+        assertEquals(List.of(goal), user.getActiveGoals());
+        user.getGoals().clear();
+        assertTrue(user.getActiveGoals().isEmpty());
+    }
+
+    /**
+     * Tests that weekly and monthly rollups follow added and changed workouts.
+     * Positive scenario.
+     */
+    @Test
+    void testGetReport_rollsUpByBucketAndActivity() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 3)));  // Monday
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 9)));  // Sunday
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(40), LocalDate.of(2024, 6, 10)));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(15), LocalDate.of(2024, 7, 1)));
+
+        List<RollupRow> weeks = user.getReport(Granularity.WEEK, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        assertEquals(List.of(
+                new RollupRow(LocalDate.of(2024, 6, 3), ActivityType.CYCLING, 2, 50, 400.0),
+                new RollupRow(LocalDate.of(2024, 6, 10), ActivityType.RUNNING, 1, 40, 4.0)), weeks);
+
+        user.getWorkouts().get(2).setActivityType(ActivityType.CYCLING);
+        user.getWorkouts().get(0).setDuration(Duration.ofMinutes(10));
+        List<RollupRow> months = user.getReport(Granularity.MONTH, ActivityType.CYCLING,
+                LocalDate.of(2024, 6, 15), LocalDate.of(2024, 7, 31));
+        assertEquals(2, months.size());
+        assertEquals(new RollupRow(LocalDate.of(2024, 6, 1), ActivityType.CYCLING, 3, 70, 560.0), months.get(0));
+        assertEquals(15, months.get(1).minutes());
+    }
+
+    /**
+     * Tests that removing workouts drops their buckets from reports.
+     * Edge case scenario.
+     */
+    @Test
+    void testGetReport_emptyAfterClear() {
+        User user = new User("Test", "T1");
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 3)));
+        user.getWorkouts().clear();
+        assertTrue(user.getReport(Granularity.DAY, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30)).isEmpty());
+    }
+
+    /**
+     * Tests that off-heap storage answers the same queries as heap storage, across storage chunks.
+     * Positive scenario.
+     */
+    @Test
+    void testOffHeapStorage_matchesHeapStorage() {
+        Clock clock = Clock.fixed(LocalDate.of(2024, 6, 5).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+        User heap = new User("Heap", "H1", clock, WorkoutStorage.HEAP);
+        User offHeap = new User("OffHeap", "O1", clock, WorkoutStorage.OFF_HEAP);
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 10_000; i++) {
+            ActivityType type = (i % 3 == 0) ? ActivityType.RUNNING : ActivityType.CYCLING;
+            Workout workout = new Workout(type, Duration.ofMinutes(1 + i % 90), start.plusDays(i % 500));
+            heap.addWorkout(workout);
+            offHeap.addWorkout(new Workout(type, workout.getDuration(), workout.getDate()));
+        }
+
+        assertEquals(heap.getTotalCaloriesBurned(ActivityType.CYCLING), offHeap.getTotalCaloriesBurned(ActivityType.CYCLING));
+        LocalDate from = LocalDate.of(2023, 3, 1);
+        LocalDate to = LocalDate.of(2023, 9, 30);
+        assertEquals(heap.getTotalWorkoutMinutes(ActivityType.RUNNING, from, to),
+                offHeap.getTotalWorkoutMinutes(ActivityType.RUNNING, from, to));
+        assertEquals(heap.getTotalCaloriesBurned(from, to), offHeap.getTotalCaloriesBurned(from, to));
+        Workout last = offHeap.getWorkouts().get(9_999);
+        assertEquals(ActivityType.RUNNING, last.getActivityType());
+        assertEquals(10, last.getDuration().toMinutes());
+        assertEquals(start.plusDays(9_999 % 500), last.getDate());
+        assertEquals(1.0, last.getCaloriesBurned(), 0.001);
+    }
+
+    /**
+     * Tests that a batch logged out of date order answers date ranges like the same
+     * workouts logged one at a time, including when it falls between earlier workouts.
+     * Positive scenario.
+     */
+    @Test
+    void testAddWorkouts_unorderedBatchMatchesSingleAppends() {
+        User single = new User("Single", "S1");
+        User batched = new User("Batched", "B1");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int day = 0; day < 100; day += 10) {
+            single.addWorkout(ActivityType.RUNNING, (int) start.plusDays(day).toEpochDay(), 600);
+            batched.addWorkout(ActivityType.RUNNING, (int) start.plusDays(day).toEpochDay(), 600);
+        }
+        int count = 300;
+        ActivityType[] types = new ActivityType[count];
+        int[] days = new int[count];
+        int[] minutes = new int[count];
+        for (int i = 0; i < count; i++) {
+            types[i] = i % 3 == 0 ? ActivityType.CYCLING : ActivityType.WEIGHTLIFTING;
+            days[i] = (int) start.plusDays((i * 37) % 120).toEpochDay();
+            minutes[i] = 5 + i % 40;
+            single.addWorkout(types[i], days[i], minutes[i] * 60);
+        }
+
+        batched.addWorkouts(types, days, minutes, count);
+
+        for (int from = 0; from < 120; from += 7) {
+            LocalDate first = start.plusDays(from);
+            LocalDate last = first.plusDays(from % 30);
+            assertEquals(single.getWorkoutsBetween(first, last).toString(),
+                    batched.getWorkoutsBetween(first, last).toString());
+            assertEquals(single.getWorkoutCount(ActivityType.CYCLING, first, last),
+                    batched.getWorkoutCount(ActivityType.CYCLING, first, last));
+        }
+        assertEquals(single.getTotalWorkoutMinutes(start, start.plusDays(120)),
+                batched.getTotalWorkoutMinutes(start, start.plusDays(120)));
+    }
+
+    /**
+     * Tests that the memory estimate follows the allocated rows and rollup buckets,
+     * on and off the heap, and drops again when the workouts are cleared.
+     * Positive scenario.
+     */
+    @Test
+    void testEstimatedBytes_followsAllocatedRowsAndBuckets() {
+        for (WorkoutStorage storage : WorkoutStorage.values()) {
+            User user = new User("Test", "T1", Clock.systemUTC(), storage);
+            long empty = user.estimatedBytes();
+            user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 3)));
+            long one = user.estimatedBytes();
+            for (int i = 1; i < 5000; i++) {
+                user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 3)));
+            }
+            long sameDay = user.estimatedBytes();
+            for (int i = 0; i < 1000; i++) {
+                user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2020, 1, 1).plusDays(i)));
+            }
+            long spread = user.estimatedBytes();
+
+            assertTrue(one > empty, storage.name());
+            // Two full chunks of rows take at least 18 bytes each.
+            assertTrue(sameDay - one >= 2L * 4096 * 18, storage.name());
+            // A thousand extra days add over a thousand daily buckets.
+            assertTrue(spread - sameDay > 1000L * 100, storage.name());
+            user.getWorkouts().clear();
+            assertEquals(empty, user.estimatedBytes(), storage.name());
+        }
+    }
+
+    /**
+     * Tests that changes through workout views and clearing work on off-heap storage.
+     * Edge case scenario.
+     */
+    @Test
+    void testOffHeapStorage_updateAndClear() {
+        User user = new User("Test", "T1", Clock.systemDefaultZone(), WorkoutStorage.OFF_HEAP);
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 3)));
+
+        Workout workout = user.getWorkouts().get(0);
+        workout.setActivityType(ActivityType.WEIGHTLIFTING);
+        workout.setDate(LocalDate.of(2024, 6, 20));
+
+        assertEquals(210.0, user.getTotalCaloriesBurned(ActivityType.WEIGHTLIFTING), 0.001);
+        assertEquals(1, user.getWorkoutCount(LocalDate.of(2024, 6, 20), LocalDate.of(2024, 6, 20)));
+        assertEquals(LocalDate.of(2024, 6, 20), user.getWorkouts().get(0).getDate());
+
+        user.getWorkouts().clear();
+        assertTrue(user.getWorkouts().isEmpty());
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(5), LocalDate.of(2024, 6, 4)));
+        assertEquals(40.0, user.getTotalCaloriesBurned(ActivityType.CYCLING), 0.001);
+    }
+
+    /**
+     * Tests parsing storage names.
+     * Negative scenario.
+     */
+    @Test
+    void testWorkoutStorage_fromName() {
+        assertEquals(WorkoutStorage.OFF_HEAP, WorkoutStorage.fromName("off-heap"));
+        assertEquals(WorkoutStorage.HEAP, WorkoutStorage.fromName(" Heap "));
+        assertThrows(IllegalArgumentException.class, () -> WorkoutStorage.fromName("disk"));
+    }
+}
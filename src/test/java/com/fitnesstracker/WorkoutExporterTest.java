@@ -0,0 +1,145 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link WorkoutExporter} class.
+ */
+class WorkoutExporterTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+    private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+
+    @TempDir
+    Path tempDir;
+
+    private static User alice() {
+        User user = new User("Alice, Runner", "A1", CLOCK);
+        user.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(45), LocalDate.of(2024, 6, 1)));
+        user.addWorkout(new Workout(ActivityType.CYCLING, Duration.ofMinutes(30), LocalDate.of(2024, 6, 2)));
+        user.addGoal(new Goal("Run more", 300, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30),
+                GoalMetric.MINUTES, ActivityType.RUNNING));
+        return user;
+    }
+
+    /**
+     * Tests that a CSV export writes the header, the user, its workouts, and its goals.
+     * Positive scenario.
+     */
+    @Test
+    void testExportUser_csv() throws IOException {
+        User user = alice();
+        Path file = tempDir.resolve("alice.csv");
+
+        WorkoutExporter.Result result = new WorkoutExporter(WorkoutExporter.Format.CSV).exportUser(user, file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(7, lines.size());
+        assertTrue(lines.get(0).startsWith("# user,"));
+        assertEquals("user,A1,\"Alice, Runner\"", lines.get(3));
+        assertEquals("workout,A1,Running,45," + "2024-06-01," + String.format("%.2f", user.getWorkouts().get(0).getCaloriesBurned()), lines.get(4));
+        assertTrue(lines.get(5).startsWith("workout,A1,Cycling,30,2024-06-02,"));
+        assertEquals("goal,A1,Run more,300.00,45.00,2024-06-01,2024-06-30,Minutes,Running", lines.get(6));
+        assertEquals(new WorkoutExporter.Result(1, 2, 1, Files.size(file), false), result);
+    }
+
+    /**
+     * Tests that the workouts of a JSON-lines export can be imported again.
+     * Positive scenario.
+     */
+    @Test
+    void testExportAll_jsonLinesCanBeImported() throws IOException {
+        User alice = alice();
+        User bob = new User("Bób", "B1", CLOCK);
+        bob.addWorkout(new Workout(ActivityType.WEIGHTLIFTING, Duration.ofMinutes(20), LocalDate.of(2024, 6, 3)));
+        Path file = tempDir.resolve("all.jsonl");
+
+        WorkoutExporter.Result result = new WorkoutExporter(WorkoutExporter.Format.JSON_LINES)
+                .exportAll(List.of(alice, bob), file, null, null);
+
+        assertEquals(new WorkoutExporter.Result(2, 3, 1, Files.size(file), false), result);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("{\"type\":\"user\",\"user\":\"B1\",\"name\":\"Bób\"}", lines.get(4));
+        assertTrue(lines.get(3).contains("\"metric\":\"Minutes\",\"activity\":\"Running\""));
+
+        User imported = new User("Copy", "C1", CLOCK);
+        WorkoutImporter.Result imports = new WorkoutImporter(imported, null).importFile(file);
+        assertEquals(3, imports.imported());
+        assertEquals(45 + 30 + 20, imported.getWorkouts().stream().mapToLong(w -> w.getDuration().toMinutes()).sum());
+    }
+
+    /**
+     * Tests that a binary export of one user reads back with the same workouts and goals.
+     * Positive scenario.
+     */
+    @Test
+    void testExportUser_binaryRoundTrip() throws IOException {
+        User user = alice();
+        Path file = tempDir.resolve("alice.bin");
+
+        WorkoutExporter.Result result = new WorkoutExporter(WorkoutExporter.Format.BINARY).exportUser(user, file);
+
+        User read = Snapshot.readUser(file, (name, userId) -> new User(name, userId, CLOCK));
+        assertEquals(user.getName(), read.getName());
+        assertEquals(user.getWorkouts().toString(), read.getWorkouts().toString());
+        assertEquals(user.getGoals().toString(), read.getGoals().toString());
+        assertEquals(Files.size(file), result.bytes());
+    }
+
+    /**
+     * Tests that a binary export of all users copies the snapshot when the journal is empty,
+     * and encodes the users once the journal holds changes.
+     * Edge case scenario.
+     */
+    @Test
+    void testExportAll_binaryCopiesSnapshotOnlyWhenJournalIsEmpty() throws IOException {
+        UserRegistry registry = new UserRegistry(CLOCK);
+        User alice = registry.create("Alice", "A1");
+        alice.addWorkout(new Workout(ActivityType.RUNNING, Duration.ofMinutes(45), TODAY));
+        Path snapshot = tempDir.resolve("snapshot.bin");
+        Snapshot.write(snapshot, registry.users(), 1);
+        WorkoutExporter exporter = new WorkoutExporter(WorkoutExporter.Format.BINARY);
+
+        try (Journal journal = Journal.open(tempDir.resolve("journal.bin"), 1)) {
+            Path copy = tempDir.resolve("copy.bin");
+            WorkoutExporter.Result copied = exporter.exportAll(registry.users(), copy, snapshot, journal);
+            assertTrue(copied.snapshotCopied());
+            assertArrayEquals(Files.readAllBytes(snapshot), Files.readAllBytes(copy));
+
+            journal.recordCreateUser("Bob", "B1");
+            registry.create("Bob", "B1");
+            journal.sync();
+            Path encoded = tempDir.resolve("encoded.bin");
+            WorkoutExporter.Result written = exporter.exportAll(registry.users(), encoded, snapshot, journal);
+            assertFalse(written.snapshotCopied());
+            assertEquals(2, written.users());
+            UserRegistry loaded = new UserRegistry(CLOCK);
+            Snapshot.load(encoded, loaded);
+            assertEquals(2, loaded.size());
+            assertEquals(alice.getWorkouts().toString(), loaded.find("A1").getWorkouts().toString());
+        }
+    }
+
+    /**
+     * Tests that an unknown format name is rejected.
+     * Negative scenario.
+     */
+    @Test
+    void testFormat_unknownName() {
+        assertEquals(WorkoutExporter.Format.JSON_LINES, WorkoutExporter.Format.fromName(" JSONL "));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> WorkoutExporter.Format.fromName("xml"));
+        assertEquals("Unknown export format: xml. Use csv, jsonl or binary.", e.getMessage());
+    }
+}
@@ -0,0 +1,110 @@
+package com.fitnesstracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link WorkoutImporter} class.
+ * Covers CSV and JSON-lines parsing, batching, and rejected lines.
+ */
+class WorkoutImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that CSV and JSON lines are imported and the header is skipped.
+     * Positive scenario.
+     */
+    @Test
+    void testImportFile_csvAndJsonLines() throws IOException {
+        Path file = tempDir.resolve("workouts.txt");
+        Files.writeString(file, "activity,minutes,date\n"
+                + "Cycling,30,2024-06-01\r\n"
+                + " weightlifting , 20 , 2024-06-02\n"
+                + "\n"
+                + "# comment\n"
+                + "{\"activity\": \"Cycling\", \"minutes\": 15, \"date\": \"2024-06-03\", \"source\": \"watch\"}\n"
+                + "{\"date\":\"2024-06-04\",\"minutes\":\"10\",\"activity\":\"Running\"}");
+        User user = new User("Test", "T1");
+
+        WorkoutImporter.Result result = new WorkoutImporter(user, null).importFile(file);
+
+        assertEquals(4, result.imported());
+        assertEquals(0, result.rejected());
+        assertEquals(45, user.getTotalWorkoutMinutes(ActivityType.CYCLING));
+        assertEquals(20, user.getTotalWorkoutMinutes(ActivityType.WEIGHTLIFTING));
+        assertEquals(LocalDate.of(2024, 6, 4), user.getWorkouts().get(3).getDate());
+    }
+
+    /**
+     * Tests that invalid lines are rejected and reported without stopping the import.
+     * Negative scenario.
+     */
+    @Test
+    void testImportFile_rejectsInvalidLines() throws IOException {
+        Path file = tempDir.resolve("workouts.csv");
+        Files.writeString(file, "Cycling,30,2024-06-01\n"
+                + "Swimming,30,2024-06-01\n"
+                + "Cycling,-5,2024-06-01\n"
+                + "Cycling,30,2024-02-30\n"
+                + "Cycling,30\n"
+                + "Cycling,40,2024-06-02\n");
+        User user = new User("Test", "T1");
+
+        WorkoutImporter.Result result = new WorkoutImporter(user, null).importFile(file);
+
+        assertEquals(2, result.imported());
+        assertEquals(4, result.rejected());
+        assertTrue(result.rejectionSamples().get(0).startsWith("line 2: unknown activity"));
+        assertEquals(70, user.getTotalWorkoutMinutes(ActivityType.CYCLING));
+    }
+
+    /**
+     * Tests that a duration too long to store in seconds is rejected instead of wrapping around.
+     * Negative scenario.
+     */
+    @Test
+    void testImportFile_rejectsOverlongDuration() throws IOException {
+        Path file = tempDir.resolve("workouts.csv");
+        Files.writeString(file, "Running,40000000,2024-01-01\n"
+                + "Running," + WorkoutImporter.MAX_MINUTES + ",2024-01-02\n");
+        User user = new User("Test", "T1");
+
+        WorkoutImporter.Result result = new WorkoutImporter(user, null).importFile(file);
+
+        assertEquals(1, result.imported());
+        assertEquals(1, result.rejected());
+        assertEquals("line 1: duration must be at most " + WorkoutImporter.MAX_MINUTES + " minutes",
+                result.rejectionSamples().get(0));
+        assertEquals(WorkoutImporter.MAX_MINUTES, user.getTotalWorkoutMinutes(ActivityType.RUNNING));
+        assertTrue(user.getWorkouts().get(0).getCaloriesBurned() > 0);
+    }
+
+    /**
+     * Tests that imports larger than one batch are fully appended.
+     * Edge case scenario.
+     */
+    @Test
+    void testImportFile_multipleBatches() throws IOException {
+        Path file = tempDir.resolve("workouts.csv");
+        int lines = WorkoutImporter.BATCH_SIZE * 2 + 17;
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("Cycling,1,2024-06-01\n");
+        }
+        Files.writeString(file, content);
+        User user = new User("Test", "T1");
+
+        WorkoutImporter.Result result = new WorkoutImporter(user, null).importFile(file);
+
+        assertEquals(lines, result.imported());
+        assertEquals(lines, user.getWorkouts().size());
+    }
+}